@@ -0,0 +1,83 @@
+package org.oseditor.graph.benchmark;
+
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.DistanceFunction;
+import org.oseditor.graph.GraphLayoutBuilder;
+import org.oseditor.graph.GraphNode;
+import org.oseditor.graph.Neighbors;
+import org.oseditor.graph.PureDistanceFunction;
+import org.oseditor.graph.generator.BarabasiAlbertGenerator;
+import org.oseditor.graph.generator.ErdosRenyiGenerator;
+import org.oseditor.graph.generator.GraphGenerator;
+import org.oseditor.graph.generator.GridGenerator;
+import org.oseditor.graph.generator.TreeGenerator;
+
+
+/**
+ * Creates the graphs and layout builders shared by the benchmarks. All graphs are reproducible for
+ * a given seed.
+ */
+public final class BenchmarkGraphs
+{
+    private static final DistanceFunction UNIT_DISTANCE = new PureDistanceFunction()
+    {
+        @Override
+        public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+        {
+            return 1;
+        }
+    };
+
+    private BenchmarkGraphs()
+    {
+    }
+
+    /**
+     * Returns a builder configured like a typical editor layout.
+     */
+    public static GraphLayoutBuilder builder()
+    {
+        return new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(UNIT_DISTANCE);
+    }
+
+    /**
+     * Creates a graph of the given family.
+     *
+     * @param family    graph family
+     * @param size      number of nodes
+     * @param seed      random seed
+     */
+    public static DirectedGraph create(GraphFamily family, int size, long seed)
+    {
+        return generator(family, size, seed).createGraph();
+    }
+
+    /**
+     * Returns the generator for a graph of the given family.
+     *
+     * @param family    graph family
+     * @param size      number of nodes
+     * @param seed      random seed
+     */
+    public static GraphGenerator generator(GraphFamily family, int size, long seed)
+    {
+        switch (family)
+        {
+            case GRID:
+                return GridGenerator.square(size, false);
+            case TREE:
+                return new TreeGenerator(size, 2);
+            case SCALE_FREE:
+                return new BarabasiAlbertGenerator(size, 2, seed);
+            case RANDOM_SPARSE:
+                return new ErdosRenyiGenerator(size, size * 2L, seed);
+            case RANDOM_DENSE:
+                return new ErdosRenyiGenerator(size, size * 20L, seed);
+            default:
+                throw new IllegalStateException("Unhandled family " + family);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.oseditor.graph.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.ShortestPathAlgorithm;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the construction of a {@link GraphLayout}, which is dominated by the all pairs
+ * shortest path calculation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConstructionBenchmark
+{
+    @Param({"GRID", "TREE", "SCALE_FREE", "RANDOM_SPARSE", "RANDOM_DENSE"})
+    public GraphFamily family;
+
+    @Param({"100", "1000", "4000"})
+    public int size;
+
+    @Param({"BFS", "DIJKSTRA"})
+    public ShortestPathAlgorithm algorithm;
+
+    private DirectedGraph graph;
+
+    @Setup
+    public void setup()
+    {
+        graph = BenchmarkGraphs.create(family, size, 42);
+    }
+
+    @Benchmark
+    public GraphLayout construct()
+    {
+        return BenchmarkGraphs.builder()
+            .withShortestPathAlgorithm(algorithm)
+            .buildFor(graph);
+    }
+}
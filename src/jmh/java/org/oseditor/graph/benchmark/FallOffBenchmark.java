@@ -0,0 +1,90 @@
+package org.oseditor.graph.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.oseditor.graph.CompiledFallOffCurve;
+import org.oseditor.graph.FallOffCurveDefinition;
+import org.oseditor.graph.FallOffHelper;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link FallOffHelper#fallOff} with the compiled curves over a spread of distances, part
+ * of them beyond the end of the curve.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FallOffBenchmark
+{
+    private static final int COUNT = 1024;
+
+    private final FallOffCurveDefinition definition = new FallOffCurveDefinition(0.25, 1, 0.75, 0.5, 0, 10);
+
+    private final FallOffHelper helper = new FallOffHelper();
+
+    private CompiledFallOffCurve polynomial;
+
+    private CompiledFallOffCurve table;
+
+    private double[] distances;
+
+    @Setup
+    public void setup()
+    {
+        polynomial = CompiledFallOffCurve.compile(definition);
+        table = CompiledFallOffCurve.compile(definition, 1024);
+
+        Random random = new Random(42);
+        distances = new double[COUNT];
+        for (int i = 0; i < COUNT; i++)
+        {
+            distances[i] = random.nextDouble() * definition.getMax() * 1.25;
+        }
+    }
+
+    @Benchmark
+    public double helper()
+    {
+        double sum = 0;
+        for (double distance : distances)
+        {
+            sum += helper.fallOff(definition, distance);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double polynomial()
+    {
+        double sum = 0;
+        for (double distance : distances)
+        {
+            sum += polynomial.fallOff(distance);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double table()
+    {
+        double sum = 0;
+        for (double distance : distances)
+        {
+            sum += table.fallOff(distance);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,34 @@
+package org.oseditor.graph.benchmark;
+
+/**
+ * Kinds of graphs the benchmarks run over.
+ *
+ * @see BenchmarkGraphs#generator(GraphFamily, int, long)
+ */
+public enum GraphFamily
+{
+    /**
+     * Square grid, every node connected to its right and lower neighbour.
+     */
+    GRID,
+
+    /**
+     * Binary tree.
+     */
+    TREE,
+
+    /**
+     * Barabasi-Albert graph with two edges per new node, a few nodes with very high degree.
+     */
+    SCALE_FREE,
+
+    /**
+     * Erdos-Renyi graph with about two edges per node.
+     */
+    RANDOM_SPARSE,
+
+    /**
+     * Erdos-Renyi graph with about twenty edges per node.
+     */
+    RANDOM_DENSE
+}
@@ -0,0 +1,87 @@
+package org.oseditor.graph.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.GraphLayoutBuilder;
+import org.oseditor.graph.LayoutResult;
+import org.oseditor.graph.LayoutSolver;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a complete layout of a fixed number of iterations. The convergence check is switched off so every
+ * run does all iterations. The layout is constructed outside of the measurement. Warm starts refine the result of
+ * a cold layout of the same graph with the same number of iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LayoutBenchmark
+{
+    @Param({"GRID", "TREE", "SCALE_FREE", "RANDOM_SPARSE", "RANDOM_DENSE"})
+    public GraphFamily family;
+
+    @Param({"100", "500", "1000"})
+    public int size;
+
+    @Param({"200"})
+    public int iterations;
+
+    @Param({"false", "true"})
+    public boolean warm;
+
+    @Param({"FORCES", "STRESS_MAJORIZATION"})
+    public LayoutSolver solver;
+
+    private DirectedGraph graph;
+
+    private GraphLayout layout;
+
+    @Setup(Level.Trial)
+    public void createGraph()
+    {
+        graph = BenchmarkGraphs.create(family, size, 42);
+
+        if (warm)
+        {
+            GraphLayoutBuilder builder = BenchmarkGraphs.builder();
+            builder.withIterations(iterations);
+            GraphLayout cold = builder.buildFor(graph);
+            cold.run();
+            cold.update();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void createLayout()
+    {
+        GraphLayoutBuilder builder = BenchmarkGraphs.builder();
+        builder.withIterations(iterations);
+        layout = builder.withConvergenceTolerance(0)
+            .withWarmStart(warm)
+            .withWarmStartIterations(iterations)
+            .withLayoutSolver(solver)
+            .buildFor(graph);
+    }
+
+    @Benchmark
+    public LayoutResult run()
+    {
+        return layout.run();
+    }
+}
@@ -0,0 +1,109 @@
+package org.oseditor.graph.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.oseditor.graph.IntPriorityQueue;
+import org.oseditor.graph.PriorityQueueType;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link IntPriorityQueue} implementations with the add / lower priority / pop pattern
+ * of a Dijkstra search over a random graph with small integer edge weights.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PriorityQueueBenchmark
+{
+    private static final int DEGREE = 6;
+
+    @Param({"SORTED_ARRAY", "HEAP", "RADIX"})
+    public PriorityQueueType type;
+
+    @Param({"1000", "10000", "50000"})
+    public int size;
+
+    private IntPriorityQueue queue;
+
+    private int[] targets;
+    private int[] weights;
+
+    private int[] priorities;
+    private boolean[] settled;
+
+    @Setup
+    public void setup()
+    {
+        Random random = new Random(42);
+
+        targets = new int[size * DEGREE];
+        weights = new int[size * DEGREE];
+        for (int i = 0; i < targets.length; i++)
+        {
+            targets[i] = random.nextInt(size);
+            weights[i] = 1 + random.nextInt(10);
+        }
+
+        priorities = new int[size];
+        settled = new boolean[size];
+        queue = type.create(size);
+    }
+
+    @Benchmark
+    public long search()
+    {
+        Arrays.fill(priorities, Integer.MAX_VALUE);
+        Arrays.fill(settled, false);
+        queue.clear();
+
+        priorities[0] = 0;
+        queue.add(0, 0);
+
+        long sum = 0;
+        while (!queue.isEmpty())
+        {
+            int current = queue.popMinimalValue();
+            settled[current] = true;
+            int priority = priorities[current];
+            sum += priority;
+
+            for (int i = current * DEGREE, end = i + DEGREE; i < end; i++)
+            {
+                int target = targets[i];
+                if (settled[target])
+                {
+                    continue;
+                }
+
+                int old = priorities[target];
+                int newPriority = priority + weights[i];
+                if (old == Integer.MAX_VALUE)
+                {
+                    priorities[target] = newPriority;
+                    queue.add(newPriority, target);
+                }
+                else if (newPriority < old)
+                {
+                    priorities[target] = newPriority;
+                    queue.lowerPriority(target, old, newPriority);
+                }
+            }
+        }
+        return sum;
+    }
+}
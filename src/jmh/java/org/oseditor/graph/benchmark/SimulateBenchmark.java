@@ -0,0 +1,65 @@
+package org.oseditor.graph.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.RepulsionMode;
+import org.oseditor.graph.StatePrecision;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single integration step of {@link GraphLayout#simulate()} with the repulsion
+ * already switched on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SimulateBenchmark
+{
+    @Param({"GRID", "TREE", "SCALE_FREE", "RANDOM_SPARSE", "RANDOM_DENSE"})
+    public GraphFamily family;
+
+    @Param({"100", "1000", "4000"})
+    public int size;
+
+    @Param({"EXACT", "BARNES_HUT", "CUTOFF"})
+    public RepulsionMode repulsionMode;
+
+    @Param({"DOUBLE", "FLOAT"})
+    public StatePrecision precision;
+
+    private GraphLayout layout;
+
+    @Setup
+    public void setup()
+    {
+        layout = BenchmarkGraphs.builder()
+            .withRepulsionStart(0)
+            .withRepulsionMode(repulsionMode)
+            .withStatePrecision(precision)
+            .buildFor(BenchmarkGraphs.create(family, size, 42));
+
+        // leave the initial state where every node shares the same position
+        layout.simulate();
+    }
+
+    @Benchmark
+    public double simulate()
+    {
+        layout.simulate();
+        return layout.getTime();
+    }
+}
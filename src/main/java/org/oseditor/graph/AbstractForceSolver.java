@@ -7,16 +7,39 @@ package org.oseditor.graph;
  */
 public abstract class AbstractForceSolver
 {
-    final int nodeCount;
+    int nodeCount;
     private final double delta;
     private double time;
     double angle = 0;
     private State state;
 
+    private Integrator integrator;
+    private long forceEvaluations;
+
     public AbstractForceSolver( int nodeCount, double stepSize)
+    {
+        this(nodeCount, stepSize, false);
+    }
+
+    /**
+     * Creates a new force solver integrating with RK4.
+     *
+     * @param nodeCount         number of nodes
+     * @param stepSize          time step
+     * @param reuseBuffers      if <code>true</code>, all intermediary states of a simulation step are allocated once
+     *                          and reused, so {@link #simulate()} does not allocate anything as long as
+     *                          {@link #simulate(State, double, double, State)} does not.
+     */
+    public AbstractForceSolver( int nodeCount, double stepSize, boolean reuseBuffers)
+    {
+        this(nodeCount, stepSize, new RungeKuttaIntegrator(nodeCount, reuseBuffers));
+    }
+
+    AbstractForceSolver( int nodeCount, double stepSize, Integrator integrator)
     {
         this.nodeCount = nodeCount;
         this.delta = stepSize;
+        this.integrator = integrator;
         state = new State(nodeCount);
         time = 0;
     }
@@ -25,34 +48,54 @@ public abstract class AbstractForceSolver
     {
         State state = derivative.clone().scale(delta).add(initialState);
 
+        if (delta != 0)
+        {
+            forceEvaluations++;
+        }
         return this.simulate(state, time, delta);
     }
 
     /**
-     * Do one RK4 simulation step. Step size is defined by
-     * the "stepSize" option.
+     * Calculates the derivative for the given state into the given state and counts the force evaluation.
      */
-    public void simulate()
+    void derivative(State state, double time, double delta, State derivative)
     {
-        State nd = new State(nodeCount);
-        State a = this.evaluate(state, nd, time, 0);
-        State b = this.evaluate(state,  a, time, delta * 0.5);
-        State c = this.evaluate(state,  b, time, delta * 0.5);
-        State d = this.evaluate(state,  c, time, delta);
-
-        b.add(c).scale(2);
-        d.add(a).add(b).scale(1.0/6);
-
-        this.state.add(d.scale(delta));
+        if (delta != 0)
+        {
+            forceEvaluations++;
+        }
+        this.simulate(state, time, delta, derivative);
+    }
 
-        time += delta;
+    /**
+     * Do one simulation step with the configured integrator. Step size is defined by
+     * the "stepSize" option, adaptive integrators may advance the time by a different amount.
+     */
+    public void simulate()
+    {
+        time += integrator.step(this, state, time, delta);
     }
 
     protected abstract State simulate(State state, double time, double delta);
 
+    /**
+     * Calculates the derivative for the given state into the given derivative state. The default implementation
+     * copies the result of {@link #simulate(State, double, double)}, subclasses should override this to avoid the
+     * allocation.
+     *
+     * @param state         state to calculate the derivative for
+     * @param time          current time
+     * @param delta         time delta
+     * @param derivative    state to write the derivative to
+     */
+    protected void simulate(State state, double time, double delta, State derivative)
+    {
+        derivative.set(simulate(state, time, delta));
+    }
+
     /**
      * Exposes the internal simulation state. Normally you should not touch this unless you want
-     * to animate the intermediary animation steps.
+     * to animate the intermediary animation steps. Call {@link #resetIntegrator()} after changing it.
      *
      * @return
      */
@@ -60,4 +103,42 @@ public abstract class AbstractForceSolver
     {
         return state;
     }
+
+    /**
+     * Makes the integrator forget about previous steps, must be called after the internal state was changed from
+     * outside the simulation.
+     */
+    public void resetIntegrator()
+    {
+        integrator.reset();
+    }
+
+    /**
+     * Replaces the state and integrator after nodes were added or removed. The simulation time is kept.
+     *
+     * @param newState          state with the new number of nodes
+     * @param newIntegrator     integrator for the new number of nodes
+     */
+    void resize(State newState, Integrator newIntegrator)
+    {
+        nodeCount = newState.size();
+        state = newState;
+        integrator = newIntegrator;
+    }
+
+    /**
+     * Returns the current simulation time.
+     */
+    public double getTime()
+    {
+        return time;
+    }
+
+    /**
+     * Returns the number of force evaluations done so far.
+     */
+    public long getForceEvaluations()
+    {
+        return forceEvaluations;
+    }
 }
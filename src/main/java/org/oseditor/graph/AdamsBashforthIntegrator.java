@@ -0,0 +1,46 @@
+package org.oseditor.graph;
+
+/**
+ * Two-step Adams-Bashforth integration. The first step is an Euler step.
+ */
+final class AdamsBashforthIntegrator
+    extends Integrator
+{
+    private State derivative;
+    private State previous;
+    private boolean first = true;
+
+    AdamsBashforthIntegrator(int nodeCount, StatePrecision precision)
+    {
+        derivative = new State(nodeCount, precision);
+        previous = new State(nodeCount, precision);
+    }
+
+    @Override
+    double step(AbstractForceSolver solver, State state, double time, double stepSize)
+    {
+        solver.derivative(state, time, stepSize * 0.5, derivative);
+
+        if (first)
+        {
+            state.addScaled(derivative, stepSize);
+            first = false;
+        }
+        else
+        {
+            state.addScaled(derivative, stepSize * 1.5).addScaled(previous, stepSize * -0.5);
+        }
+
+        State h = previous;
+        previous = derivative;
+        derivative = h;
+
+        return stepSize;
+    }
+
+    @Override
+    void reset()
+    {
+        first = true;
+    }
+}
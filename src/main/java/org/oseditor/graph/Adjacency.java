@@ -0,0 +1,105 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Undirected adjacency of a graph in compressed sparse row form: the neighbors of node i are
+ * <code>targets[offsets[i]]</code> to <code>targets[offsets[i + 1] - 1]</code>.
+ */
+final class Adjacency
+{
+    final int[] offsets;
+    final int[] targets;
+
+    private Adjacency(int[] offsets, int[] targets)
+    {
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Creates the adjacency of a graph, every edge connecting both of its nodes. The neighbors of a node are kept in
+     * the order of the edges.
+     */
+    static Adjacency undirected(CompactGraph graph)
+    {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        int[] offsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++)
+        {
+            offsets[graph.getEdgeFrom(e) + 1]++;
+            offsets[graph.getEdgeTo(e) + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++)
+        {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] targets = new int[offsets[nodeCount]];
+        int[] next = new int[nodeCount];
+        System.arraycopy(offsets, 0, next, 0, nodeCount);
+        for (int e = 0; e < edgeCount; e++)
+        {
+            int from = graph.getEdgeFrom(e);
+            int to = graph.getEdgeTo(e);
+            targets[next[from]++] = to;
+            targets[next[to]++] = from;
+        }
+
+        return new Adjacency(offsets, targets);
+    }
+
+    /**
+     * Numbers the connected components in the order of their lowest node index.
+     *
+     * @param component     receives the component of every node
+     * @return number of components
+     */
+    int components(int[] component)
+    {
+        int nodeCount = offsets.length - 1;
+        Arrays.fill(component, -1);
+
+        int[] queue = new int[nodeCount];
+        int count = 0;
+        for (int root = 0; root < nodeCount; root++)
+        {
+            if (component[root] >= 0)
+            {
+                continue;
+            }
+
+            component[root] = count;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            while (head < tail)
+            {
+                int node = queue[head++];
+                for (int k = offsets[node], end = offsets[node + 1]; k < end; k++)
+                {
+                    int to = targets[k];
+                    if (component[to] < 0)
+                    {
+                        component[to] = count;
+                        queue[tail++] = to;
+                    }
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    int degree(int node)
+    {
+        return offsets[node + 1] - offsets[node];
+    }
+
+    Neighbors neighbors(int node)
+    {
+        return new Neighbors(targets, offsets[node], offsets[node + 1]);
+    }
+}
@@ -0,0 +1,369 @@
+package org.oseditor.graph;
+
+/**
+ * Quad-tree over the node positions of a {@link State} used for the Barnes-Hut approximation of
+ * the repulsion forces.
+ *
+ * The tree is kept in flat arrays that are reused between builds, so rebuilding it on every
+ * evaluation does not allocate once the arrays have grown to the needed size. Once built,
+ * everything the traversal reads about a cell is copied next to each other into one record, so
+ * visiting a cell touches one or two cache lines instead of one per value.
+ */
+final class BarnesHutTree
+{
+    /**
+     * Maximum subdivision depth. Nodes that still share a cell at this depth are kept in a list
+     * in that leaf.
+     */
+    private static final int MAX_DEPTH = 48;
+
+    private static final int EMPTY = -1;
+    private static final int INTERNAL = -2;
+
+    /** offsets of the values in the record of a cell */
+    private static final int MASS_X = 0;
+    private static final int MASS_Y = 1;
+    private static final int MASS = 2;
+    private static final int CENTER_X = 3;
+    private static final int CENTER_Y = 4;
+    private static final int HALF_SIZE = 5;
+    private static final int RECORD = 6;
+
+    /** spreads the directions between coincident nodes */
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    /**
+     * Returns the direction in which a node is pushed away from another node at the same position. It only depends
+     * on the two indexes, the other node is pushed in the opposite direction.
+     *
+     * @param body      node index
+     * @param other     index of the coincident node
+     * @return angle in radians
+     */
+    static double separationAngle(int body, int other)
+    {
+        double angle = GOLDEN_ANGLE * (body + other);
+        return body < other ? angle : angle + Math.PI;
+    }
+
+    /**
+     * Calculates the magnitude of the repulsion at a given distance.
+     */
+    interface Repulsion
+    {
+        double force(double distance);
+    }
+
+    private int cellCount;
+
+    /** four child cell indexes per cell, 0 meaning no child (the root is never a child) */
+    private int[] children;
+    /** first body of a leaf, {@link #EMPTY} or {@link #INTERNAL} */
+    private int[] firstBody;
+    private double[] mass;
+    private double[] sumX;
+    private double[] sumY;
+    private double[] centerX;
+    private double[] centerY;
+    private double[] halfSize;
+
+    /** center of mass, mass, center and half the size of every cell, {@link #RECORD} values per cell */
+    private double[] records;
+
+    /** next body in the same leaf, -1 for the last body */
+    private int[] nextBody;
+
+    BarnesHutTree(int nodeCount)
+    {
+        int cells = Math.max(16, nodeCount * 2);
+        children = new int[cells * 4];
+        firstBody = new int[cells];
+        mass = new double[cells];
+        sumX = new double[cells];
+        sumY = new double[cells];
+        centerX = new double[cells];
+        centerY = new double[cells];
+        halfSize = new double[cells];
+        records = new double[cells * RECORD];
+
+        nextBody = new int[nodeCount];
+    }
+
+    /**
+     * Returns a stack big enough to walk the tree with {@link #accumulate}.
+     */
+    static int[] createStack()
+    {
+        return new int[MAX_DEPTH * 3 + 4];
+    }
+
+    /**
+     * Rebuilds the tree from the given interleaved x/y positions.
+     *
+     * @param xy        positions
+     * @param count     number of nodes
+     */
+    void build(double[] xy, int count)
+    {
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0, j = 0; i < count; i++)
+        {
+            double x = xy[j++];
+            double y = xy[j++];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        cellCount = 0;
+        int root = createCell((minX + maxX) / 2, (minY + maxY) / 2, Math.max(Math.max(maxX - minX, maxY - minY) / 2, 1e-9));
+
+        for (int i = 0; i < count; i++)
+        {
+            insert(root, i, xy[i * 2], xy[i * 2 + 1], xy);
+        }
+
+        if (records.length < cellCount * RECORD)
+        {
+            records = new double[firstBody.length * RECORD];
+        }
+        for (int cell = 0, record = 0; cell < cellCount; cell++, record += RECORD)
+        {
+            double m = mass[cell];
+            records[record + MASS_X] = sumX[cell] / m;
+            records[record + MASS_Y] = sumY[cell] / m;
+            records[record + MASS] = m;
+            records[record + CENTER_X] = centerX[cell];
+            records[record + CENTER_Y] = centerY[cell];
+            records[record + HALF_SIZE] = halfSize[cell];
+        }
+    }
+
+    private void insert(int cell, int body, double x, double y, double[] xy)
+    {
+        int depth = 0;
+        while (true)
+        {
+            mass[cell] += 1;
+            sumX[cell] += x;
+            sumY[cell] += y;
+
+            int first = firstBody[cell];
+            if (first == EMPTY)
+            {
+                firstBody[cell] = body;
+                nextBody[body] = -1;
+                return;
+            }
+
+            if (first != INTERNAL)
+            {
+                if (depth >= MAX_DEPTH)
+                {
+                    // (nearly) coincident nodes, keep them together in this leaf
+                    nextBody[body] = first;
+                    firstBody[cell] = body;
+                    return;
+                }
+
+                // split leaf: push down the existing bodies
+                firstBody[cell] = INTERNAL;
+                int current = first;
+                while (current >= 0)
+                {
+                    int next = nextBody[current];
+                    double cx = xy[current * 2];
+                    double cy = xy[current * 2 + 1];
+                    int child = childFor(cell, cx, cy);
+                    mass[child] += 1;
+                    sumX[child] += cx;
+                    sumY[child] += cy;
+                    nextBody[current] = firstBody[child];
+                    firstBody[child] = current;
+                    current = next;
+                }
+            }
+
+            cell = childFor(cell, x, y);
+            depth++;
+        }
+    }
+
+    private int childFor(int cell, double x, double y)
+    {
+        double cx = centerX[cell];
+        double cy = centerY[cell];
+
+        int quadrant = (x < cx ? 0 : 1) + (y < cy ? 0 : 2);
+        int slot = cell * 4 + quadrant;
+        int child = children[slot];
+        if (child == 0)
+        {
+            double h = halfSize[cell] / 2;
+            child = createCell(x < cx ? cx - h : cx + h, y < cy ? cy - h : cy + h, h);
+            children[slot] = child;
+        }
+        return child;
+    }
+
+    private int createCell(double x, double y, double size)
+    {
+        if (cellCount == firstBody.length)
+        {
+            grow();
+        }
+
+        int cell = cellCount++;
+        int slot = cell * 4;
+        children[slot] = 0;
+        children[slot + 1] = 0;
+        children[slot + 2] = 0;
+        children[slot + 3] = 0;
+        firstBody[cell] = EMPTY;
+        mass[cell] = 0;
+        sumX[cell] = 0;
+        sumY[cell] = 0;
+        centerX[cell] = x;
+        centerY[cell] = y;
+        halfSize[cell] = size;
+        return cell;
+    }
+
+    private void grow()
+    {
+        int cells = firstBody.length * 2;
+
+        int[] newChildren = new int[cells * 4];
+        System.arraycopy(children, 0, newChildren, 0, children.length);
+        children = newChildren;
+
+        firstBody = copyOf(firstBody, cells);
+        mass = copyOf(mass, cells);
+        sumX = copyOf(sumX, cells);
+        sumY = copyOf(sumY, cells);
+        centerX = copyOf(centerX, cells);
+        centerY = copyOf(centerY, cells);
+        halfSize = copyOf(halfSize, cells);
+    }
+
+    private static int[] copyOf(int[] array, int len)
+    {
+        int[] copy = new int[len];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    private static double[] copyOf(double[] array, int len)
+    {
+        double[] copy = new double[len];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    /**
+     * Adds the approximated repulsion of all other nodes onto the given node.
+     *
+     * @param body          node index
+     * @param xy            interleaved node positions the tree was built from
+     * @param thetaSquared  squared opening angle
+     * @param repulsion     repulsion magnitude function
+     * @param factor        factor to apply to the resulting force
+     * @param derivativeXY  interleaved derivative to add the force to
+     * @param stack         stack created by {@link #createStack()}
+     */
+    void accumulate(int body, double[] xy, double thetaSquared, Repulsion repulsion, double factor, double[] derivativeXY, int[] stack)
+    {
+        double px = xy[body * 2];
+        double py = xy[body * 2 + 1];
+
+        double fx = 0;
+        double fy = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0)
+        {
+            int cell = stack[--top];
+
+            int first = firstBody[cell];
+            if (first == EMPTY)
+            {
+                continue;
+            }
+
+            if (first == INTERNAL)
+            {
+                int record = cell * RECORD;
+                double m = records[record + MASS];
+                double dx = px - records[record + MASS_X];
+                double dy = py - records[record + MASS_Y];
+                double distSq = dx * dx + dy * dy;
+                double h = records[record + HALF_SIZE];
+                double size = h * 2;
+
+                // never summarize a cell that contains the node itself
+                boolean contains = Math.abs(px - records[record + CENTER_X]) <= h && Math.abs(py - records[record + CENTER_Y]) <= h;
+
+                if (!contains && size * size < thetaSquared * distSq)
+                {
+                    double distance = Math.sqrt(distSq);
+                    double f = m * repulsion.force(distance) / distance;
+                    fx += dx * f;
+                    fy += dy * f;
+                }
+                else
+                {
+                    int slot = cell * 4;
+                    for (int i = 0; i < 4; i++)
+                    {
+                        int child = children[slot + i];
+                        if (child != 0)
+                        {
+                            stack[top++] = child;
+                        }
+                    }
+                }
+            }
+            else
+            {
+                for (int other = first; other >= 0; other = nextBody[other])
+                {
+                    if (other == body)
+                    {
+                        continue;
+                    }
+
+                    double dx = px - xy[other * 2];
+                    double dy = py - xy[other * 2 + 1];
+
+                    double distance;
+                    if (dx == 0 && dy == 0)
+                    {
+                        // same tiny offset as the exact repulsion uses for coincident nodes
+                        double angle = separationAngle(body, other);
+                        dx = Math.cos(angle) / 100000;
+                        dy = Math.sin(angle) / 100000;
+                        distance = 0.00001;
+                    }
+                    else
+                    {
+                        distance = Math.sqrt(dx * dx + dy * dy);
+                    }
+
+                    double f = repulsion.force(distance) / distance;
+                    fx += dx * f;
+                    fy += dy * f;
+                }
+            }
+        }
+
+        derivativeXY[body * 2] += fx * factor;
+        derivativeXY[body * 2 + 1] += fy * factor;
+    }
+}
@@ -0,0 +1,68 @@
+package org.oseditor.graph;
+
+/**
+ * Keeps the upper triangle of a symmetric distance matrix in unsigned 8 bit entries.
+ */
+public final class ByteDistanceStore
+    implements DistanceStore
+{
+    static final int MAX_DISTANCE = 0xfe;
+
+    private static final int UNREACHABLE = 0xff;
+
+    private final byte[][] rows;
+
+    public ByteDistanceStore(int nodeCount)
+    {
+        rows = new byte[nodeCount][];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            rows[i] = new byte[nodeCount - 1 - i];
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return rows.length;
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        if (from == to)
+        {
+            return 0;
+        }
+
+        int value;
+        if (from > to)
+        {
+            value = rows[to][from - to - 1] & 0xff;
+        }
+        else
+        {
+            value = rows[from][to - from - 1] & 0xff;
+        }
+        return value == UNREACHABLE ? Integer.MAX_VALUE : value;
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        byte[] row = rows[from];
+        for (int i = 0, j = from + 1; i < row.length; i++, j++)
+        {
+            int distance = distances[j];
+            if (distance == Integer.MAX_VALUE)
+            {
+                distance = UNREACHABLE;
+            }
+            else if (distance > MAX_DISTANCE || distance < 0)
+            {
+                throw new DistanceOutOfRangeException(distance, MAX_DISTANCE);
+            }
+            row[i] = (byte) distance;
+        }
+    }
+}
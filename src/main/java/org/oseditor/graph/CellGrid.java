@@ -0,0 +1,196 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over the node positions of a {@link State} used for the repulsion of {@link RepulsionMode#CUTOFF}.
+ * The cells are at least as large as the cutoff distance, so all nodes within the cutoff of a node are in its own or
+ * one of the eight surrounding cells.
+ *
+ * The nodes are sorted into the cells with a counting sort into flat arrays that are reused between builds. Their
+ * positions are copied in the same order, so the nodes of neighbouring cells are read from one consecutive run of
+ * memory. If the nodes are spread far apart, the cells are enlarged so the grid never has more than a few cells per
+ * node.
+ */
+final class CellGrid
+{
+    private static final int CELLS_PER_NODE = 4;
+
+    private final int[] nodeCells;
+    private final int[] cellNodes;
+    private int[] cellStarts;
+
+    /** interleaved positions in the order of {@link #cellNodes} */
+    private final double[] cellXY;
+    /** index of every node in {@link #cellNodes} */
+    private final int[] nodeSlots;
+
+    private double minX;
+    private double minY;
+    private double cellSize;
+    private int columns;
+    private int rows;
+
+    CellGrid(int nodeCount)
+    {
+        nodeCells = new int[nodeCount];
+        cellNodes = new int[nodeCount];
+        cellStarts = new int[16];
+        cellXY = new double[nodeCount * 2];
+        nodeSlots = new int[nodeCount];
+    }
+
+    /**
+     * Rebuilds the grid from the given interleaved x/y positions.
+     *
+     * @param xy        positions
+     * @param count     number of nodes
+     * @param cutoff    distance beyond which nodes don't interact
+     */
+    void build(double[] xy, int count, double cutoff)
+    {
+        minX = Double.POSITIVE_INFINITY;
+        minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0, j = 0; i < count; i++)
+        {
+            double x = xy[j++];
+            double y = xy[j++];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        double width = maxX - minX;
+        double height = maxY - minY;
+        double maxCells = (double) CELLS_PER_NODE * count + 16;
+        cellSize = cutoff;
+        if ((width / cellSize + 1) * (height / cellSize + 1) > maxCells)
+        {
+            cellSize = Math.max(cellSize, Math.max(width, height) / Math.sqrt(maxCells) * 2);
+        }
+        columns = Math.max(1, (int) (width / cellSize) + 1);
+        rows = Math.max(1, (int) (height / cellSize) + 1);
+
+        int cellCount = columns * rows;
+        if (cellStarts.length < cellCount + 1)
+        {
+            cellStarts = new int[Math.max(cellCount + 1, cellStarts.length * 2)];
+        }
+        Arrays.fill(cellStarts, 0, cellCount + 1, 0);
+
+        for (int i = 0; i < count; i++)
+        {
+            int cell = cell(column(xy[i * 2]), row(xy[i * 2 + 1]));
+            nodeCells[i] = cell;
+            cellStarts[cell + 1]++;
+        }
+        for (int c = 0; c < cellCount; c++)
+        {
+            cellStarts[c + 1] += cellStarts[c];
+        }
+        for (int i = 0; i < count; i++)
+        {
+            int cell = nodeCells[i];
+            int slot = cellStarts[cell]++;
+            cellNodes[slot] = i;
+            nodeSlots[i] = slot;
+            cellXY[slot * 2] = xy[i * 2];
+            cellXY[slot * 2 + 1] = xy[i * 2 + 1];
+        }
+        // the sort advanced every start to the start of the next cell
+        for (int c = cellCount; c > 0; c--)
+        {
+            cellStarts[c] = cellStarts[c - 1];
+        }
+        cellStarts[0] = 0;
+    }
+
+    private int column(double x)
+    {
+        return Math.min(columns - 1, Math.max(0, (int) ((x - minX) / cellSize)));
+    }
+
+    private int row(double y)
+    {
+        return Math.min(rows - 1, Math.max(0, (int) ((y - minY) / cellSize)));
+    }
+
+    private int cell(int column, int row)
+    {
+        return row * columns + column;
+    }
+
+    /**
+     * Adds the repulsion of all nodes within the cutoff of the given node to its derivative.
+     *
+     * @param body          node index
+     * @param xy            positions the grid was built from
+     * @param cutoff        distance beyond which nodes don't interact
+     * @param repulsion     repulsion function
+     * @param factor        factor for the forces (time delta)
+     * @param derivativeXY  derivative to add to
+     */
+    void accumulate(int body, double[] xy, double cutoff, BarnesHutTree.Repulsion repulsion, double factor, double[] derivativeXY)
+    {
+        double px = xy[body * 2];
+        double py = xy[body * 2 + 1];
+        double cutoffSquared = cutoff * cutoff;
+
+        int self = nodeSlots[body];
+        int cell = nodeCells[body];
+        int column = cell % columns;
+        int row = cell / columns;
+
+        double fx = 0;
+        double fy = 0;
+
+        for (int r = Math.max(0, row - 1), rowEnd = Math.min(rows - 1, row + 1); r <= rowEnd; r++)
+        {
+            int first = cell(Math.max(0, column - 1), r);
+            int last = cell(Math.min(columns - 1, column + 1), r);
+
+            // the cells of a row are next to each other in the sorted nodes
+            for (int k = cellStarts[first], end = cellStarts[last + 1]; k < end; k++)
+            {
+                if (k == self)
+                {
+                    continue;
+                }
+
+                double dx = px - cellXY[k * 2];
+                double dy = py - cellXY[k * 2 + 1];
+                double distSq = dx * dx + dy * dy;
+
+                if (distSq > cutoffSquared)
+                {
+                    continue;
+                }
+
+                double distance;
+                if (distSq == 0)
+                {
+                    // pushed apart like coincident nodes in the Barnes-Hut tree
+                    double angle = BarnesHutTree.separationAngle(body, cellNodes[k]);
+                    dx = Math.cos(angle) / 100000;
+                    dy = Math.sin(angle) / 100000;
+                    distance = 0.00001;
+                }
+                else
+                {
+                    distance = Math.sqrt(distSq);
+                }
+
+                double f = repulsion.force(distance) / distance;
+                fx += dx * f;
+                fy += dy * f;
+            }
+        }
+
+        derivativeXY[body * 2] += fx * factor;
+        derivativeXY[body * 2 + 1] += fy * factor;
+    }
+}
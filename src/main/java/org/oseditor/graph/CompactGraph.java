@@ -0,0 +1,506 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Graph held in flat arrays indexed by node. Nodes are sorted by id, so the index of a node is the index
+ * {@link GraphLayout} uses for it.
+ *
+ * {@link GraphNode} objects are only created when asked for, e.g. by a {@link DistanceFunction}. Graphs created
+ * from a {@link DirectedGraph} keep its nodes, so positions written back by {@link GraphLayout#update()} end up
+ * in the original nodes.
+ */
+public class CompactGraph
+{
+    private final String[] ids;
+
+    /** interleaved x/y */
+    private final double[] positions;
+
+    /** interleaved width/height */
+    private final double[] sizes;
+
+    private final int[] edgeFrom;
+    private final int[] edgeTo;
+
+    private final AtomicReferenceArray<GraphNode> nodes;
+
+    /**
+     * Creates a graph from per node arrays in any order. The graph keeps the arrays it is given.
+     *
+     * @param ids           node ids, must be unique
+     * @param positions     interleaved x/y positions of the nodes or <code>null</code> to start at the origin
+     * @param sizes         interleaved width/height of the nodes or <code>null</code>
+     * @param edgeFrom      start node index of every edge
+     * @param edgeTo        end node index of every edge
+     */
+    public CompactGraph(String[] ids, double[] positions, double[] sizes, int[] edgeFrom, int[] edgeTo)
+    {
+        this(ids, positions, sizes, edgeFrom, edgeTo, null);
+    }
+
+    private CompactGraph(String[] ids, double[] positions, double[] sizes, int[] edgeFrom, int[] edgeTo, GraphNode[] graphNodes)
+    {
+        if (ids == null)
+        {
+            throw new IllegalArgumentException("ids can't be null");
+        }
+        if (edgeFrom == null || edgeTo == null || edgeFrom.length != edgeTo.length)
+        {
+            throw new IllegalArgumentException("edgeFrom and edgeTo must have the same length");
+        }
+
+        int count = ids.length;
+        positions = positions != null ? positions : new double[count * 2];
+        sizes = sizes != null ? sizes : new double[count * 2];
+        if (positions.length != count * 2 || sizes.length != count * 2)
+        {
+            throw new IllegalArgumentException("positions and sizes need two values per node");
+        }
+
+        String[] sorted = ids.clone();
+        Arrays.sort(sorted);
+
+        int[] newIndex = new int[count];
+        boolean identity = true;
+        for (int i = 0; i < count; i++)
+        {
+            if (i > 0 && sorted[i].equals(sorted[i - 1]))
+            {
+                throw new IllegalArgumentException("Duplicate node id '" + sorted[i] + "'");
+            }
+
+            int index = Arrays.binarySearch(sorted, ids[i]);
+            newIndex[i] = index;
+            identity &= index == i;
+        }
+
+        this.ids = sorted;
+        this.edgeFrom = edgeFrom;
+        this.edgeTo = edgeTo;
+
+        if (identity)
+        {
+            this.positions = positions;
+            this.sizes = sizes;
+        }
+        else
+        {
+            this.positions = new double[count * 2];
+            this.sizes = new double[count * 2];
+            for (int i = 0; i < count; i++)
+            {
+                int j = newIndex[i];
+                this.positions[j * 2] = positions[i * 2];
+                this.positions[j * 2 + 1] = positions[i * 2 + 1];
+                this.sizes[j * 2] = sizes[i * 2];
+                this.sizes[j * 2 + 1] = sizes[i * 2 + 1];
+            }
+        }
+
+        for (int e = 0; e < edgeFrom.length; e++)
+        {
+            edgeFrom[e] = newIndex[checkIndex(edgeFrom[e], count)];
+            edgeTo[e] = newIndex[checkIndex(edgeTo[e], count)];
+        }
+
+        this.nodes = new AtomicReferenceArray<GraphNode>(count);
+        if (graphNodes != null)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                nodes.set(newIndex[i], graphNodes[i]);
+            }
+        }
+    }
+
+    private static int checkIndex(int index, int count)
+    {
+        if (index < 0 || index >= count)
+        {
+            throw new NodeNotFoundException("No node with the index " + index + " exists.");
+        }
+        return index;
+    }
+
+    /**
+     * Creates a compact graph for the given graph. The graph keeps the {@link GraphNode}s of the given graph.
+     */
+    public static CompactGraph from(DirectedGraph data)
+    {
+        if (data == null)
+        {
+            throw new IllegalArgumentException("data can't be null");
+        }
+
+        Map<String, GraphNode> nodeMap = data.getNodes();
+        int count = nodeMap.size();
+
+        String[] ids = nodeMap.keySet().toArray(new String[count]);
+        Arrays.sort(ids);
+
+        GraphNode[] graphNodes = new GraphNode[count];
+        double[] positions = new double[count * 2];
+        double[] sizes = new double[count * 2];
+        for (int i = 0; i < count; i++)
+        {
+            GraphNode node = nodeMap.get(ids[i]);
+            graphNodes[i] = node;
+            positions[i * 2] = node.getX();
+            positions[i * 2 + 1] = node.getY();
+            sizes[i * 2] = node.getWidth();
+            sizes[i * 2 + 1] = node.getHeight();
+        }
+
+        List<Edge> edges = data.getEdges();
+        int edgeCount = edges != null ? edges.size() : 0;
+        int[] edgeFrom = new int[edgeCount];
+        int[] edgeTo = new int[edgeCount];
+        for (int e = 0; e < edgeCount; e++)
+        {
+            Edge edge = edges.get(e);
+            edgeFrom[e] = findIndex(ids, edge.getFrom());
+            edgeTo[e] = findIndex(ids, edge.getTo());
+        }
+
+        return new CompactGraph(ids, positions, sizes, edgeFrom, edgeTo, graphNodes);
+    }
+
+    private static int findIndex(String[] ids, String id)
+    {
+        int i = Arrays.binarySearch(ids, id);
+        if (i < 0)
+        {
+            throw new NodeNotFoundException("No node with the id '" + id + "' exists.");
+        }
+        return i;
+    }
+
+    /**
+     * Returns a copy of the graph with an additional node at the position of the given node. The copy keeps the
+     * node.
+     */
+    CompactGraph withNode(GraphNode node)
+    {
+        int count = ids.length;
+        int index = Arrays.binarySearch(ids, node.getId());
+        if (index >= 0)
+        {
+            throw new IllegalArgumentException("Duplicate node id '" + node.getId() + "'");
+        }
+        index = -index - 1;
+
+        String[] newIds = new String[count + 1];
+        double[] newPositions = new double[(count + 1) * 2];
+        double[] newSizes = new double[(count + 1) * 2];
+        GraphNode[] newNodes = new GraphNode[count + 1];
+        for (int i = 0, j = 0; i <= count; i++)
+        {
+            if (i == index)
+            {
+                newIds[i] = node.getId();
+                newPositions[i * 2] = node.getX();
+                newPositions[i * 2 + 1] = node.getY();
+                newSizes[i * 2] = node.getWidth();
+                newSizes[i * 2 + 1] = node.getHeight();
+                newNodes[i] = node;
+            }
+            else
+            {
+                copyNode(j++, newIds, newPositions, newSizes, newNodes, i);
+            }
+        }
+
+        int[] newFrom = edgeFrom.clone();
+        int[] newTo = edgeTo.clone();
+        for (int e = 0; e < newFrom.length; e++)
+        {
+            if (newFrom[e] >= index)
+            {
+                newFrom[e]++;
+            }
+            if (newTo[e] >= index)
+            {
+                newTo[e]++;
+            }
+        }
+
+        return new CompactGraph(newIds, newPositions, newSizes, newFrom, newTo, newNodes);
+    }
+
+    /**
+     * Returns a copy of the graph without the given node and its edges.
+     */
+    CompactGraph withoutNode(int index)
+    {
+        int count = ids.length;
+
+        String[] newIds = new String[count - 1];
+        double[] newPositions = new double[(count - 1) * 2];
+        double[] newSizes = new double[(count - 1) * 2];
+        GraphNode[] newNodes = new GraphNode[count - 1];
+        for (int i = 0, j = 0; i < count; i++)
+        {
+            if (i != index)
+            {
+                copyNode(i, newIds, newPositions, newSizes, newNodes, j++);
+            }
+        }
+
+        int edgeCount = 0;
+        for (int e = 0; e < edgeFrom.length; e++)
+        {
+            if (edgeFrom[e] != index && edgeTo[e] != index)
+            {
+                edgeCount++;
+            }
+        }
+
+        int[] newFrom = new int[edgeCount];
+        int[] newTo = new int[edgeCount];
+        for (int e = 0, f = 0; e < edgeFrom.length; e++)
+        {
+            int from = edgeFrom[e];
+            int to = edgeTo[e];
+            if (from != index && to != index)
+            {
+                newFrom[f] = from > index ? from - 1 : from;
+                newTo[f] = to > index ? to - 1 : to;
+                f++;
+            }
+        }
+
+        return new CompactGraph(newIds, newPositions, newSizes, newFrom, newTo, newNodes);
+    }
+
+    /**
+     * Returns a copy of the graph with an additional edge.
+     */
+    CompactGraph withEdge(int from, int to)
+    {
+        checkIndex(from, ids.length);
+        checkIndex(to, ids.length);
+
+        int count = edgeFrom.length;
+        int[] newFrom = Arrays.copyOf(edgeFrom, count + 1);
+        int[] newTo = Arrays.copyOf(edgeTo, count + 1);
+        newFrom[count] = from;
+        newTo[count] = to;
+
+        return copyWithEdges(newFrom, newTo);
+    }
+
+    /**
+     * Returns a copy of the graph without the given edge.
+     */
+    CompactGraph withoutEdge(int edge)
+    {
+        int count = edgeFrom.length;
+        int[] newFrom = new int[count - 1];
+        int[] newTo = new int[count - 1];
+        System.arraycopy(edgeFrom, 0, newFrom, 0, edge);
+        System.arraycopy(edgeFrom, edge + 1, newFrom, edge, count - edge - 1);
+        System.arraycopy(edgeTo, 0, newTo, 0, edge);
+        System.arraycopy(edgeTo, edge + 1, newTo, edge, count - edge - 1);
+
+        return copyWithEdges(newFrom, newTo);
+    }
+
+    /**
+     * Returns the first edge connecting the given nodes in either direction.
+     *
+     * @return edge index or -1
+     */
+    int findEdge(int a, int b)
+    {
+        for (int e = 0; e < edgeFrom.length; e++)
+        {
+            if ((edgeFrom[e] == a && edgeTo[e] == b) || (edgeFrom[e] == b && edgeTo[e] == a))
+            {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Splits the graph into one graph per component. Nodes keep their order and their {@link GraphNode}s.
+     *
+     * @param component         component of every node
+     * @param componentCount    number of components
+     */
+    CompactGraph[] split(int[] component, int componentCount)
+    {
+        int count = ids.length;
+        int[] nodeCounts = new int[componentCount];
+        int[] newIndex = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            newIndex[i] = nodeCounts[component[i]]++;
+        }
+        int[] edgeCounts = new int[componentCount];
+        for (int e = 0; e < edgeFrom.length; e++)
+        {
+            edgeCounts[component[edgeFrom[e]]]++;
+        }
+
+        String[][] newIds = new String[componentCount][];
+        double[][] newPositions = new double[componentCount][];
+        double[][] newSizes = new double[componentCount][];
+        GraphNode[][] newNodes = new GraphNode[componentCount][];
+        int[][] newFrom = new int[componentCount][];
+        int[][] newTo = new int[componentCount][];
+        for (int c = 0; c < componentCount; c++)
+        {
+            newIds[c] = new String[nodeCounts[c]];
+            newPositions[c] = new double[nodeCounts[c] * 2];
+            newSizes[c] = new double[nodeCounts[c] * 2];
+            newNodes[c] = new GraphNode[nodeCounts[c]];
+            newFrom[c] = new int[edgeCounts[c]];
+            newTo[c] = new int[edgeCounts[c]];
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            int c = component[i];
+            copyNode(i, newIds[c], newPositions[c], newSizes[c], newNodes[c], newIndex[i]);
+        }
+        Arrays.fill(edgeCounts, 0);
+        for (int e = 0; e < edgeFrom.length; e++)
+        {
+            int c = component[edgeFrom[e]];
+            newFrom[c][edgeCounts[c]] = newIndex[edgeFrom[e]];
+            newTo[c][edgeCounts[c]] = newIndex[edgeTo[e]];
+            edgeCounts[c]++;
+        }
+
+        CompactGraph[] graphs = new CompactGraph[componentCount];
+        for (int c = 0; c < componentCount; c++)
+        {
+            graphs[c] = new CompactGraph(newIds[c], newPositions[c], newSizes[c], newFrom[c], newTo[c], newNodes[c]);
+        }
+        return graphs;
+    }
+
+    private CompactGraph copyWithEdges(int[] newFrom, int[] newTo)
+    {
+        int count = ids.length;
+        String[] newIds = new String[count];
+        double[] newPositions = new double[count * 2];
+        double[] newSizes = new double[count * 2];
+        GraphNode[] newNodes = new GraphNode[count];
+        for (int i = 0; i < count; i++)
+        {
+            copyNode(i, newIds, newPositions, newSizes, newNodes, i);
+        }
+        return new CompactGraph(newIds, newPositions, newSizes, newFrom, newTo, newNodes);
+    }
+
+    private void copyNode(int index, String[] newIds, double[] newPositions, double[] newSizes, GraphNode[] newNodes, int newIndex)
+    {
+        newIds[newIndex] = ids[index];
+        newPositions[newIndex * 2] = positions[index * 2];
+        newPositions[newIndex * 2 + 1] = positions[index * 2 + 1];
+        newSizes[newIndex * 2] = sizes[index * 2];
+        newSizes[newIndex * 2 + 1] = sizes[index * 2 + 1];
+        newNodes[newIndex] = nodes.get(index);
+    }
+
+    public int getNodeCount()
+    {
+        return ids.length;
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeFrom.length;
+    }
+
+    /**
+     * Returns the index of the node with the given id.
+     *
+     * @throws NodeNotFoundException if there is no such node
+     */
+    public int findNodeIndex(String id)
+    {
+        return findIndex(ids, id);
+    }
+
+    public String getId(int index)
+    {
+        return ids[index];
+    }
+
+    public double getX(int index)
+    {
+        return positions[index * 2];
+    }
+
+    public double getY(int index)
+    {
+        return positions[index * 2 + 1];
+    }
+
+    public double getWidth(int index)
+    {
+        return sizes[index * 2];
+    }
+
+    public double getHeight(int index)
+    {
+        return sizes[index * 2 + 1];
+    }
+
+    public int getEdgeFrom(int edge)
+    {
+        return edgeFrom[edge];
+    }
+
+    public int getEdgeTo(int edge)
+    {
+        return edgeTo[edge];
+    }
+
+    /**
+     * Sets the position of a node, including its {@link GraphNode} if it has been created.
+     */
+    public void setPosition(int index, double x, double y)
+    {
+        positions[index * 2] = x;
+        positions[index * 2 + 1] = y;
+
+        GraphNode node = nodes.get(index);
+        if (node != null)
+        {
+            node.setX(x);
+            node.setY(y);
+        }
+    }
+
+    /**
+     * Returns the {@link GraphNode} for the given index, creating it on first access.
+     */
+    public GraphNode getNode(int index)
+    {
+        GraphNode node = nodes.get(index);
+        if (node == null)
+        {
+            GraphNode created = new GraphNode(ids[index], getWidth(index), getHeight(index));
+            created.setX(getX(index));
+            created.setY(getY(index));
+
+            if (nodes.compareAndSet(index, null, created))
+            {
+                node = created;
+            }
+            else
+            {
+                node = nodes.get(index);
+            }
+        }
+        return node;
+    }
+}
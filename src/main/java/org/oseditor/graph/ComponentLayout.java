@@ -0,0 +1,209 @@
+package org.oseditor.graph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lays out every connected component of a graph on its own and packs the results into rows. Components don't
+ * interact, so each layout only pays for the distances and forces within its component instead of the whole graph.
+ *
+ * With a {@link GraphLayoutConfig#getParallelism() parallelism} above 1, the components are laid out in parallel,
+ * largest first, and each component layout runs on a single thread. A graph with a single component gets one layout
+ * with the configuration as is.
+ */
+public class ComponentLayout
+{
+    private static Logger log = LoggerFactory.getLogger(ComponentLayout.class);
+
+    private final GraphLayoutConfig config;
+
+    private double spacing = 1;
+
+    public ComponentLayout(GraphLayoutConfig config)
+    {
+        if (config == null)
+        {
+            throw new IllegalArgumentException("config can't be null");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Sets the gap between the bounding boxes of the components, in multiples of the average edge distance.
+     */
+    public ComponentLayout withSpacing(double spacing)
+    {
+        this.spacing = spacing;
+        return this;
+    }
+
+    public List<GraphLayout> layout(DirectedGraph data)
+    {
+        return layout(CompactGraph.from(data));
+    }
+
+    /**
+     * Lays out all components of the given graph and moves them next to each other. Call {@link GraphLayout#update()}
+     * on every result to write the positions back into the graph.
+     *
+     * @return layouts of the components, in the order of their first node
+     */
+    public List<GraphLayout> layout(CompactGraph graph)
+    {
+        int[] component = new int[graph.getNodeCount()];
+        int componentCount = Adjacency.undirected(graph).components(component);
+
+        if (componentCount <= 1)
+        {
+            GraphLayout layout = new GraphLayoutBuilder(config).buildFor(graph);
+            layout.run();
+            return Collections.singletonList(layout);
+        }
+
+        final CompactGraph[] graphs = graph.split(component, componentCount);
+        final GraphLayout[] layouts = new GraphLayout[componentCount];
+        final GraphLayoutBuilder builder = new GraphLayoutBuilder(config).withParallelism(1);
+
+        // largest first, so no worker is left with a large component at the end
+        final Integer[] order = new Integer[componentCount];
+        for (int c = 0; c < componentCount; c++)
+        {
+            order[c] = c;
+        }
+        Arrays.sort(order, new Comparator<Integer>()
+        {
+            @Override
+            public int compare(Integer a, Integer b)
+            {
+                return graphs[b].getNodeCount() - graphs[a].getNodeCount();
+            }
+        });
+
+        int parallelism = Math.min(config.getParallelism(), componentCount);
+        if (parallelism > 1)
+        {
+            final AtomicInteger next = new AtomicInteger();
+            ParallelTasks.run(executor(parallelism), parallelism, new ParallelTasks.Task()
+            {
+                @Override
+                public void run(int worker)
+                {
+                    int i;
+                    while ((i = next.getAndIncrement()) < order.length)
+                    {
+                        int c = order[i];
+                        layouts[c] = builder.buildFor(graphs[c]);
+                        layouts[c].run();
+                    }
+                }
+            });
+        }
+        else
+        {
+            for (int c : order)
+            {
+                layouts[c] = builder.buildFor(graphs[c]);
+                layouts[c].run();
+            }
+        }
+
+        pack(layouts, order);
+        log.debug("Laid out {} components", componentCount);
+
+        return new ArrayList<GraphLayout>(Arrays.asList(layouts));
+    }
+
+    private ExecutorService executor(int parallelism)
+    {
+        ExecutorService executor = config.getExecutor();
+        // fork join worker threads are daemon threads and end when idle, so the pool needs no shutdown
+        return executor != null ? executor : new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Shelf packing: the components are placed left to right in order of descending size, in rows about as wide as
+     * the square root of their total area.
+     *
+     * @param layouts   layouts of the components
+     * @param order     component indexes by descending node count
+     */
+    private void pack(GraphLayout[] layouts, Integer[] order)
+    {
+        double edgeDistance = 0;
+        for (GraphLayout layout : layouts)
+        {
+            edgeDistance = Math.max(edgeDistance, layout.getAverageEdgeDistance());
+        }
+        double gap = spacing * edgeDistance;
+
+        AABB[] boxes = new AABB[layouts.length];
+        double area = 0;
+        double maxWidth = 0;
+        for (int c = 0; c < layouts.length; c++)
+        {
+            boxes[c] = bounds(layouts[c]);
+            area += (boxes[c].getWidth() + gap) * (boxes[c].getHeight() + gap);
+            maxWidth = Math.max(maxWidth, boxes[c].getWidth() + gap);
+        }
+        double rowWidth = Math.max(maxWidth, Math.sqrt(area));
+
+        double x = 0;
+        double y = 0;
+        double rowHeight = 0;
+        for (int c : order)
+        {
+            AABB box = boxes[c];
+            if (x > 0 && x + box.getWidth() + gap > rowWidth)
+            {
+                x = 0;
+                y += rowHeight;
+                rowHeight = 0;
+            }
+
+            double[] stateXY = layouts[c].getInternalState().getData();
+            double dx = x - box.getX();
+            double dy = y - box.getY();
+            for (int i = 0; i < stateXY.length; i += 2)
+            {
+                stateXY[i] += dx;
+                stateXY[i + 1] += dy;
+            }
+
+            x += box.getWidth() + gap;
+            rowHeight = Math.max(rowHeight, box.getHeight() + gap);
+        }
+    }
+
+    /**
+     * Returns the bounding box of the nodes of a layout, including their sizes.
+     */
+    private static AABB bounds(GraphLayout layout)
+    {
+        double[] stateXY = layout.getInternalState().getData();
+        CompactGraph graph = layout.getGraph();
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < layout.nodeCount; i++)
+        {
+            double halfWidth = graph.getWidth(i) / 2;
+            double halfHeight = graph.getHeight(i) / 2;
+            minX = Math.min(minX, stateXY[i * 2] - halfWidth);
+            minY = Math.min(minY, stateXY[i * 2 + 1] - halfHeight);
+            maxX = Math.max(maxX, stateXY[i * 2] + halfWidth);
+            maxY = Math.max(maxY, stateXY[i * 2 + 1] + halfHeight);
+        }
+        return new AABB(minX, minY, maxX - minX, maxY - minY);
+    }
+}
@@ -0,0 +1,20 @@
+package org.oseditor.graph;
+
+/**
+ * Measure of the node movement that is compared to the convergence tolerance.
+ *
+ * @see GraphLayoutConfig#getConvergenceCriterion()
+ * @see GraphLayout#run()
+ */
+public enum ConvergenceCriterion
+{
+    /**
+     * Largest distance a single node moved in the last step.
+     */
+    MAX_DISPLACEMENT,
+
+    /**
+     * Root mean square of the distances all nodes moved in the last step.
+     */
+    RMS_DISPLACEMENT
+}
@@ -0,0 +1,167 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Single source shortest path search that stops at the cutoff of a {@link SparseDistanceStore}. A search only touches
+ * the nodes within the cutoff, so it takes time in the size of that neighbourhood instead of the whole graph. Each
+ * search instance owns its buffers, so several instances can run in parallel.
+ *
+ * Pruning at the cutoff needs paths that never get shorter when extended, so the distance factor must be at least 1.
+ */
+final class CutoffSearch
+{
+    private final GraphLayout layout;
+    private final int[] offsets;
+    private final int[] targets;
+    private final double distanceFactor;
+    private final int cutoff;
+
+    private final int[] dist;
+    private int[] touched = new int[16];
+    private int touchedCount;
+
+    /** entries of distance in the upper and node in the lower half, stale entries are skipped when popped */
+    private long[] heap = new long[16];
+    private int heapSize;
+
+    private int[] rowTargets = new int[16];
+    private int[] rowValues = new int[16];
+
+    CutoffSearch(GraphLayout layout, int cutoff)
+    {
+        this.layout = layout;
+        this.offsets = layout.edges.offsets;
+        this.targets = layout.edges.targets;
+        this.distanceFactor = layout.config.getDistanceFactor();
+        this.cutoff = cutoff;
+
+        dist = new int[layout.nodeCount];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Searches the distances from the given node and stores the ones to nodes with a higher index.
+     *
+     * @param startIndex    index of the source node
+     * @param store         store to write the row to
+     */
+    void search(int startIndex, SparseDistanceStore store)
+    {
+        for (int i = 0; i < touchedCount; i++)
+        {
+            dist[touched[i]] = Integer.MAX_VALUE;
+        }
+        touchedCount = 0;
+        heapSize = 0;
+
+        touch(startIndex, 0);
+        push(0, startIndex);
+
+        while (heapSize > 0)
+        {
+            long entry = pop();
+            int distance = (int) (entry >>> 32);
+            int index = (int) entry;
+            if (distance > dist[index])
+            {
+                continue;
+            }
+
+            for (int k = offsets[index], end = offsets[index + 1]; k < end; k++)
+            {
+                int toIdx = targets[k];
+                int newDistance = DijkstraSearch.pathDistance(distance, distanceFactor, layout.getEdgeDistance(index, k));
+                if (newDistance <= cutoff && newDistance < dist[toIdx])
+                {
+                    touch(toIdx, newDistance);
+                    push(newDistance, toIdx);
+                }
+            }
+        }
+
+        int count = 0;
+        for (int i = 0; i < touchedCount; i++)
+        {
+            if (touched[i] > startIndex)
+            {
+                if (count == rowTargets.length)
+                {
+                    rowTargets = Arrays.copyOf(rowTargets, count * 2);
+                    rowValues = Arrays.copyOf(rowValues, count * 2);
+                }
+                rowTargets[count++] = touched[i];
+            }
+        }
+        Arrays.sort(rowTargets, 0, count);
+        for (int i = 0; i < count; i++)
+        {
+            rowValues[i] = dist[rowTargets[i]];
+        }
+
+        store.setRow(startIndex, rowTargets, rowValues, count);
+    }
+
+    private void touch(int index, int distance)
+    {
+        if (dist[index] == Integer.MAX_VALUE)
+        {
+            if (touchedCount == touched.length)
+            {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
+            }
+            touched[touchedCount++] = index;
+        }
+        dist[index] = distance;
+    }
+
+    private void push(int distance, int index)
+    {
+        if (heapSize == heap.length)
+        {
+            heap = Arrays.copyOf(heap, heapSize * 2);
+        }
+
+        long entry = ((long) distance << 32) | index;
+        int i = heapSize++;
+        while (i > 0)
+        {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry)
+            {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    private long pop()
+    {
+        long min = heap[0];
+        long last = heap[--heapSize];
+
+        int i = 0;
+        int half = heapSize >>> 1;
+        while (i < half)
+        {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child])
+            {
+                child++;
+            }
+            if (last <= heap[child])
+            {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        if (heapSize > 0)
+        {
+            heap[i] = last;
+        }
+        return min;
+    }
+}
@@ -0,0 +1,33 @@
+package org.oseditor.graph;
+
+/**
+ * Keeps all distances in a full <code>int</code> matrix.
+ */
+public final class DenseDistanceStore
+    implements DistanceStore
+{
+    private final int[][] distances;
+
+    public DenseDistanceStore(int nodeCount)
+    {
+        distances = new int[nodeCount][];
+    }
+
+    @Override
+    public int size()
+    {
+        return distances.length;
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        return distances[from][to];
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        this.distances[from] = distances.clone();
+    }
+}
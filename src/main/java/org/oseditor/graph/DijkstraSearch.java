@@ -0,0 +1,112 @@
+package org.oseditor.graph;
+
+/**
+ * Single source shortest path search over the edges of a {@link GraphLayout}. Each search instance owns its queue
+ * and distance row, so several instances can run in parallel.
+ */
+final class DijkstraSearch
+{
+    private final GraphLayout layout;
+    private final int[] offsets;
+    private final int[] targets;
+    private final IntPriorityQueue queue;
+    private final int[] dist;
+    private final double distanceFactor;
+
+    DijkstraSearch(GraphLayout layout, IntPriorityQueue queue)
+    {
+        this.layout = layout;
+        this.offsets = layout.edges.offsets;
+        this.targets = layout.edges.targets;
+        this.queue = queue;
+        this.dist = new int[layout.nodeCount];
+        this.distanceFactor = layout.config.getDistanceFactor();
+    }
+
+    /**
+     * Calculates the distances from the given node to all other nodes.
+     *
+     * @param startIndex    index of the source node
+     * @param known         store containing the distances from all nodes with an index lower than the source node, or
+     *                      <code>null</code>
+     * @return distances indexed by node index. The array is reused by the next search.
+     */
+    int[] search(int startIndex, DistanceStore known)
+    {
+        fillQueue(startIndex, known);
+
+        while (!queue.isEmpty())
+        {
+            int index = queue.popMinimalValue();
+
+            if (dist[index] == Integer.MAX_VALUE)
+            {
+                // all remaining vertices are inaccessible from source
+                break;
+            }
+
+            for (int k = offsets[index], end = offsets[index + 1]; k < end; k++)
+            {
+                int toIdx = targets[k];
+                int newDistance = pathDistance(dist[index], distanceFactor, layout.getEdgeDistance(index, k));
+                int oldDistance = dist[toIdx];
+                if (newDistance < oldDistance)
+                {
+                    dist[toIdx] = newDistance;
+                    queue.lowerPriority(toIdx, oldDistance, newDistance);
+                }
+            }
+        }
+
+        return dist;
+    }
+
+    /**
+     * Returns the length of a path extended by an edge.
+     *
+     * @param distance          length of the path to the start node of the edge
+     * @param distanceFactor    distance factor of the layout
+     * @param edgeDistance      distance of the edge
+     */
+    static int pathDistance(int distance, double distanceFactor, int edgeDistance)
+    {
+        return (int) ((distance * distanceFactor) + edgeDistance);
+    }
+
+    private void fillQueue(int startIndex, DistanceStore known)
+    {
+        int nodeCount = dist.length;
+
+        queue.clear();
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int distance;
+            if (i == startIndex)
+            {
+                distance = 0;
+            }
+            else
+            {
+                // shortcut: if we already calculated the distances from a node,
+                // we can just look up the distance to the current node
+                // this doesn't reduce complexity, but at least minimizes queue
+                // operations at minimal cost
+                //
+                // we have calculated the distance because when the node index is smaller
+                // since we calculate in increasing node order
+                if (known != null && i < startIndex)
+                {
+                    distance = known.getDistance(i, startIndex);
+                }
+                else
+                {
+                    // Unknown distance function from source to v
+                    distance = Integer.MAX_VALUE;
+                }
+            }
+
+            dist[i] = distance;
+            queue.add(distance, i);
+        }
+    }
+}
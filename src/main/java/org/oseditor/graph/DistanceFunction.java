@@ -1,7 +1,5 @@
 package org.oseditor.graph;
 
-import java.util.List;
-
 /**
  * Calculates the ideal distance between node a and node b.
  *
@@ -9,5 +7,14 @@ import java.util.List;
  */
 public interface DistanceFunction
 {
-    int getDistance(GraphNode a, GraphNode b, List<Integer> edgeIndexesA, List<Integer> edgeIndexesB);
+    /**
+     * Returns the ideal distance between two adjacent nodes.
+     *
+     * @param a             first node
+     * @param b             second node
+     * @param neighborsA    indexes of the nodes adjacent to the first node
+     * @param neighborsB    indexes of the nodes adjacent to the second node
+     * @return distance
+     */
+    int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB);
 }
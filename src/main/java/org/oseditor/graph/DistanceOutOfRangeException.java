@@ -0,0 +1,12 @@
+package org.oseditor.graph;
+
+public class DistanceOutOfRangeException
+    extends EditorRuntimeException
+{
+    private static final long serialVersionUID = -2465361503958011872L;
+
+    public DistanceOutOfRangeException(int distance, int max)
+    {
+        super("Distance " + distance + " can't be stored, maximum is " + max + ". Use a wider distance storage.");
+    }
+}
@@ -0,0 +1,106 @@
+package org.oseditor.graph;
+
+/**
+ * Available {@link DistanceStore} implementations.
+ *
+ * All stores except {@link #DENSE} only keep one half of the matrix and thus assume the distances to be symmetric,
+ * which is the case for the default distance factor of 1 and a symmetric {@link DistanceFunction}.
+ *
+ * @see GraphLayoutConfig#getDistanceStorage()
+ */
+public enum DistanceStorage
+{
+    /**
+     * Full <code>int</code> matrix, n^2 entries.
+     */
+    DENSE
+    {
+        @Override
+        public DistanceStore createStore(int nodeCount, GraphLayoutConfig config)
+        {
+            return new DenseDistanceStore(nodeCount);
+        }
+    },
+    /**
+     * Packed upper triangle of the matrix, n * (n - 1) / 2 entries.
+     */
+    TRIANGULAR
+    {
+        @Override
+        public DistanceStore createStore(int nodeCount, GraphLayoutConfig config)
+        {
+            return new TriangularDistanceStore(nodeCount);
+        }
+    },
+    /**
+     * Packed upper triangle with 16 bit entries. Supports distances up to 65534.
+     */
+    SHORT
+    {
+        @Override
+        public DistanceStore createStore(int nodeCount, GraphLayoutConfig config)
+        {
+            return new ShortDistanceStore(nodeCount);
+        }
+    },
+    /**
+     * Packed upper triangle with 8 bit entries. Supports distances up to 254, which is usually enough for hop counts.
+     */
+    BYTE
+    {
+        @Override
+        public DistanceStore createStore(int nodeCount, GraphLayoutConfig config)
+        {
+            return new ByteDistanceStore(nodeCount);
+        }
+    },
+    /**
+     * Only stores distances up to {@link GraphLayoutConfig#getDistanceCutoff()}. Nodes further apart have no
+     * spring between them. Memory scales with the size of the neighbourhoods instead of n^2.
+     */
+    SPARSE
+    {
+        @Override
+        public DistanceStore createStore(int nodeCount, GraphLayoutConfig config)
+        {
+            return new SparseDistanceStore(nodeCount, config.getDistanceCutoff());
+        }
+
+        @Override
+        public boolean usesCutoff()
+        {
+            return true;
+        }
+    },
+    /**
+     * Stores the distances up to {@link GraphLayoutConfig#getDistanceCutoff()} and the distances of all nodes to
+     * {@link GraphLayoutConfig#getLandmarkCount()} landmarks. Nodes further apart get the shortest detour over a
+     * landmark as their distance. Needs one search per landmark on top of the searches within the cutoff instead of
+     * one full search per node, and memory scales with the neighbourhoods plus n entries per landmark.
+     */
+    LANDMARK
+    {
+        @Override
+        public DistanceStore createStore(int nodeCount, GraphLayoutConfig config)
+        {
+            return new LandmarkDistanceStore(nodeCount, config.getDistanceCutoff(), config.getLandmarkCount());
+        }
+
+        @Override
+        public boolean usesCutoff()
+        {
+            return true;
+        }
+    };
+
+    public abstract DistanceStore createStore(int nodeCount, GraphLayoutConfig config);
+
+    /**
+     * Returns <code>true</code> if the storage only keeps the exact distances up to
+     * {@link GraphLayoutConfig#getDistanceCutoff()}. All other storages ignore the cutoff.
+     */
+    public boolean usesCutoff()
+    {
+        return false;
+    }
+}
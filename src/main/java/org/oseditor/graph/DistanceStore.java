@@ -0,0 +1,32 @@
+package org.oseditor.graph;
+
+/**
+ * Stores the target distances between the nodes of a {@link GraphLayout}.
+ *
+ * @see DistanceStorage
+ */
+public interface DistanceStore
+{
+    /**
+     * Returns the number of nodes this store holds distances for.
+     */
+    int size();
+
+    /**
+     * Returns the distance between two nodes.
+     *
+     * @param from  index of the first node
+     * @param to    index of the second node
+     * @return distance or {@link Integer#MAX_VALUE} if the nodes are not connected or the distance is not stored.
+     */
+    int getDistance(int from, int to);
+
+    /**
+     * Stores the distances from one node to all other nodes. The store must not keep a reference to the given
+     * array.
+     *
+     * @param from          index of the node
+     * @param distances     distances to all nodes indexed by node index
+     */
+    void setDistances(int from, int[] distances);
+}
@@ -0,0 +1,265 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Finds the distance rows that change when edges of a layout are added or removed.
+ *
+ * The adjacency entries touching the changed nodes are collected before and after the change, entries found in both
+ * with the same distance are ignored. A row changes if a removed entry was on a shortest path and no remaining entry
+ * reaches its end node on an equally short path, or if an added entry gives a shorter path. This only holds for
+ * monotone path distances, so callers recalculate all rows for distance factors below 1.
+ */
+final class DistanceUpdate
+{
+    private final double distanceFactor;
+    private final int[] oldIndex;
+    private final int[] newIndex;
+
+    private final Entries before = new Entries();
+    private final Entries after = new Entries();
+
+    private Entries removed;
+    private Entries added;
+
+    /** old indexes and distances of the remaining entries ending in the end node of each removed entry */
+    private int[][] supportNodes;
+    private int[][] supportDistances;
+
+    /**
+     * @param distanceFactor    distance factor of the layout
+     * @param oldIndex          old index of every node after the change, -1 for added nodes
+     * @param newIndex          new index of every node before the change, -1 for removed nodes
+     */
+    DistanceUpdate(double distanceFactor, int[] oldIndex, int[] newIndex)
+    {
+        this.distanceFactor = distanceFactor;
+        this.oldIndex = oldIndex;
+        this.newIndex = newIndex;
+    }
+
+    /**
+     * Adds an adjacency entry of the graph before the change.
+     */
+    void addBefore(int from, int to, int distance)
+    {
+        before.add(from, to, newIndex[from], newIndex[to], distance);
+    }
+
+    /**
+     * Adds an adjacency entry of the graph after the change.
+     */
+    void addAfter(int from, int to, int distance)
+    {
+        after.add(oldIndex[from], oldIndex[to], from, to, distance);
+    }
+
+    /**
+     * Matches the entries before and after the change and looks up the alternatives for the removed entries. Must be
+     * called once the layout has the new edges.
+     */
+    void prepare(GraphLayout layout)
+    {
+        removed = new Entries();
+        added = new Entries();
+
+        Integer[] a = before.sorted();
+        Integer[] b = after.sorted();
+        int i = 0;
+        int j = 0;
+        while (i < a.length || j < b.length)
+        {
+            int cmp = i == a.length ? 1 : j == b.length ? -1 : compare(before, a[i], after, b[j]);
+            if (cmp < 0)
+            {
+                removed.addFrom(before, a[i++]);
+            }
+            else if (cmp > 0)
+            {
+                added.addFrom(after, b[j++]);
+            }
+            else
+            {
+                i++;
+                j++;
+            }
+        }
+
+        supportNodes = new int[removed.size][];
+        supportDistances = new int[removed.size][];
+        Adjacency edges = layout.edges;
+        for (int r = 0; r < removed.size; r++)
+        {
+            int to = removed.newTo[r];
+            if (to < 0)
+            {
+                continue;
+            }
+
+            int start = edges.offsets[to];
+            int end = edges.offsets[to + 1];
+            int[] nodes = new int[end - start];
+            int[] nodeDistances = new int[end - start];
+            int count = 0;
+            for (int k = start; k < end; k++)
+            {
+                int from = edges.targets[k];
+                if (oldIndex[from] >= 0)
+                {
+                    nodes[count] = oldIndex[from];
+                    nodeDistances[count] = layout.getDistance(from, to);
+                    count++;
+                }
+            }
+            supportNodes[r] = Arrays.copyOf(nodes, count);
+            supportDistances[r] = Arrays.copyOf(nodeDistances, count);
+        }
+    }
+
+    /**
+     * Checks whether the distances from the given node change.
+     *
+     * @param distances     distances before the change
+     * @param source        old index of the source node
+     */
+    boolean isAffected(DistanceStore distances, int source)
+    {
+        for (int r = 0; r < removed.size; r++)
+        {
+            if (removed.newTo[r] < 0)
+            {
+                // distances to removed nodes are dropped anyway
+                continue;
+            }
+
+            int fromDistance = distances.getDistance(source, removed.oldFrom[r]);
+            if (fromDistance == Integer.MAX_VALUE)
+            {
+                continue;
+            }
+            int toDistance = distances.getDistance(source, removed.oldTo[r]);
+            if (DijkstraSearch.pathDistance(fromDistance, distanceFactor, removed.distance[r]) == toDistance && !isSupported(distances, source, r, toDistance))
+            {
+                return true;
+            }
+        }
+
+        for (int r = 0; r < added.size; r++)
+        {
+            if (added.oldFrom[r] < 0)
+            {
+                // paths through new nodes start with an entry from an old node
+                continue;
+            }
+
+            int fromDistance = distances.getDistance(source, added.oldFrom[r]);
+            if (fromDistance == Integer.MAX_VALUE)
+            {
+                continue;
+            }
+            int toDistance = added.oldTo[r] < 0 ? Integer.MAX_VALUE : distances.getDistance(source, added.oldTo[r]);
+            if (DijkstraSearch.pathDistance(fromDistance, distanceFactor, added.distance[r]) < toDistance)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a remaining entry from a closer node reaches the end of the removed entry on an equally short
+     * path.
+     */
+    private boolean isSupported(DistanceStore distances, int source, int r, int toDistance)
+    {
+        int[] nodes = supportNodes[r];
+        for (int k = 0; k < nodes.length; k++)
+        {
+            int distance = distances.getDistance(source, nodes[k]);
+            if (distance < toDistance && DijkstraSearch.pathDistance(distance, distanceFactor, supportDistances[r][k]) == toDistance)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int compare(Entries a, int i, Entries b, int j)
+    {
+        int cmp = compare(a.newFrom[i], b.newFrom[j]);
+        if (cmp == 0)
+        {
+            cmp = compare(a.newTo[i], b.newTo[j]);
+        }
+        if (cmp == 0)
+        {
+            cmp = compare(a.distance[i], b.distance[j]);
+        }
+        return cmp;
+    }
+
+    private static int compare(int a, int b)
+    {
+        return a < b ? -1 : a == b ? 0 : 1;
+    }
+
+    /**
+     * Adjacency entries in old and new node indexes.
+     */
+    private static final class Entries
+    {
+        int size;
+        int[] oldFrom = new int[16];
+        int[] oldTo = new int[16];
+        int[] newFrom = new int[16];
+        int[] newTo = new int[16];
+        int[] distance = new int[16];
+
+        void add(int oldFromIndex, int oldToIndex, int newFromIndex, int newToIndex, int edgeDistance)
+        {
+            if (size == distance.length)
+            {
+                int capacity = size * 2;
+                oldFrom = Arrays.copyOf(oldFrom, capacity);
+                oldTo = Arrays.copyOf(oldTo, capacity);
+                newFrom = Arrays.copyOf(newFrom, capacity);
+                newTo = Arrays.copyOf(newTo, capacity);
+                distance = Arrays.copyOf(distance, capacity);
+            }
+            oldFrom[size] = oldFromIndex;
+            oldTo[size] = oldToIndex;
+            newFrom[size] = newFromIndex;
+            newTo[size] = newToIndex;
+            distance[size] = edgeDistance;
+            size++;
+        }
+
+        void addFrom(Entries other, int i)
+        {
+            add(other.oldFrom[i], other.oldTo[i], other.newFrom[i], other.newTo[i], other.distance[i]);
+        }
+
+        /**
+         * Returns the entry positions ordered by new indexes and distance. Entries of removed nodes come first and
+         * never match an entry after the change.
+         */
+        Integer[] sorted()
+        {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++)
+            {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>()
+            {
+                @Override
+                public int compare(Integer a, Integer b)
+                {
+                    return DistanceUpdate.compare(Entries.this, a, Entries.this, b);
+                }
+            });
+            return order;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.oseditor.graph;
+
+/**
+ * Dormand-Prince 5(4) integration with adaptive step size.
+ *
+ * The derivative is always evaluated for half the configured step size, so the rate of change does not depend on
+ * the adaptive step size. The last stage of an accepted step is the first stage of the next one.
+ */
+final class DormandPrinceIntegrator
+    extends Integrator
+{
+    private static final double
+        A21 = 1.0 / 5,
+        A31 = 3.0 / 40, A32 = 9.0 / 40,
+        A41 = 44.0 / 45, A42 = -56.0 / 15, A43 = 32.0 / 9,
+        A51 = 19372.0 / 6561, A52 = -25360.0 / 2187, A53 = 64448.0 / 6561, A54 = -212.0 / 729,
+        A61 = 9017.0 / 3168, A62 = -355.0 / 33, A63 = 46732.0 / 5247, A64 = 49.0 / 176, A65 = -5103.0 / 18656,
+        A71 = 35.0 / 384, A73 = 500.0 / 1113, A74 = 125.0 / 192, A75 = -2187.0 / 6784, A76 = 11.0 / 84;
+
+    private static final double
+        C2 = 1.0 / 5, C3 = 3.0 / 10, C4 = 4.0 / 5, C5 = 8.0 / 9;
+
+    /** difference between the fifth and the fourth order weights */
+    private static final double
+        E1 = 71.0 / 57600, E3 = -71.0 / 16695, E4 = 71.0 / 1920, E5 = -17253.0 / 339200, E6 = 22.0 / 525,
+        E7 = -1.0 / 40;
+
+    private final double rateDelta;
+    private final double tolerance;
+    private final double minStep;
+    private final double maxStep;
+
+    private double step;
+
+    private State k1, k2, k3, k4, k5, k6, k7;
+    private final State stage;
+
+    private boolean firstStageValid;
+
+    DormandPrinceIntegrator(int nodeCount, double stepSize, double tolerance)
+    {
+        this.rateDelta = stepSize * 0.5;
+        this.tolerance = tolerance;
+        this.step = stepSize;
+        this.minStep = stepSize / 1000;
+        this.maxStep = stepSize * 10;
+
+        k1 = new State(nodeCount);
+        k2 = new State(nodeCount);
+        k3 = new State(nodeCount);
+        k4 = new State(nodeCount);
+        k5 = new State(nodeCount);
+        k6 = new State(nodeCount);
+        k7 = new State(nodeCount);
+        stage = new State(nodeCount);
+    }
+
+    @Override
+    double step(AbstractForceSolver solver, State state, double time, double stepSize)
+    {
+        if (!firstStageValid)
+        {
+            solver.derivative(state, time, rateDelta, k1);
+        }
+
+        double[] x = state.getData();
+        double[] s = stage.getData();
+        double[] d1 = k1.getData(), d2 = k2.getData(), d3 = k3.getData(), d4 = k4.getData(), d5 = k5.getData(),
+            d6 = k6.getData(), d7 = k7.getData();
+
+        while (true)
+        {
+            double h = step;
+
+            for (int i = 0; i < x.length; i++)
+            {
+                s[i] = x[i] + h * (A21 * d1[i]);
+            }
+            solver.derivative(stage, time + C2 * h, rateDelta, k2);
+
+            for (int i = 0; i < x.length; i++)
+            {
+                s[i] = x[i] + h * (A31 * d1[i] + A32 * d2[i]);
+            }
+            solver.derivative(stage, time + C3 * h, rateDelta, k3);
+
+            for (int i = 0; i < x.length; i++)
+            {
+                s[i] = x[i] + h * (A41 * d1[i] + A42 * d2[i] + A43 * d3[i]);
+            }
+            solver.derivative(stage, time + C4 * h, rateDelta, k4);
+
+            for (int i = 0; i < x.length; i++)
+            {
+                s[i] = x[i] + h * (A51 * d1[i] + A52 * d2[i] + A53 * d3[i] + A54 * d4[i]);
+            }
+            solver.derivative(stage, time + C5 * h, rateDelta, k5);
+
+            for (int i = 0; i < x.length; i++)
+            {
+                s[i] = x[i] + h * (A61 * d1[i] + A62 * d2[i] + A63 * d3[i] + A64 * d4[i] + A65 * d5[i]);
+            }
+            solver.derivative(stage, time + h, rateDelta, k6);
+
+            // fifth order solution
+            for (int i = 0; i < x.length; i++)
+            {
+                s[i] = x[i] + h * (A71 * d1[i] + A73 * d3[i] + A74 * d4[i] + A75 * d5[i] + A76 * d6[i]);
+            }
+            solver.derivative(stage, time + h, rateDelta, k7);
+
+            double error = 0;
+            for (int i = 0; i < x.length; i++)
+            {
+                double e = h * (E1 * d1[i] + E3 * d3[i] + E4 * d4[i] + E5 * d5[i] + E6 * d6[i] + E7 * d7[i]);
+                error = Math.max(error, Math.abs(e));
+            }
+
+            double factor = error == 0 ? 5 : Math.min(5, Math.max(0.2, 0.9 * Math.pow(tolerance / error, 0.2)));
+            step = Math.min(maxStep, Math.max(minStep, h * factor));
+
+            if (error <= tolerance || h <= minStep)
+            {
+                state.set(stage);
+
+                // first same as last
+                State k = k1;
+                k1 = k7;
+                k7 = k;
+                firstStageValid = true;
+
+                return h;
+            }
+        }
+    }
+
+    @Override
+    void reset()
+    {
+        firstStageValid = false;
+    }
+}
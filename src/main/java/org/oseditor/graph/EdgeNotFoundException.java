@@ -0,0 +1,12 @@
+package org.oseditor.graph;
+
+public class EdgeNotFoundException
+    extends EditorRuntimeException
+{
+    private static final long serialVersionUID = 3081452276354920617L;
+
+    public EdgeNotFoundException(String message)
+    {
+        super(message);
+    }
+}
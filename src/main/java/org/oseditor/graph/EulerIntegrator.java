@@ -0,0 +1,23 @@
+package org.oseditor.graph;
+
+/**
+ * Explicit Euler integration.
+ */
+final class EulerIntegrator
+    extends Integrator
+{
+    private final State derivative;
+
+    EulerIntegrator(int nodeCount, StatePrecision precision)
+    {
+        derivative = new State(nodeCount, precision);
+    }
+
+    @Override
+    double step(AbstractForceSolver solver, State state, double time, double stepSize)
+    {
+        solver.derivative(state, time, stepSize * 0.5, derivative);
+        state.addScaled(derivative, stepSize);
+        return stepSize;
+    }
+}
@@ -3,12 +3,13 @@ package org.oseditor.graph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GraphLayout
     extends AbstractForceSolver
@@ -17,29 +18,60 @@ public class GraphLayout
 
     private static final double TAU = Math.PI * 2;
 
-    final DirectedGraph data;
+    CompactGraph graph;
     final Random random;
     final double pushStartTime;
     String[] nodeIds;
-    List<Integer>[] edges;
+    Adjacency edges;
+
+    /**
+     * Distance of every adjacency entry, aligned with {@link Adjacency#targets}. Only calculated for a
+     * {@link PureDistanceFunction}, <code>null</code> otherwise.
+     */
+    int[] edgeDistances;
 
     final GraphLayoutConfig config;
-    int[][] distances;
+    DistanceStore distances;
 
+    /** connected component of every node */
     int[] subgraph;
 
+    int subgraphCount;
+
+    private ExecutorService pool;
+
+    /** <code>false</code> while the distances are the ones the layout was created with, which might be read-only */
+    private boolean ownDistances;
+
+    /** nodes changed since the last {@link #relax()} or <code>null</code> */
+    private boolean[] changedNodes;
+
+    /** nodes moved while {@link #relax()} runs, <code>null</code> otherwise */
+    private int[] mobileNodes;
+
     GraphLayout(DirectedGraph data, GraphLayoutConfig cfg)
     {
+        this(CompactGraph.from(data), cfg);
+    }
 
-        super(data.getNodes().size(), cfg.getStepSize());
+    GraphLayout(CompactGraph graph, GraphLayoutConfig cfg)
+    {
+        this(graph, cfg, null);
+    }
 
+    /**
+     * Creates a layout for the given graph.
+     *
+     * @param graph         graph
+     * @param cfg           configuration
+     * @param known         previously calculated distances for the graph or <code>null</code> to calculate them
+     */
+    GraphLayout(CompactGraph graph, GraphLayoutConfig cfg, DistanceStore known)
+    {
 
-        if (data == null)
-        {
-            throw new IllegalArgumentException("data can't be null");
-        }
+        super(graph.getNodeCount(), cfg.getStepSize(), cfg.getIntegrationMethod().create(graph.getNodeCount(), cfg));
 
-        this.data = data;
+        this.graph = graph;
 
         if (cfg.getRepulsionFallOff() == null)
         {
@@ -49,62 +81,68 @@ public class GraphLayout
         {
             throw new EditorRuntimeException("No spring fall off defined");
         }
+        if (cfg.getRepulsionMode() == RepulsionMode.CUTOFF && cfg.getRepulsionFallOff().getMinValue() != 0)
+        {
+            throw new EditorRuntimeException("Cutoff repulsion needs a repulsion fall off with a min value of 0");
+        }
 
         this.config = cfg;
 
-        distances = new int[nodeCount][];
-        subgraph = new int[nodeCount];
+        springFallOff = CompiledFallOffCurve.compile(cfg.getSpringFallOff(), cfg.getFallOffResolution());
+        repulsionFallOff = CompiledFallOffCurve.compile(cfg.getRepulsionFallOff(), cfg.getFallOffResolution());
 
-        this.random = new Random(cfg.getInitialSeed());
+        if (known != null && known.size() != nodeCount)
+        {
+            throw new IllegalArgumentException("Distances for " + known.size() + " nodes don't match graph with " + nodeCount + " nodes");
+        }
+        distances = known != null ? known : cfg.getDistanceStorage().createStore(nodeCount, cfg);
+        ownDistances = known == null;
 
-        nodeIds = new String[nodeCount];
+        this.random = new Random(cfg.getInitialSeed());
 
         fillNodeIds();
-        copyState(data.getNodes());
-        fillEdges(data.getEdges());
-        calculateNodeDistances();
+        copyState();
+        edges = Adjacency.undirected(graph);
+        subgraph = new int[nodeCount];
+        subgraphCount = edges.components(subgraph);
+        if (known == null && isPureDistanceFunction())
+        {
+            cacheEdgeDistances();
+        }
+        if (known == null)
+        {
+            calculateNodeDistances();
+        }
+        // a warm start keeps the positions it was given
+        if (!cfg.isWarmStart())
+        {
+            cfg.getInitialPlacement().place(this, getInternalState().getData());
+        }
 
-        pushStartTime = config.getIterations() * config.getStepSize() * config.getRepulsionStart();
+        // a warm start is past the spring-only phase
+        pushStartTime = config.isWarmStart() ? Double.NEGATIVE_INFINITY : config.getIterations() * config.getStepSize() * config.getRepulsionStart();
     }
 
-    private void copyState(Map<String, GraphNode> nodes)
+    private void copyState()
     {
         double[] stateData = getInternalState().getData();
 
-        edges = new List[nodeCount * 2];
-
         for (int i = 0, j = 0; i < nodeCount; i++)
         {
-            String id = this.nodeIds[i];
-            GraphNode node = nodes.get(id);
-            stateData[j++] = node.getX();
-            stateData[j++] = node.getY();
-
-            edges[i] = new ArrayList<Integer>();
+            stateData[j++] = graph.getX(i);
+            stateData[j++] = graph.getY(i);
         }
     }
 
-    private void fillEdges(List<Edge> edgeData)
+    private void fillNodeIds()
     {
-        for (Edge e : edgeData)
+        nodeIds = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++)
         {
-            int fromIdx = findNodeIndex(e.getFrom());
-            int toIdx = findNodeIndex(e.getTo());
-            edges[fromIdx].add(toIdx);
-            edges[toIdx].add(fromIdx);
+            nodeIds[i] = graph.getId(i);
         }
 
-        log.info("Edges: {}", Arrays.toString(edges));
-    }
-
-    private void fillNodeIds()
-    {
-        ArrayList<String> nodeIds = new ArrayList<String>(data.getNodes().keySet());
-        Collections.sort(nodeIds);
-
-        this.nodeIds = nodeIds.toArray(new String[nodeIds.size()]);
-
-        log.info("node ids: {}", nodeIds);
+        log.info("node ids: {}", Arrays.asList(nodeIds));
     }
 
     /**
@@ -124,281 +162,1587 @@ public class GraphLayout
         return i;
     }
 
-    int getDistance(int idx, int idx2)
+    private boolean isPureDistanceFunction()
     {
+        return config.getDistanceFunction() instanceof PureDistanceFunction;
+    }
 
-        Map<String, GraphNode> nodes = this.data.getNodes();
-
-        GraphNode nodeA = nodes.get(nodeIds[idx]);
-        GraphNode nodeB = nodes.get(nodeIds[idx2]);
-        return this.config.getDistanceFunction().getDistance(nodeA, nodeB, edges[idx], edges[idx2]);
+    private void cacheEdgeDistances()
+    {
+        int[] targets = edges.targets;
+        edgeDistances = new int[targets.length];
+        for (int index = 0; index < nodeCount; index++)
+        {
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+            {
+                edgeDistances[k] = getDistance(index, targets[k]);
+            }
+        }
     }
 
-    private void calculateNodeDistances()
+    /**
+     * Returns the distance of an edge.
+     *
+     * @param index     start node of the edge
+     * @param k         position of the edge in the adjacency
+     */
+    int getEdgeDistance(int index, int k)
     {
-        for (int startIndex = 0; startIndex < nodeCount; startIndex++)
+        if (edgeDistances != null)
         {
+            return edgeDistances[k];
+        }
+        return getDistance(index, edges.targets[k]);
+    }
 
-            int[] dist = new int[nodeCount];
+    /**
+     * Returns the average distance of the edges, or 1 if there are no edges.
+     */
+    double getAverageEdgeDistance()
+    {
+        double sum = 0;
+        int count = 0;
+        for (int index = 0; index < nodeCount; index++)
+        {
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+            {
+                int distance = getEdgeDistance(index, k);
+                if (distance > 0)
+                {
+                    sum += distance;
+                    count++;
+                }
+            }
+        }
+        return count > 0 ? sum / count : 1;
+    }
 
-            PriorityQueue queue = fillQueue(startIndex, dist);
+    int getDistance(int idx, int idx2)
+    {
 
+        GraphNode nodeA = graph.getNode(idx);
+        GraphNode nodeB = graph.getNode(idx2);
+        return this.config.getDistanceFunction().getDistance(nodeA, nodeB, edges.neighbors(idx), edges.neighbors(idx2));
+    }
 
-            while (!queue.isEmpty())
-            {
-                int index = queue.popMinimalValue();
+    private void calculateNodeDistances()
+    {
+        int parallelism = config.getParallelism();
 
-                if (dist[index] == Integer.MAX_VALUE)
-                {
-                    // all remaining vertices are inaccessible from source
-                    break;
-                }
+        SparseDistanceStore sparse = null;
+        if (distances instanceof SparseDistanceStore)
+        {
+            sparse = (SparseDistanceStore) distances;
+        }
+        else if (distances instanceof LandmarkDistanceStore)
+        {
+            sparse = ((LandmarkDistanceStore) distances).getLocal();
+        }
 
-                for (int toIdx : edges[index])
-                {
-                    int newDistance = (int) ((dist[index] * this.config.getDistanceFactor()) + this.getDistance(index, toIdx));
-                    int oldDistance = dist[toIdx];
-                    if (newDistance < oldDistance)
-                    {
-                        dist[toIdx] = newDistance;
-                        queue.lowerPriority(toIdx, oldDistance, newDistance);
-                    }
-                }
-            }
+        if (sparse != null && hasSymmetricEdgeDistances())
+        {
+            log.debug("Sparse distances, searching up to the cutoff");
+            calculateWithinCutoff(parallelism, sparse);
+        }
+        else
+        {
+            calculateAllDistances(parallelism);
+        }
 
-            distances[startIndex] = dist;
+        if (distances instanceof LandmarkDistanceStore)
+        {
+            // after the local distances, so the sequential search doesn't take estimates for known distances
+            LandmarkDistanceStore store = (LandmarkDistanceStore) distances;
+            Pivots landmarks = new Pivots(this, store.getLandmarkCount());
+            store.setLandmarks(landmarks.indexes, landmarks.rows);
+            log.debug("Searched {} landmarks", landmarks.indexes.length);
         }
     }
 
-    private PriorityQueue fillQueue(int startIndex, int[] dist)
+    private void calculateAllDistances(int parallelism)
     {
-        PriorityQueue queue = new PriorityQueue(nodeCount);
-        for (int i = 0; i < nodeCount; i++)
+        int edgeDistance = findUniformEdgeDistance();
+        if (edgeDistance >= 0)
         {
-            int distance;
-            if (i == startIndex)
+            log.debug("Uniform edge distance {}, using breadth-first search", edgeDistance);
+            if (parallelism > 1)
             {
-                distance = 0;
+                calculateBreadthFirstParallel(parallelism, edgeDistance);
             }
             else
             {
-                // shortcut: if we already calculated the distances from a node,
-                // we can just look up the distance to the current node
-                // this doesn't reduce complexity, but at least minimizes queue
-                // operations at minimal cost
-                //
-                // we have calculated the distance because when the node index is smaller
-                // since we calculate in increasing node order
-                if (i < startIndex)
-                {
-                    distance = distances[i][startIndex];
-                }
-                else
-                {
-                    // Unknown distance function from source to v
-                    distance = Integer.MAX_VALUE;
-                }
+                new MultiSourceBFS(edges, nodeCount).calculate(distances, 0, nodeCount, edgeDistance);
             }
+            return;
+        }
 
-            dist[i] = distance;
-            queue.add(distance, i);
+        if (parallelism > 1 && hasSymmetricEdgeDistances())
+        {
+            calculateDijkstraParallel(parallelism, null, nodeCount);
+            return;
         }
-        return queue;
-    }
 
-    public GraphLayoutConfig getConfig()
-    {
-        return config;
+        DijkstraSearch search = new DijkstraSearch(this, createQueue());
+        for (int startIndex = 0; startIndex < nodeCount; startIndex++)
+        {
+            distances.setDistances(startIndex, search.search(startIndex, distances));
+        }
     }
 
     /**
-     * Writes the resulting coordinates from the layout process back into the DirectedGraph data structure
-     * und return the current axis-aligned bounding box of the graph.
+     * Runs the Dijkstra searches in parallel. Each worker takes the next free source node and runs a search without
+     * the shortcut over already known distances, which gives the same distances as long as the edge distances are
+     * symmetric.
      *
-     * @return axis-aligned bounding box of the graph
+     * @param parallelism   number of workers
+     * @param sources       source nodes or <code>null</code> for all nodes
+     * @param count         number of source nodes
      */
-    public AABB update()
+    private void calculateDijkstraParallel(int parallelism, final int[] sources, final int count)
     {
-        Map<String, GraphNode> nodes = this.data.getNodes();
-        double[] data = getInternalState().getData();
-
-        double minX = Double.POSITIVE_INFINITY;
-        double minY = Double.POSITIVE_INFINITY;
-        double maxX = Double.NEGATIVE_INFINITY;
-        double maxY = Double.NEGATIVE_INFINITY;
-
-        for (int i = 0, j = 0; i < nodeCount; i++)
+        final AtomicInteger nextIndex = new AtomicInteger();
+        ParallelTasks.run(executor(), parallelism, new ParallelTasks.Task()
         {
-            String id = nodeIds[i];
-            GraphNode graphNode = nodes.get(id);
-            double x = data[j++];
-            double y = data[j++];
+            @Override
+            public void run(int worker)
+            {
+                DijkstraSearch search = new DijkstraSearch(GraphLayout.this, createQueue());
 
-            graphNode.setX(x);
-            graphNode.setY(y);
+                int i;
+                while ((i = nextIndex.getAndIncrement()) < count)
+                {
+                    int startIndex = sources != null ? sources[i] : i;
+                    distances.setDistances(startIndex, search.search(startIndex, null));
+                }
+            }
+        });
+    }
 
-            minX = Math.min(minX, x);
-            minY = Math.min(minY, y);
-            maxX = Math.max(maxX, x);
-            maxY = Math.max(maxY, y);
+    /**
+     * Runs a {@link CutoffSearch} from every node, so the time depends on the number of stored distances instead of
+     * the square of the number of nodes.
+     */
+    private void calculateWithinCutoff(int parallelism, final SparseDistanceStore store)
+    {
+        if (parallelism <= 1)
+        {
+            CutoffSearch search = new CutoffSearch(this, store.getCutoff());
+            for (int startIndex = 0; startIndex < nodeCount; startIndex++)
+            {
+                search.search(startIndex, store);
+            }
+            return;
         }
 
-        return new AABB(minX, minY, maxX - minX, maxY - minY);
-    }
+        final AtomicInteger nextIndex = new AtomicInteger();
+        ParallelTasks.run(executor(), parallelism, new ParallelTasks.Task()
+        {
+            @Override
+            public void run(int worker)
+            {
+                CutoffSearch search = new CutoffSearch(GraphLayout.this, store.getCutoff());
 
+                int startIndex;
+                while ((startIndex = nextIndex.getAndIncrement()) < nodeCount)
+                {
+                    search.search(startIndex, store);
+                }
+            }
+        });
+    }
 
-    public String getIdForIndex(int index)
+    private void calculateBreadthFirstParallel(int parallelism, final int edgeDistance)
     {
-        return nodeIds[index];
+        final AtomicInteger nextBatch = new AtomicInteger();
+        ParallelTasks.run(executor(), parallelism, new ParallelTasks.Task()
+        {
+            @Override
+            public void run(int worker)
+            {
+                MultiSourceBFS bfs = new MultiSourceBFS(edges, nodeCount);
+
+                int first;
+                while ((first = nextBatch.getAndAdd(MultiSourceBFS.BATCH_SIZE)) < nodeCount)
+                {
+                    bfs.calculate(distances, first, Math.min(first + MultiSourceBFS.BATCH_SIZE, nodeCount), edgeDistance);
+                }
+            }
+        });
     }
 
-    public boolean areAllNodesConnected()
+    /**
+     * Checks whether the shortest paths can be searched independently of each other. The sequential search looks
+     * up the distances of already searched nodes, which only gives the same result if the distance from a to b
+     * equals the distance from b to a.
+     */
+    private boolean hasSymmetricEdgeDistances()
     {
-        for (int i=0; i < 11; i++)
+        if (!isPureDistanceFunction())
         {
-            for (int j=0; j < 11; j++)
+            log.info("Distance function is not pure, calculating distances sequentially");
+            return false;
+        }
+
+        if (config.getDistanceFactor() != 1)
+        {
+            log.info("Distance factor {} != 1, calculating distances sequentially", config.getDistanceFactor());
+            return false;
+        }
+
+        for (int index = 0; index < nodeCount; index++)
+        {
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
             {
-                if (distances[i][j] == Integer.MAX_VALUE)
+                int toIdx = edges.targets[k];
+                if (getEdgeDistance(index, k) != getDistance(toIdx, index))
                 {
+                    log.info("Asymmetric distance function, calculating distances sequentially");
                     return false;
                 }
             }
         }
-
         return true;
     }
 
-
-    public String getDistanceDebugInfo()
+    /**
+     * Returns the executor for parallel work. Uses the configured executor or a pool with the configured parallelism.
+     */
+    ExecutorService executor()
     {
-
-        StringBuilder sb = new StringBuilder();
-
-
-        for (int i=0; i < nodeCount; i++)
+        ExecutorService executor = config.getExecutor();
+        if (executor != null)
         {
-            int[] dist = distances[i];
+            return executor;
+        }
 
-            sb.append("Distances from ").append(nodeIds[i]).append(" to:\n");
+        if (pool == null)
+        {
+            // fork join worker threads are daemon threads and end when idle, so the pool needs no shutdown
+            pool = new ForkJoinPool(config.getParallelism());
+        }
+        return pool;
+    }
 
-            for (int j=0; j < nodeCount; j++)
-            {
-                int distance = dist[j];
+    /**
+     * Checks whether the distances can be calculated with a breadth-first search.
+     *
+     * @return distance of every edge or -1 if the edges have different distances
+     */
+    private int findUniformEdgeDistance()
+    {
+        switch (config.getShortestPathAlgorithm())
+        {
+            case BFS:
+                return 1;
+            case DIJKSTRA:
+                return -1;
+        }
 
-                sb.append(nodeIds[j]).append(": ").append(distance).append("\n");
-            }
-            sb.append("\n");
+        // an impure function might return other distances during the search than when probed
+        if (config.getDistanceFactor() != 1 || !isPureDistanceFunction())
+        {
+            return -1;
         }
 
-        for (int i=0; i < nodeCount; i++)
+        int edgeDistance = -1;
+        for (int index = 0; index < nodeCount; index++)
         {
-            for (int j=0; j < nodeCount; j++)
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
             {
-                if (distances[i][j] != distances[j][i])
+                int distance = getEdgeDistance(index, k);
+                if (distance < 0 || (edgeDistance >= 0 && distance != edgeDistance))
                 {
-                    sb.append("Distance from " + i + " to " + j + " is not the same as back.\n");
+                    return -1;
                 }
+                edgeDistance = distance;
             }
         }
 
-
-        return sb.toString();
+        // no edges at all: every distance is unknown anyway. A uniform distance of 0 is passed on as it is, the
+        // breadth-first search then gives 0 to every reachable node like the Dijkstra search does
+        return edgeDistance == -1 ? 1 : edgeDistance;
     }
 
-    double[] force = new double[2];
-
-    @Override
-    protected State simulate(State state, double time, double delta)
+    IntPriorityQueue createQueue()
     {
-        State derivative = new State(nodeCount);
-
-        if (delta == 0)
+        PriorityQueueType type = config.getPriorityQueueType();
+        if (type == PriorityQueueType.RADIX && config.getDistanceFactor() < 1)
         {
-            // Nothing happens in zero time..
-            return derivative;
+            log.warn("Radix queue needs monotone distances, distance factor {} < 1 falls back to heap", config.getDistanceFactor());
+            type = PriorityQueueType.HEAP;
         }
+        return type.create(nodeCount);
+    }
 
-        double[] stateXY = state.getData();
-        double[] derivativeXY = derivative.getData();
-        for (int i = 0; i < nodeCount; i++)
+    /**
+     * Runs the simulation until the nodes stop moving or the configured number of iterations or simulation time is
+     * reached. The layout is not considered converged before the repulsion has started.
+     *
+     * Every call runs from the current time on, so calling it again continues the simulation. A
+     * {@link GraphLayoutConfig#isWarmStart() warm start} runs at most {@link GraphLayoutConfig#getWarmStartIterations()}
+     * steps per call, so every call refines the layout a little more.
+     *
+     * With {@link LayoutSolver#STRESS_MAJORIZATION}, every iteration is a stress majorization step instead of a
+     * simulation step, and the layout can converge from the first iteration on.
+     *
+     * Call {@link #update()} afterwards to write the positions back into the graph.
+     *
+     * @return result of the run
+     *
+     * @see GraphLayoutConfig#getConvergenceTolerance()
+     * @see GraphLayoutConfig#getConvergenceCriterion()
+     */
+    public LayoutResult run()
+    {
+        if (config.getLayoutSolver() == LayoutSolver.STRESS_MAJORIZATION)
         {
-            int componentIndexI = i*2;
-
-            double nodeX = stateXY[componentIndexI];
-            double nodeY = stateXY[componentIndexI + 1];
-
-            int[] nodeDistance = distances[i];
-            for (int j = i + 1; j < nodeCount; j++)
-            {
-                int componentIndexJ = j*2;
-                double x = stateXY[componentIndexJ] - nodeX;
-                double y = stateXY[componentIndexJ + 1] - nodeY;
-
-                double distance;
-                if (x == 0 && y == 0)
-                {
-                    x = Math.cos(angle)/100000;
-                    y = Math.sin(angle)/100000;
-                    distance = 0.00001;
+            return runStressMajorization();
+        }
 
-                    angle += 0.5;
-                }
-                else
-                {
-                    distance = Math.sqrt(x * x + y * y);
-                }
+        boolean warmStart = config.isWarmStart();
+        int maxIterations = warmStart ? config.getWarmStartIterations() : config.getIterations();
+        double endTime = getTime() + maxIterations * config.getStepSize();
+        double tolerance = config.getConvergenceTolerance();
+        boolean useMax = config.getConvergenceCriterion() == ConvergenceCriterion.MAX_DISPLACEMENT;
 
-                int targetDistance = nodeDistance[j];
+        double[] current = getInternalState().getData();
+        double[] previous = new double[current.length];
 
-                double force = forces( i, j, distance, targetDistance, time);
+        int iterations = 0;
+        boolean converged = false;
+        double max = 0;
+        double squaredDisplacement = 0;
 
-                if (force != 0)
-                {
-                    double factorToLength = (force * delta) / distance;
-                    x *= factorToLength;
-                    y *= factorToLength;
+        while (iterations < maxIterations && getTime() < endTime)
+        {
+            System.arraycopy(current, 0, previous, 0, current.length);
+            simulate();
+            iterations++;
 
-                    // force
-                    derivativeXY[componentIndexJ] += x;
-                    derivativeXY[componentIndexJ + 1] += y;
+            max = 0;
+            squaredDisplacement = 0;
+            for (int i = 0; i < current.length; i += 2)
+            {
+                double x = current[i] - previous[i];
+                double y = current[i + 1] - previous[i + 1];
+                double squared = x * x + y * y;
+                max = Math.max(max, squared);
+                squaredDisplacement += squared;
+            }
 
-                    // counter-force
-                    derivativeXY[componentIndexI] -= x;
-                    derivativeXY[componentIndexI + 1] -= y;
-                }
+            double displacement = useMax ? Math.sqrt(max) : Math.sqrt(squaredDisplacement / nodeCount);
+            if (getTime() > pushStartTime && displacement < tolerance)
+            {
+                converged = true;
+                break;
             }
         }
 
-        return derivative;
+        LayoutResult result = new LayoutResult(iterations, converged, Math.sqrt(max), Math.sqrt(squaredDisplacement / nodeCount), squaredDisplacement, getForceEvaluations());
+        log.debug("{}", result);
+        return result;
     }
 
-    private FallOffHelper fallOffHelper = new FallOffHelper();
-
     /**
-     * The actual forces calculation.
-     *
-     * @param nodeIndexA        Node index of first node
-     * @param nodeIndexB        Node index of second node
-     * @param distance          Distance between nodes
-     * @param targetDistance    target distance according to distance calculation
-     * @param time              current time (will be a multiple of {@link GraphLayoutConfig#getStepSize()})
-     * @return force to apply to both nodes
+     * Runs {@link StressMajorization} iterations until the nodes stop moving or the configured number of iterations is
+     * reached.
      */
-    protected double forces(int nodeIndexA, int nodeIndexB, double distance, int targetDistance, double time)
+    private LayoutResult runStressMajorization()
     {
-        double force = 0;
-        if (targetDistance < Integer.MAX_VALUE)
+        int maxIterations = config.isWarmStart() ? config.getWarmStartIterations() : config.getIterations();
+        double tolerance = config.getConvergenceTolerance();
+        boolean useMax = config.getConvergenceCriterion() == ConvergenceCriterion.MAX_DISPLACEMENT;
+
+        if (stressMajorization == null)
         {
-            double factor = fallOffHelper.fallOff(this.config.getSpringFallOff(), distance);
-            force += -(config.getSpringConstant() * factor) * (distance - targetDistance);
+            stressMajorization = new StressMajorization(this);
         }
 
-        if (time > pushStartTime)
+        final double[] current = getInternalState().getData();
+        final double[] next = new double[current.length];
+
+        int parallelism = Math.min(config.getParallelism(), nodeCount);
+        List<Callable<Void>> tasks = null;
+        if (parallelism > 1)
         {
-            double factor = fallOffHelper.fallOff(this.config.getRepulsionFallOff(), distance);
-            force += this.config.getRepulsionForce() * factor;
+            final int workers = parallelism;
+            tasks = ParallelTasks.prepare(workers, new ParallelTasks.Task()
+            {
+                @Override
+                public void run(int worker)
+                {
+                    int start = (int) ((long) nodeCount * worker / workers);
+                    int end = (int) ((long) nodeCount * (worker + 1) / workers);
+                    stressMajorization.iterate(current, next, start, end);
+                }
+            });
         }
-        return force;
+
+        int iterations = 0;
+        boolean converged = false;
+        double max = 0;
+        double squaredDisplacement = 0;
+
+        while (iterations < maxIterations)
+        {
+            if (tasks != null)
+            {
+                ParallelTasks.invokeAll(executor(), tasks);
+            }
+            else
+            {
+                stressMajorization.iterate(current, next, 0, nodeCount);
+            }
+            iterations++;
+
+            max = 0;
+            squaredDisplacement = 0;
+            for (int i = 0; i < current.length; i += 2)
+            {
+                double x = next[i] - current[i];
+                double y = next[i + 1] - current[i + 1];
+                double squared = x * x + y * y;
+                max = Math.max(max, squared);
+                squaredDisplacement += squared;
+            }
+            System.arraycopy(next, 0, current, 0, current.length);
+
+            double displacement = useMax ? Math.sqrt(max) : Math.sqrt(squaredDisplacement / nodeCount);
+            if (displacement < tolerance)
+            {
+                converged = true;
+                break;
+            }
+        }
+
+        LayoutResult result = new LayoutResult(iterations, converged, Math.sqrt(max), Math.sqrt(squaredDisplacement / nodeCount), squaredDisplacement, getForceEvaluations());
+        log.debug("{}", result);
+        return result;
+    }
+
+    /**
+     * Adds a node to the layout. The node starts at its current position and has no edges. Indexes of the nodes
+     * with a greater id move up by one.
+     *
+     * The {@link DirectedGraph} the layout was created from is not changed, but {@link #update()} writes the position
+     * of the new node into the given node.
+     *
+     * @param node      node to add
+     * @return index of the new node
+     */
+    public int addNode(GraphNode node)
+    {
+        if (node == null || node.getId() == null)
+        {
+            throw new IllegalArgumentException("node and its id can't be null");
+        }
+
+        CompactGraph newGraph = graph.withNode(node);
+        int index = newGraph.findNodeIndex(node.getId());
+
+        int[] oldIndex = new int[nodeCount + 1];
+        for (int i = 0; i < oldIndex.length; i++)
+        {
+            oldIndex[i] = i < index ? i : i - 1;
+        }
+        oldIndex[index] = -1;
+
+        boolean[] changed = new boolean[nodeCount + 1];
+        changed[index] = true;
+
+        applyChange(newGraph, oldIndex, changed);
+        return index;
+    }
+
+    /**
+     * Removes a node and its edges from the layout. Indexes of the nodes with a greater id move down by one.
+     *
+     * @param id        id of the node
+     */
+    public void removeNode(String id)
+    {
+        int index = findNodeIndex(id);
+        CompactGraph newGraph = graph.withoutNode(index);
+
+        int[] oldIndex = new int[nodeCount - 1];
+        for (int i = 0; i < oldIndex.length; i++)
+        {
+            oldIndex[i] = i < index ? i : i + 1;
+        }
+
+        // the former neighbours lose an edge
+        boolean[] changed = new boolean[nodeCount - 1];
+        for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+        {
+            int neighbor = edges.targets[k];
+            if (neighbor != index)
+            {
+                changed[neighbor < index ? neighbor : neighbor - 1] = true;
+            }
+        }
+
+        applyChange(newGraph, oldIndex, changed);
+    }
+
+    /**
+     * Adds an edge between two nodes of the layout.
+     *
+     * @param from      id of the start node
+     * @param to        id of the end node
+     */
+    public void addEdge(String from, String to)
+    {
+        int a = findNodeIndex(from);
+        int b = findNodeIndex(to);
+
+        applyChange(graph.withEdge(a, b), identity(nodeCount), changed(nodeCount, a, b));
+    }
+
+    /**
+     * Removes an edge between two nodes of the layout. Edges are undirected for the layout, so an edge in the
+     * opposite direction is removed, too. Of several edges between the nodes only one is removed.
+     *
+     * @param from      id of the start node
+     * @param to        id of the end node
+     */
+    public void removeEdge(String from, String to)
+    {
+        int a = findNodeIndex(from);
+        int b = findNodeIndex(to);
+
+        int edge = graph.findEdge(a, b);
+        if (edge < 0)
+        {
+            throw new EdgeNotFoundException("No edge between '" + from + "' and '" + to + "' exists.");
+        }
+
+        applyChange(graph.withoutEdge(edge), identity(nodeCount), changed(nodeCount, a, b));
+    }
+
+    private static int[] identity(int count)
+    {
+        int[] index = new int[count];
+        for (int i = 0; i < count; i++)
+        {
+            index[i] = i;
+        }
+        return index;
+    }
+
+    private static boolean[] changed(int count, int a, int b)
+    {
+        boolean[] changed = new boolean[count];
+        changed[a] = true;
+        changed[b] = true;
+        return changed;
+    }
+
+    /**
+     * Switches the layout to a changed graph. Only the distance rows the change can affect are searched again, all
+     * other rows and the positions of the remaining nodes are kept.
+     *
+     * For asymmetric distance functions the kept rows can differ from the ones a new layout calculates sequentially.
+     *
+     * @param newGraph      changed graph
+     * @param oldIndex      old index of every node of the new graph, -1 for new nodes
+     * @param changed       nodes of the new graph whose edges changed
+     */
+    private void applyChange(CompactGraph newGraph, int[] oldIndex, boolean[] changed)
+    {
+        int oldCount = nodeCount;
+        int newCount = newGraph.getNodeCount();
+
+        int[] newIndex = new int[oldCount];
+        Arrays.fill(newIndex, -1);
+        for (int i = 0; i < newCount; i++)
+        {
+            if (oldIndex[i] >= 0)
+            {
+                newIndex[oldIndex[i]] = i;
+            }
+        }
+
+        DistanceUpdate update = new DistanceUpdate(config.getDistanceFactor(), oldIndex, newIndex);
+        for (int index = 0; index < oldCount; index++)
+        {
+            boolean changedIndex = newIndex[index] < 0 || changed[newIndex[index]];
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+            {
+                int to = edges.targets[k];
+                if (changedIndex || newIndex[to] < 0 || changed[newIndex[to]])
+                {
+                    update.addBefore(index, to, getEdgeDistance(index, k));
+                }
+            }
+        }
+
+        Adjacency oldEdges = edges;
+        int[] oldEdgeDistances = edgeDistances;
+        DistanceStore oldDistances = distances;
+
+        graph = newGraph;
+        edges = Adjacency.undirected(newGraph);
+        nodeIds = new String[newCount];
+        for (int i = 0; i < newCount; i++)
+        {
+            nodeIds[i] = newGraph.getId(i);
+        }
+        resizeState(oldIndex);
+
+        if (oldEdgeDistances != null)
+        {
+            edgeDistances = updateEdgeDistances(oldEdges, oldEdgeDistances, oldIndex, changed);
+        }
+
+        if (oldDistances instanceof LandmarkDistanceStore)
+        {
+            // any change can move the landmarks and with them all estimates, while the whole setup only takes one
+            // search per landmark on top of the searches within the cutoff
+            distances = config.getDistanceStorage().createStore(newCount, config);
+            ownDistances = true;
+            calculateNodeDistances();
+        }
+        else
+        {
+            updateDistances(update, oldDistances, oldCount, oldIndex, changed);
+        }
+
+        boolean[] newChanged = new boolean[newCount];
+        for (int i = 0; i < newCount; i++)
+        {
+            int old = oldIndex[i];
+            newChanged[i] = changed[i] || (changedNodes != null && old >= 0 && changedNodes[old]);
+        }
+        changedNodes = newChanged;
+    }
+
+    /**
+     * Searches the distance rows the change can affect again and keeps all other rows.
+     *
+     * @param update        edges before and after the change
+     * @param oldDistances  distances before the change
+     * @param oldCount      number of nodes before the change
+     * @param oldIndex      old index of every node of the new graph, -1 for new nodes
+     * @param changed       nodes of the new graph whose edges changed
+     */
+    private void updateDistances(DistanceUpdate update, DistanceStore oldDistances, int oldCount, int[] oldIndex, boolean[] changed)
+    {
+        int newCount = nodeCount;
+
+        for (int index = 0; index < newCount; index++)
+        {
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+            {
+                int to = edges.targets[k];
+                if (changed[index] || changed[to])
+                {
+                    update.addAfter(index, to, getEdgeDistance(index, k));
+                }
+            }
+        }
+        update.prepare(this);
+
+        // the affected rows can only be found for monotone path distances
+        boolean all = config.getDistanceFactor() < 1;
+
+        int[] sources = new int[newCount];
+        boolean[] search = new boolean[newCount];
+        int count = 0;
+        for (int i = 0; i < newCount; i++)
+        {
+            if (all || oldIndex[i] < 0 || update.isAffected(oldDistances, oldIndex[i]))
+            {
+                search[i] = true;
+                sources[count++] = i;
+            }
+        }
+
+        if (newCount != oldCount || !ownDistances)
+        {
+            distances = config.getDistanceStorage().createStore(newCount, config);
+            ownDistances = true;
+
+            int[] row = new int[newCount];
+            for (int i = 0; i < newCount; i++)
+            {
+                if (!search[i])
+                {
+                    for (int j = 0; j < newCount; j++)
+                    {
+                        row[j] = oldIndex[j] < 0 ? Integer.MAX_VALUE : oldDistances.getDistance(oldIndex[i], oldIndex[j]);
+                    }
+                    distances.setDistances(i, row);
+                }
+            }
+        }
+
+        log.debug("Searching {} of {} distance rows after change", count, newCount);
+        if (count > 0)
+        {
+            if (config.getParallelism() > 1 && isPureDistanceFunction())
+            {
+                calculateDijkstraParallel(config.getParallelism(), sources, count);
+            }
+            else
+            {
+                DijkstraSearch dijkstra = new DijkstraSearch(this, createQueue());
+                for (int i = 0; i < count; i++)
+                {
+                    distances.setDistances(sources[i], dijkstra.search(sources[i], null));
+                }
+            }
+        }
+    }
+
+    /**
+     * Replaces the simulation state with one for the new nodes. Remaining nodes keep their positions, new nodes start
+     * at their position in the graph.
+     */
+    private void resizeState(int[] oldIndex)
+    {
+        int newCount = oldIndex.length;
+        double[] oldData = getInternalState().getData();
+
+        State state = new State(newCount);
+        double[] data = state.getData();
+        for (int i = 0; i < newCount; i++)
+        {
+            int old = oldIndex[i];
+            data[i * 2] = old >= 0 ? oldData[old * 2] : graph.getX(i);
+            data[i * 2 + 1] = old >= 0 ? oldData[old * 2 + 1] : graph.getY(i);
+        }
+
+        resize(state, config.getIntegrationMethod().create(newCount, config));
+        subgraph = new int[newCount];
+        subgraphCount = edges.components(subgraph);
+        forceKernel = null;
+        floatPositions = null;
+        doublePositions = null;
+        doubleForces = null;
+        barnesHutTree = null;
+        barnesHutStack = null;
+        cellGrid = null;
+        stressMajorization = null;
+    }
+
+    /**
+     * Copies the edge distances of unchanged nodes into the new adjacency, their edges keep their order. Edges of
+     * changed nodes are calculated again.
+     */
+    private int[] updateEdgeDistances(Adjacency oldEdges, int[] oldEdgeDistances, int[] oldIndex, boolean[] changed)
+    {
+        int[] targets = edges.targets;
+        int[] newEdgeDistances = new int[targets.length];
+        for (int index = 0; index < nodeCount; index++)
+        {
+            int start = edges.offsets[index];
+            int oldStart = changed[index] ? -1 : oldEdges.offsets[oldIndex[index]];
+            for (int k = start, end = edges.offsets[index + 1]; k < end; k++)
+            {
+                int to = targets[k];
+                newEdgeDistances[k] = changed[index] || changed[to] ? getDistance(index, to) : oldEdgeDistances[oldStart + k - start];
+            }
+        }
+        return newEdgeDistances;
+    }
+
+    /**
+     * Moves the nodes around the nodes changed since the last relaxation into place. Only nodes within
+     * {@link GraphLayoutConfig#getRelaxationRadius()} edges of a changed node move, with repulsion and against all
+     * other nodes, which keep their positions. Runs at most {@link GraphLayoutConfig#getRelaxationIterations()} steps.
+     *
+     * Call {@link #update()} afterwards to write the positions back into the graph.
+     *
+     * @return result of the relaxation, displacements are measured over the moving nodes
+     */
+    public LayoutResult relax()
+    {
+        if (changedNodes == null)
+        {
+            return new LayoutResult(0, true, 0, 0, 0, getForceEvaluations());
+        }
+
+        mobileNodes = findMobileNodes(changedNodes, config.getRelaxationRadius());
+        changedNodes = null;
+
+        int maxIterations = config.getRelaxationIterations();
+        double tolerance = config.getConvergenceTolerance();
+        boolean useMax = config.getConvergenceCriterion() == ConvergenceCriterion.MAX_DISPLACEMENT;
+        int count = Math.max(mobileNodes.length, 1);
+
+        double[] current = getInternalState().getData();
+        double[] previous = new double[current.length];
+
+        int iterations = 0;
+        boolean converged = false;
+        double max = 0;
+        double squaredDisplacement = 0;
+
+        resetIntegrator();
+        try
+        {
+            while (iterations < maxIterations)
+            {
+                System.arraycopy(current, 0, previous, 0, current.length);
+                simulate();
+                iterations++;
+
+                max = 0;
+                squaredDisplacement = 0;
+                for (int index : mobileNodes)
+                {
+                    double x = current[index * 2] - previous[index * 2];
+                    double y = current[index * 2 + 1] - previous[index * 2 + 1];
+                    double squared = x * x + y * y;
+                    max = Math.max(max, squared);
+                    squaredDisplacement += squared;
+                }
+
+                double displacement = useMax ? Math.sqrt(max) : Math.sqrt(squaredDisplacement / count);
+                if (displacement < tolerance)
+                {
+                    converged = true;
+                    break;
+                }
+            }
+        }
+        finally
+        {
+            mobileNodes = null;
+            resetIntegrator();
+        }
+
+        LayoutResult result = new LayoutResult(iterations, converged, Math.sqrt(max), Math.sqrt(squaredDisplacement / count), squaredDisplacement, getForceEvaluations());
+        log.debug("relaxed: {}", result);
+        return result;
+    }
+
+    /**
+     * Returns the given nodes and all nodes within the given number of edges of them.
+     */
+    private int[] findMobileNodes(boolean[] changed, int radius)
+    {
+        int[] level = new int[nodeCount];
+        Arrays.fill(level, -1);
+
+        int[] queue = new int[nodeCount];
+        int tail = 0;
+        for (int i = 0; i < nodeCount; i++)
+        {
+            if (changed[i])
+            {
+                level[i] = 0;
+                queue[tail++] = i;
+            }
+        }
+
+        for (int head = 0; head < tail; head++)
+        {
+            int index = queue[head];
+            if (level[index] == radius)
+            {
+                continue;
+            }
+            for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+            {
+                int to = edges.targets[k];
+                if (level[to] < 0)
+                {
+                    level[to] = level[index] + 1;
+                    queue[tail++] = to;
+                }
+            }
+        }
+        return Arrays.copyOf(queue, tail);
+    }
+
+    /**
+     * Adds the forces of all nodes on the moving nodes to the derivative. The other nodes stay in place.
+     *
+     * @return new jitter angle
+     */
+    private double mobileForces(double[] stateXY, double[] derivativeXY, double angle, double time, double delta)
+    {
+        for (int i : mobileNodes)
+        {
+            int componentIndexI = i * 2;
+
+            double nodeX = stateXY[componentIndexI];
+            double nodeY = stateXY[componentIndexI + 1];
+
+            for (int j = 0; j < nodeCount; j++)
+            {
+                if (j == i)
+                {
+                    continue;
+                }
+
+                int componentIndexJ = j * 2;
+                double x = stateXY[componentIndexJ] - nodeX;
+                double y = stateXY[componentIndexJ + 1] - nodeY;
+
+                double distance;
+                if (x == 0 && y == 0)
+                {
+                    x = Math.cos(angle)/100000;
+                    y = Math.sin(angle)/100000;
+                    distance = 0.00001;
+
+                    angle += 0.5;
+                }
+                else
+                {
+                    distance = Math.sqrt(x * x + y * y);
+                }
+
+                double force = forces(i, j, distance, distances.getDistance(i, j), time);
+                if (force != 0)
+                {
+                    double factorToLength = (force * delta) / distance;
+                    derivativeXY[componentIndexI] -= x * factorToLength;
+                    derivativeXY[componentIndexI + 1] -= y * factorToLength;
+                }
+            }
+        }
+        return angle;
+    }
+
+    public GraphLayoutConfig getConfig()
+    {
+        return config;
+    }
+
+    /**
+     * Returns the target distances between the nodes.
+     */
+    public DistanceStore getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * Returns the graph the layout was built for, including the nodes and edges added or removed since.
+     */
+    public CompactGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Writes the resulting coordinates from the layout process back into the graph and the DirectedGraph data
+     * structure it was created from und return the current axis-aligned bounding box of the graph.
+     *
+     * @return axis-aligned bounding box of the graph
+     */
+    public AABB update()
+    {
+        double[] data = getInternalState().getData();
+
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+
+        for (int i = 0, j = 0; i < nodeCount; i++)
+        {
+            double x = data[j++];
+            double y = data[j++];
+
+            graph.setPosition(i, x, y);
+
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+        }
+
+        return new AABB(minX, minY, maxX - minX, maxY - minY);
+    }
+
+
+    public String getIdForIndex(int index)
+    {
+        return nodeIds[index];
+    }
+
+    public boolean areAllNodesConnected()
+    {
+        return subgraphCount <= 1;
+    }
+
+    /**
+     * Returns the number of connected components of the graph.
+     *
+     * @see ComponentLayout
+     */
+    public int getSubgraphCount()
+    {
+        return subgraphCount;
+    }
+
+
+    public String getDistanceDebugInfo()
+    {
+
+        StringBuilder sb = new StringBuilder();
+
+
+        for (int i=0; i < nodeCount; i++)
+        {
+            sb.append("Distances from ").append(nodeIds[i]).append(" to:\n");
+
+            for (int j=0; j < nodeCount; j++)
+            {
+                int distance = distances.getDistance(i, j);
+
+                sb.append(nodeIds[j]).append(": ").append(distance).append("\n");
+            }
+            sb.append("\n");
+        }
+
+        for (int i=0; i < nodeCount; i++)
+        {
+            for (int j=0; j < nodeCount; j++)
+            {
+                if (distances.getDistance(i, j) != distances.getDistance(j, i))
+                {
+                    sb.append("Distance from " + i + " to " + j + " is not the same as back.\n");
+                }
+            }
+        }
+
+
+        return sb.toString();
+    }
+
+    double[] force = new double[2];
+
+    @Override
+    protected State simulate(State state, double time, double delta)
+    {
+        State derivative = new State(nodeCount, config.getStatePrecision());
+        simulate(state, time, delta, derivative);
+        return derivative;
+    }
+
+    @Override
+    protected void simulate(State state, double time, double delta, State derivative)
+    {
+        derivative.clear();
+
+        if (delta == 0)
+        {
+            // Nothing happens in zero time..
+            return;
+        }
+
+        if (derivative.getPrecision() == StatePrecision.FLOAT)
+        {
+            simulateFloat(state, time, delta, derivative);
+            return;
+        }
+
+        double[] stateXY = interleaved(state);
+        double[] derivativeXY = derivative.getData();
+
+        if (mobileNodes != null)
+        {
+            angle = mobileForces(stateXY, derivativeXY, angle, time, delta);
+            return;
+        }
+
+        RepulsionMode mode = config.getRepulsionMode();
+        boolean pairRepulsion = mode == RepulsionMode.EXACT;
+        boolean spatialRepulsion = !pairRepulsion && time > pushStartTime;
+
+        if (spatialRepulsion)
+        {
+            buildSpatialIndex(stateXY);
+        }
+
+        if (config.getParallelism() > 1)
+        {
+            angle = forceKernel().run(stateXY, derivativeXY, angle, time, delta, pairRepulsion, spatialRepulsion);
+        }
+        else
+        {
+            angle = pairForces(stateXY, derivativeXY, 0, nodeCount, angle, time, delta, pairRepulsion);
+            if (spatialRepulsion)
+            {
+                spatialRepulsion(stateXY, derivativeXY, 0, nodeCount, delta, barnesHutStack);
+            }
+        }
+    }
+
+    /**
+     * Calculates the derivative into a {@link StatePrecision#FLOAT} state. The pair forces work on the float arrays,
+     * the relaxation forces and the Barnes-Hut or cutoff repulsion work on an interleaved double copy of the positions
+     * and are added to the derivative afterwards.
+     */
+    private void simulateFloat(State state, double time, double delta, State derivative)
+    {
+        if (mobileNodes != null)
+        {
+            State forces = doubleForces();
+            angle = mobileForces(interleaved(state), forces.getData(), angle, time, delta);
+            derivative.set(forces);
+            return;
+        }
+
+        State positions = state;
+        if (state.getPrecision() != StatePrecision.FLOAT)
+        {
+            if (floatPositions == null)
+            {
+                floatPositions = new State(nodeCount, StatePrecision.FLOAT);
+            }
+            positions = floatPositions.set(state);
+        }
+
+        float[] xs = positions.getXs();
+        float[] ys = positions.getYs();
+        float[] dxs = derivative.getXs();
+        float[] dys = derivative.getYs();
+
+        RepulsionMode mode = config.getRepulsionMode();
+        boolean pairRepulsion = mode == RepulsionMode.EXACT;
+        boolean spatialRepulsion = !pairRepulsion && time > pushStartTime;
+
+        double[] stateXY = null;
+        State forces = null;
+        if (spatialRepulsion)
+        {
+            stateXY = interleaved(state);
+            forces = doubleForces();
+            buildSpatialIndex(stateXY);
+        }
+
+        if (config.getParallelism() > 1)
+        {
+            angle = forceKernel().run(xs, ys, dxs, dys, stateXY, forces != null ? forces.getData() : null, angle, time, delta, pairRepulsion);
+        }
+        else
+        {
+            angle = pairForces(xs, ys, dxs, dys, 0, nodeCount, angle, time, delta, pairRepulsion);
+            if (spatialRepulsion)
+            {
+                spatialRepulsion(stateXY, forces.getData(), 0, nodeCount, delta, barnesHutStack);
+                derivative.add(forces);
+            }
+        }
+    }
+
+    /**
+     * Returns the interleaved positions of the given state, copied into a reused double state for a float state.
+     */
+    private double[] interleaved(State state)
+    {
+        if (state.getPrecision() == StatePrecision.DOUBLE)
+        {
+            return state.getData();
+        }
+        if (doublePositions == null)
+        {
+            doublePositions = new State(nodeCount);
+        }
+        return doublePositions.set(state).getData();
+    }
+
+    /**
+     * Returns the cleared double state that collects the relaxation forces and the spatial repulsion of the float
+     * path.
+     */
+    private State doubleForces()
+    {
+        if (doubleForces == null)
+        {
+            doubleForces = new State(nodeCount);
+        }
+        return doubleForces.clear();
+    }
+
+    /**
+     * Builds the Barnes-Hut tree or cutoff grid for the configured repulsion mode from the given positions.
+     */
+    private void buildSpatialIndex(double[] stateXY)
+    {
+        if (config.getRepulsionMode() == RepulsionMode.BARNES_HUT)
+        {
+            if (barnesHutTree == null)
+            {
+                barnesHutTree = new BarnesHutTree(nodeCount);
+                barnesHutStack = BarnesHutTree.createStack();
+            }
+            barnesHutTree.build(stateXY, nodeCount);
+        }
+        else
+        {
+            if (cellGrid == null)
+            {
+                cellGrid = new CellGrid(nodeCount);
+            }
+            cellGrid.build(stateXY, nodeCount, config.getRepulsionFallOff().getMax());
+        }
+    }
+
+    private ParallelForceKernel forceKernel()
+    {
+        if (forceKernel == null)
+        {
+            forceKernel = new ParallelForceKernel(this, config.getParallelism());
+        }
+        return forceKernel;
+    }
+
+    /**
+     * Adds the forces between the nodes of the given rows and all nodes with a higher index to the derivative.
+     *
+     * @param stateXY       interleaved node positions
+     * @param derivativeXY  interleaved derivative to add to
+     * @param start         first row
+     * @param end           end row (exclusive)
+     * @param angle         jitter angle for coincident nodes
+     * @param time          current time
+     * @param delta         time delta
+     * @param repulsion     if <code>true</code>, repulsion is included, otherwise only springs are calculated
+     * @return new jitter angle
+     */
+    double pairForces(double[] stateXY, double[] derivativeXY, int start, int end, double angle, double time, double delta, boolean repulsion)
+    {
+        // without repulsion only the stored pairs of a sparse store and the pairs with a landmark have forces
+        SparseDistanceStore sparse = null;
+        LandmarkDistanceStore landmarks = null;
+        if (!repulsion && distances instanceof SparseDistanceStore)
+        {
+            sparse = (SparseDistanceStore) distances;
+        }
+        else if (!repulsion && distances instanceof LandmarkDistanceStore)
+        {
+            landmarks = (LandmarkDistanceStore) distances;
+            sparse = landmarks.getLocal();
+        }
+
+        for (int i = start; i < end; i++)
+        {
+            if (sparse != null)
+            {
+                int[] rowTargets = sparse.getRowTargets(i);
+                int[] rowValues = sparse.getRowValues(i);
+                for (int k = 0; k < rowTargets.length; k++)
+                {
+                    angle = pairForce(stateXY, derivativeXY, i, rowTargets[k], rowValues[k], angle, time, delta, false);
+                }
+                if (landmarks != null)
+                {
+                    angle = landmarkForces(landmarks, stateXY, derivativeXY, i, angle, time, delta);
+                }
+                continue;
+            }
+
+            for (int j = i + 1; j < nodeCount; j++)
+            {
+                int targetDistance = distances.getDistance(i, j);
+
+                if (!repulsion && targetDistance == Integer.MAX_VALUE)
+                {
+                    // no spring between unconnected nodes
+                    continue;
+                }
+
+                angle = pairForce(stateXY, derivativeXY, i, j, targetDistance, angle, time, delta, repulsion);
+            }
+        }
+        return angle;
+    }
+
+    /**
+     * Adds the springs between a node and the landmarks beyond the cutoff to the derivative. A pair of two landmarks
+     * belongs to the one with the lower index.
+     *
+     * @return new jitter angle
+     */
+    private double landmarkForces(LandmarkDistanceStore landmarks, double[] stateXY, double[] derivativeXY, int i, double angle, double time, double delta)
+    {
+        int cutoff = landmarks.getCutoff();
+        boolean isLandmark = landmarks.isLandmark(i);
+        int[] indexes = landmarks.getLandmarks();
+        for (int p = 0; p < indexes.length; p++)
+        {
+            int j = indexes[p];
+            int targetDistance = landmarks.getLandmarkDistance(i, p);
+            if (targetDistance > cutoff && targetDistance != Integer.MAX_VALUE && (!isLandmark || j > i))
+            {
+                angle = pairForce(stateXY, derivativeXY, i, j, targetDistance, angle, time, delta, false);
+            }
+        }
+        return angle;
+    }
+
+    /**
+     * Adds the force between two nodes to the derivative.
+     *
+     * @return new jitter angle
+     */
+    private double pairForce(double[] stateXY, double[] derivativeXY, int i, int j, int targetDistance, double angle, double time, double delta, boolean repulsion)
+    {
+        int componentIndexI = i*2;
+        int componentIndexJ = j*2;
+        double x = stateXY[componentIndexJ] - stateXY[componentIndexI];
+        double y = stateXY[componentIndexJ + 1] - stateXY[componentIndexI + 1];
+
+        double distance;
+        if (x == 0 && y == 0)
+        {
+            x = Math.cos(angle)/100000;
+            y = Math.sin(angle)/100000;
+            distance = 0.00001;
+
+            angle += 0.5;
+        }
+        else
+        {
+            distance = Math.sqrt(x * x + y * y);
+        }
+
+        double force = repulsion ? forces( i, j, distance, targetDistance, time) : springForce(distance, targetDistance);
+
+        if (force != 0)
+        {
+            double factorToLength = (force * delta) / distance;
+            x *= factorToLength;
+            y *= factorToLength;
+
+            // force
+            derivativeXY[componentIndexJ] += x;
+            derivativeXY[componentIndexJ + 1] += y;
+
+            // counter-force
+            derivativeXY[componentIndexI] -= x;
+            derivativeXY[componentIndexI + 1] -= y;
+        }
+        return angle;
+    }
+
+    /**
+     * Adds the forces between the nodes of the given rows and all nodes with a higher index to the float derivative.
+     * Same as {@link #pairForces(double[], double[], int, int, double, double, double, boolean)} for
+     * {@link StatePrecision#FLOAT} states.
+     *
+     * @return new jitter angle
+     */
+    double pairForces(float[] xs, float[] ys, float[] dxs, float[] dys, int start, int end, double angle, double time, double delta, boolean repulsion)
+    {
+        SparseDistanceStore sparse = null;
+        LandmarkDistanceStore landmarks = null;
+        if (!repulsion && distances instanceof SparseDistanceStore)
+        {
+            sparse = (SparseDistanceStore) distances;
+        }
+        else if (!repulsion && distances instanceof LandmarkDistanceStore)
+        {
+            landmarks = (LandmarkDistanceStore) distances;
+            sparse = landmarks.getLocal();
+        }
+
+        for (int i = start; i < end; i++)
+        {
+            if (sparse != null)
+            {
+                int[] rowTargets = sparse.getRowTargets(i);
+                int[] rowValues = sparse.getRowValues(i);
+                for (int k = 0; k < rowTargets.length; k++)
+                {
+                    angle = pairForce(xs, ys, dxs, dys, i, rowTargets[k], rowValues[k], angle, time, delta, false);
+                }
+                if (landmarks != null)
+                {
+                    angle = landmarkForces(landmarks, xs, ys, dxs, dys, i, angle, time, delta);
+                }
+                continue;
+            }
+
+            for (int j = i + 1; j < nodeCount; j++)
+            {
+                int targetDistance = distances.getDistance(i, j);
+
+                if (!repulsion && targetDistance == Integer.MAX_VALUE)
+                {
+                    // no spring between unconnected nodes
+                    continue;
+                }
+
+                angle = pairForce(xs, ys, dxs, dys, i, j, targetDistance, angle, time, delta, repulsion);
+            }
+        }
+        return angle;
+    }
+
+    /**
+     * Adds the springs between a node and the landmarks beyond the cutoff to the float derivative.
+     *
+     * @return new jitter angle
+     */
+    private double landmarkForces(LandmarkDistanceStore landmarks, float[] xs, float[] ys, float[] dxs, float[] dys, int i, double angle, double time, double delta)
+    {
+        int cutoff = landmarks.getCutoff();
+        boolean isLandmark = landmarks.isLandmark(i);
+        int[] indexes = landmarks.getLandmarks();
+        for (int p = 0; p < indexes.length; p++)
+        {
+            int j = indexes[p];
+            int targetDistance = landmarks.getLandmarkDistance(i, p);
+            if (targetDistance > cutoff && targetDistance != Integer.MAX_VALUE && (!isLandmark || j > i))
+            {
+                angle = pairForce(xs, ys, dxs, dys, i, j, targetDistance, angle, time, delta, false);
+            }
+        }
+        return angle;
+    }
+
+    /**
+     * Adds the force between two nodes to the float derivative.
+     *
+     * @return new jitter angle
+     */
+    private double pairForce(float[] xs, float[] ys, float[] dxs, float[] dys, int i, int j, int targetDistance, double angle, double time, double delta, boolean repulsion)
+    {
+        double x = xs[j] - xs[i];
+        double y = ys[j] - ys[i];
+
+        double distance;
+        if (x == 0 && y == 0)
+        {
+            x = Math.cos(angle)/100000;
+            y = Math.sin(angle)/100000;
+            distance = 0.00001;
+
+            angle += 0.5;
+        }
+        else
+        {
+            distance = Math.sqrt(x * x + y * y);
+        }
+
+        double force = repulsion ? forces( i, j, distance, targetDistance, time) : springForce(distance, targetDistance);
+
+        if (force != 0)
+        {
+            double factorToLength = (force * delta) / distance;
+            float fx = (float) (x * factorToLength);
+            float fy = (float) (y * factorToLength);
+
+            // force
+            dxs[j] += fx;
+            dys[j] += fy;
+
+            // counter-force
+            dxs[i] -= fx;
+            dys[i] -= fy;
+        }
+        return angle;
+    }
+
+    private ParallelForceKernel forceKernel;
+
+    /** scratch states of the {@link StatePrecision#FLOAT} path */
+    private State floatPositions;
+    private State doublePositions;
+    private State doubleForces;
+
+    private BarnesHutTree barnesHutTree;
+    private int[] barnesHutStack;
+
+    private CellGrid cellGrid;
+
+    private StressMajorization stressMajorization;
+
+    private final BarnesHutTree.Repulsion repulsionFunction = new BarnesHutTree.Repulsion()
+    {
+        @Override
+        public double force(double distance)
+        {
+            return repulsionForce(distance);
+        }
+    };
+
+    /**
+     * Adds the repulsion of the {@link RepulsionMode#BARNES_HUT Barnes-Hut} quad-tree or the
+     * {@link RepulsionMode#CUTOFF cutoff} grid on the given nodes to the derivative. The tree or grid must have been
+     * built from the given positions.
+     *
+     * @param stack     stack for walking the quad-tree, unused for the grid
+     */
+    void spatialRepulsion(double[] stateXY, double[] derivativeXY, int start, int end, double delta, int[] stack)
+    {
+        if (config.getRepulsionMode() == RepulsionMode.CUTOFF)
+        {
+            double cutoff = config.getRepulsionFallOff().getMax();
+            for (int i = start; i < end; i++)
+            {
+                cellGrid.accumulate(i, stateXY, cutoff, repulsionFunction, delta, derivativeXY);
+            }
+            return;
+        }
+
+        double theta = config.getBarnesHutTheta();
+        double thetaSquared = theta * theta;
+        for (int i = start; i < end; i++)
+        {
+            barnesHutTree.accumulate(i, stateXY, thetaSquared, repulsionFunction, delta, derivativeXY, stack);
+        }
+    }
+
+    private final CompiledFallOffCurve springFallOff;
+    private final CompiledFallOffCurve repulsionFallOff;
+
+    /**
+     * The actual forces calculation.
+     *
+     * @param nodeIndexA        Node index of first node
+     * @param nodeIndexB        Node index of second node
+     * @param distance          Distance between nodes
+     * @param targetDistance    target distance according to distance calculation
+     * @param time              current time (will be a multiple of {@link GraphLayoutConfig#getStepSize()})
+     * @return force to apply to both nodes
+     */
+    protected double forces(int nodeIndexA, int nodeIndexB, double distance, int targetDistance, double time)
+    {
+        double force = springForce(distance, targetDistance);
+
+        // relaxing after a change always repulses, the layout is past its spring-only phase
+        if (time > pushStartTime || mobileNodes != null)
+        {
+            force += repulsionForce(distance);
+        }
+        return force;
+    }
+
+    /**
+     * Spring force between two nodes.
+     *
+     * @param distance          Distance between nodes
+     * @param targetDistance    target distance according to distance calculation
+     * @return spring force, 0 for unconnected nodes
+     */
+    protected double springForce(double distance, int targetDistance)
+    {
+        if (targetDistance < Integer.MAX_VALUE)
+        {
+            double factor = springFallOff.fallOff(distance);
+            return -(config.getSpringConstant() * factor) * (distance - targetDistance);
+        }
+        return 0;
     }
-}
 
+    /**
+     * Repulsion force between two nodes once the repulsion has started.
+     *
+     * @param distance          Distance between nodes
+     * @return repulsion force
+     */
+    protected double repulsionForce(double distance)
+    {
+        double factor = repulsionFallOff.fallOff(distance);
+        return this.config.getRepulsionForce() * factor;
+    }
+}
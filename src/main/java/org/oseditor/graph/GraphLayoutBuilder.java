@@ -1,5 +1,7 @@
 package org.oseditor.graph;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Builds and configures {@link GraphLayout}s.
  */
@@ -26,6 +28,96 @@ public class GraphLayoutBuilder
 
     private double distanceFactor = 1;
 
+    private RepulsionMode repulsionMode = RepulsionMode.EXACT;
+
+    private double barnesHutTheta = 0.75;
+
+    private DistanceStorage distanceStorage = DistanceStorage.DENSE;
+
+    private int distanceCutoff = 5;
+
+    private PriorityQueueType priorityQueueType = PriorityQueueType.HEAP;
+
+    private ShortestPathAlgorithm shortestPathAlgorithm = ShortestPathAlgorithm.AUTO;
+
+    private int parallelism = 1;
+
+    private ExecutorService executor;
+
+    private boolean reuseBuffers = true;
+
+    private IntegrationMethod integrationMethod = IntegrationMethod.RUNGE_KUTTA;
+
+    private StatePrecision statePrecision = StatePrecision.DOUBLE;
+
+    private double integratorTolerance = 0.01;
+
+    private double convergenceTolerance = 0.001;
+
+    private ConvergenceCriterion convergenceCriterion = ConvergenceCriterion.MAX_DISPLACEMENT;
+
+    private int fallOffResolution = 0;
+
+    private int relaxationIterations = 50;
+
+    private int relaxationRadius = 2;
+
+    private boolean warmStart = false;
+
+    private int warmStartIterations = 20;
+
+    private InitialPlacement initialPlacement = InitialPlacement.NONE;
+
+    private LayoutSolver layoutSolver = LayoutSolver.FORCES;
+
+    private int stressPivots = 50;
+
+    private int landmarkCount = 50;
+
+    public GraphLayoutBuilder()
+    {
+    }
+
+    /**
+     * Creates a builder with the settings of the given configuration.
+     */
+    public GraphLayoutBuilder(GraphLayoutConfig config)
+    {
+        iterations = config.getIterations();
+        repulsionStart = config.getRepulsionStart();
+        stepSize = config.getStepSize();
+        springConstant = config.getSpringConstant();
+        initialSeed = config.getInitialSeed();
+        distanceFunction = config.getDistanceFunction();
+        repulsionForce = config.getRepulsionForce();
+        springFallOff = config.getSpringFallOff();
+        repulsionFallOff = config.getRepulsionFallOff();
+        distanceFactor = config.getDistanceFactor();
+        repulsionMode = config.getRepulsionMode();
+        barnesHutTheta = config.getBarnesHutTheta();
+        distanceStorage = config.getDistanceStorage();
+        distanceCutoff = config.getDistanceCutoff();
+        priorityQueueType = config.getPriorityQueueType();
+        shortestPathAlgorithm = config.getShortestPathAlgorithm();
+        parallelism = config.getParallelism();
+        executor = config.getExecutor();
+        reuseBuffers = config.isReuseBuffers();
+        integrationMethod = config.getIntegrationMethod();
+        statePrecision = config.getStatePrecision();
+        integratorTolerance = config.getIntegratorTolerance();
+        convergenceTolerance = config.getConvergenceTolerance();
+        convergenceCriterion = config.getConvergenceCriterion();
+        fallOffResolution = config.getFallOffResolution();
+        relaxationIterations = config.getRelaxationIterations();
+        relaxationRadius = config.getRelaxationRadius();
+        warmStart = config.isWarmStart();
+        warmStartIterations = config.getWarmStartIterations();
+        initialPlacement = config.getInitialPlacement();
+        layoutSolver = config.getLayoutSolver();
+        stressPivots = config.getStressPivots();
+        landmarkCount = config.getLandmarkCount();
+    }
+
     @Override
     public int getIterations()
     {
@@ -168,9 +260,350 @@ public class GraphLayoutBuilder
         return this;
     }
 
+    @Override
+    public RepulsionMode getRepulsionMode()
+    {
+        return repulsionMode;
+    }
+
+    public GraphLayoutBuilder withRepulsionMode(RepulsionMode repulsionMode)
+    {
+        this.repulsionMode = repulsionMode;
+        return this;
+    }
+
+    @Override
+    public double getBarnesHutTheta()
+    {
+        return barnesHutTheta;
+    }
+
+    /**
+     * Switches to the Barnes-Hut repulsion with the given opening angle.
+     *
+     * @param theta     opening angle
+     * @return this builder
+     */
+    public GraphLayoutBuilder withBarnesHut(double theta)
+    {
+        this.repulsionMode = RepulsionMode.BARNES_HUT;
+        this.barnesHutTheta = theta;
+        return this;
+    }
+
+    @Override
+    public DistanceStorage getDistanceStorage()
+    {
+        return distanceStorage;
+    }
+
+    public GraphLayoutBuilder withDistanceStorage(DistanceStorage distanceStorage)
+    {
+        this.distanceStorage = distanceStorage;
+        return this;
+    }
+
+    @Override
+    public int getDistanceCutoff()
+    {
+        return distanceCutoff;
+    }
+
+    /**
+     * Sets the maximum distance kept by the storages that {@link DistanceStorage#usesCutoff() use a cutoff}. The other
+     * storages keep all distances and ignore it.
+     *
+     * @param distanceCutoff    maximum distance to keep
+     * @return this builder
+     */
+    public GraphLayoutBuilder withDistanceCutoff(int distanceCutoff)
+    {
+        this.distanceCutoff = distanceCutoff;
+        return this;
+    }
+
+    @Override
+    public PriorityQueueType getPriorityQueueType()
+    {
+        return priorityQueueType;
+    }
+
+    public GraphLayoutBuilder withPriorityQueueType(PriorityQueueType priorityQueueType)
+    {
+        this.priorityQueueType = priorityQueueType;
+        return this;
+    }
+
+    @Override
+    public ShortestPathAlgorithm getShortestPathAlgorithm()
+    {
+        return shortestPathAlgorithm;
+    }
+
+    public GraphLayoutBuilder withShortestPathAlgorithm(ShortestPathAlgorithm shortestPathAlgorithm)
+    {
+        this.shortestPathAlgorithm = shortestPathAlgorithm;
+        return this;
+    }
+
+    /**
+     * Declares all edges to have a distance of 1, so the distances are calculated with a breadth-first search.
+     *
+     * @return this builder
+     */
+    public GraphLayoutBuilder withUnitDistances()
+    {
+        return withShortestPathAlgorithm(ShortestPathAlgorithm.BFS);
+    }
+
+    @Override
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    public GraphLayoutBuilder withParallelism(int parallelism)
+    {
+        if (parallelism < 1)
+        {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    @Override
+    public ExecutorService getExecutor()
+    {
+        return executor;
+    }
+
+    /**
+     * Runs parallel work on the given executor instead of a pool created by the layout. The executor is not shut down
+     * by the layout.
+     *
+     * @param executor      executor
+     * @return this builder
+     */
+    public GraphLayoutBuilder withExecutor(ExecutorService executor)
+    {
+        this.executor = executor;
+        return this;
+    }
+
+    @Override
+    public boolean isReuseBuffers()
+    {
+        return reuseBuffers;
+    }
+
+    public GraphLayoutBuilder withReuseBuffers(boolean reuseBuffers)
+    {
+        this.reuseBuffers = reuseBuffers;
+        return this;
+    }
+
+    @Override
+    public IntegrationMethod getIntegrationMethod()
+    {
+        return integrationMethod;
+    }
+
+    public GraphLayoutBuilder withIntegrationMethod(IntegrationMethod integrationMethod)
+    {
+        this.integrationMethod = integrationMethod;
+        return this;
+    }
+
+    @Override
+    public StatePrecision getStatePrecision()
+    {
+        return statePrecision;
+    }
+
+    public GraphLayoutBuilder withStatePrecision(StatePrecision statePrecision)
+    {
+        this.statePrecision = statePrecision;
+        return this;
+    }
+
+    @Override
+    public double getIntegratorTolerance()
+    {
+        return integratorTolerance;
+    }
+
+    public GraphLayoutBuilder withIntegratorTolerance(double integratorTolerance)
+    {
+        this.integratorTolerance = integratorTolerance;
+        return this;
+    }
+
+    @Override
+    public double getConvergenceTolerance()
+    {
+        return convergenceTolerance;
+    }
+
+    public GraphLayoutBuilder withConvergenceTolerance(double convergenceTolerance)
+    {
+        this.convergenceTolerance = convergenceTolerance;
+        return this;
+    }
+
+    @Override
+    public ConvergenceCriterion getConvergenceCriterion()
+    {
+        return convergenceCriterion;
+    }
+
+    public GraphLayoutBuilder withConvergenceCriterion(ConvergenceCriterion convergenceCriterion)
+    {
+        this.convergenceCriterion = convergenceCriterion;
+        return this;
+    }
+
+    @Override
+    public int getFallOffResolution()
+    {
+        return fallOffResolution;
+    }
+
+    public GraphLayoutBuilder withFallOffResolution(int fallOffResolution)
+    {
+        this.fallOffResolution = fallOffResolution;
+        return this;
+    }
+
+    @Override
+    public int getRelaxationIterations()
+    {
+        return relaxationIterations;
+    }
+
+    public GraphLayoutBuilder withRelaxationIterations(int relaxationIterations)
+    {
+        this.relaxationIterations = relaxationIterations;
+        return this;
+    }
+
+    @Override
+    public int getRelaxationRadius()
+    {
+        return relaxationRadius;
+    }
+
+    public GraphLayoutBuilder withRelaxationRadius(int relaxationRadius)
+    {
+        this.relaxationRadius = relaxationRadius;
+        return this;
+    }
+
+    @Override
+    public boolean isWarmStart()
+    {
+        return warmStart;
+    }
+
+    public GraphLayoutBuilder withWarmStart(boolean warmStart)
+    {
+        this.warmStart = warmStart;
+        return this;
+    }
+
+    @Override
+    public int getWarmStartIterations()
+    {
+        return warmStartIterations;
+    }
+
+    public GraphLayoutBuilder withWarmStartIterations(int warmStartIterations)
+    {
+        this.warmStartIterations = warmStartIterations;
+        return this;
+    }
+
+    @Override
+    public InitialPlacement getInitialPlacement()
+    {
+        return initialPlacement;
+    }
+
+    public GraphLayoutBuilder withInitialPlacement(InitialPlacement initialPlacement)
+    {
+        this.initialPlacement = initialPlacement;
+        return this;
+    }
+
+    @Override
+    public LayoutSolver getLayoutSolver()
+    {
+        return layoutSolver;
+    }
+
+    public GraphLayoutBuilder withLayoutSolver(LayoutSolver layoutSolver)
+    {
+        this.layoutSolver = layoutSolver;
+        return this;
+    }
+
+    @Override
+    public int getStressPivots()
+    {
+        return stressPivots;
+    }
+
+    public GraphLayoutBuilder withStressPivots(int stressPivots)
+    {
+        this.stressPivots = stressPivots;
+        return this;
+    }
+
+    @Override
+    public int getLandmarkCount()
+    {
+        return landmarkCount;
+    }
+
+    /**
+     * Switches to the {@link DistanceStorage#LANDMARK} storage which keeps the distances up to the
+     * {@link #withDistanceCutoff(int) cutoff} and estimates all others with the given number of landmarks.
+     *
+     * @param landmarkCount     number of landmarks
+     * @return this builder
+     */
+    public GraphLayoutBuilder withLandmarks(int landmarkCount)
+    {
+        this.distanceStorage = DistanceStorage.LANDMARK;
+        this.landmarkCount = landmarkCount;
+        return this;
+    }
+
     public GraphLayout buildFor(DirectedGraph graph)
     {
 
         return new GraphLayout(graph, this);
     }
+
+    /**
+     * Builds a layout for a graph without {@link DirectedGraph} / {@link GraphNode} objects.
+     */
+    public GraphLayout buildFor(CompactGraph graph)
+    {
+        return new GraphLayout(graph, this);
+    }
+
+    /**
+     * Builds a layout for a graph whose distances are already known, e.g. from a saved snapshot. The distances are
+     * used as they are, the configured distance storage and shortest path settings don't apply.
+     */
+    public GraphLayout buildFor(CompactGraph graph, DistanceStore distances)
+    {
+        if (distances == null)
+        {
+            throw new IllegalArgumentException("distances can't be null");
+        }
+        return new GraphLayout(graph, this, distances);
+    }
 }
@@ -1,7 +1,12 @@
 package org.oseditor.graph;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * Configuration for a {@link GraphLayout}.
+ *
+ * The settings beyond the basic simulation parameters have default implementations returning the defaults of
+ * {@link GraphLayoutBuilder}, so existing implementations keep working unchanged.
  */
 public interface GraphLayoutConfig
 {
@@ -24,4 +29,193 @@ public interface GraphLayoutConfig
     FallOffCurveDefinition getRepulsionFallOff();
 
     double getDistanceFactor();
+
+    default RepulsionMode getRepulsionMode()
+    {
+        return RepulsionMode.EXACT;
+    }
+
+    /**
+     * Opening angle for {@link RepulsionMode#BARNES_HUT}. A cell of the quad-tree is summarized by its center of
+     * mass if its size divided by the distance to it is lower than theta. 0 is exact, higher is faster but coarser.
+     */
+    default double getBarnesHutTheta()
+    {
+        return 0.75;
+    }
+
+    /**
+     * Storage used for the target distances between nodes.
+     */
+    default DistanceStorage getDistanceStorage()
+    {
+        return DistanceStorage.DENSE;
+    }
+
+    /**
+     * Maximum distance kept by {@link DistanceStorage#SPARSE} and the exact distances kept by
+     * {@link DistanceStorage#LANDMARK}. With a distance function returning 1 this is the
+     * number of hops. The other storages keep all distances and ignore it.
+     */
+    default int getDistanceCutoff()
+    {
+        return 5;
+    }
+
+    /**
+     * Priority queue used by the shortest path search.
+     */
+    default PriorityQueueType getPriorityQueueType()
+    {
+        return PriorityQueueType.HEAP;
+    }
+
+    /**
+     * Algorithm used to calculate the target distances.
+     */
+    default ShortestPathAlgorithm getShortestPathAlgorithm()
+    {
+        return ShortestPathAlgorithm.AUTO;
+    }
+
+    /**
+     * Number of threads used for parallel work. 1 does everything on the calling thread.
+     */
+    default int getParallelism()
+    {
+        return 1;
+    }
+
+    /**
+     * Executor to run parallel work on. If <code>null</code>, the layout creates a pool with {@link #getParallelism()}
+     * threads.
+     */
+    default ExecutorService getExecutor()
+    {
+        return null;
+    }
+
+    /**
+     * If <code>true</code>, the intermediary states of the simulation are allocated once and reused in every step.
+     */
+    default boolean isReuseBuffers()
+    {
+        return true;
+    }
+
+    /**
+     * Integrator used for the simulation steps.
+     */
+    default IntegrationMethod getIntegrationMethod()
+    {
+        return IntegrationMethod.RUNGE_KUTTA;
+    }
+
+    /**
+     * Precision of the intermediary states and derivatives the integrator calculates the forces for.
+     */
+    default StatePrecision getStatePrecision()
+    {
+        return StatePrecision.DOUBLE;
+    }
+
+    /**
+     * Maximum estimated position error per step for {@link IntegrationMethod#DORMAND_PRINCE}.
+     */
+    default double getIntegratorTolerance()
+    {
+        return 0.01;
+    }
+
+    /**
+     * Node movement per step below which {@link GraphLayout#run()} considers the layout converged.
+     */
+    default double getConvergenceTolerance()
+    {
+        return 0.001;
+    }
+
+    default ConvergenceCriterion getConvergenceCriterion()
+    {
+        return ConvergenceCriterion.MAX_DISPLACEMENT;
+    }
+
+    /**
+     * Resolution of the lookup tables the fall off curves are compiled to, 0 to evaluate them as polynomials.
+     *
+     * @see CompiledFallOffCurve
+     */
+    default int getFallOffResolution()
+    {
+        return 0;
+    }
+
+    /**
+     * Maximum number of steps {@link GraphLayout#relax()} runs after the graph was changed.
+     */
+    default int getRelaxationIterations()
+    {
+        return 50;
+    }
+
+    /**
+     * Number of edges around a changed node within which {@link GraphLayout#relax()} moves nodes.
+     */
+    default int getRelaxationRadius()
+    {
+        return 2;
+    }
+
+    /**
+     * If <code>true</code>, the initial positions already are a layout that only needs refining, e.g. the result of
+     * an earlier layout or a snapshot. The repulsion starts right away and {@link GraphLayout#run()} runs at most
+     * {@link #getWarmStartIterations()} steps.
+     */
+    default boolean isWarmStart()
+    {
+        return false;
+    }
+
+    /**
+     * Maximum number of steps {@link GraphLayout#run()} runs for a warm start.
+     */
+    default int getWarmStartIterations()
+    {
+        return 20;
+    }
+
+    /**
+     * Strategy to place the nodes before the simulation starts. Not used for a {@link #isWarmStart() warm start},
+     * which keeps the given positions.
+     */
+    default InitialPlacement getInitialPlacement()
+    {
+        return InitialPlacement.NONE;
+    }
+
+    /**
+     * Method {@link GraphLayout#run()} uses to lay out the nodes.
+     */
+    default LayoutSolver getLayoutSolver()
+    {
+        return LayoutSolver.FORCES;
+    }
+
+    /**
+     * Number of pivot nodes {@link LayoutSolver#STRESS_MAJORIZATION} uses to approximate the target distances beyond
+     * the cutoff of {@link DistanceStorage#SPARSE}, 0 to only use the stored distances. With
+     * {@link DistanceStorage#LANDMARK} the landmarks are the pivots.
+     */
+    default int getStressPivots()
+    {
+        return 50;
+    }
+
+    /**
+     * Number of landmarks {@link DistanceStorage#LANDMARK} estimates the distances beyond the cutoff with.
+     */
+    default int getLandmarkCount()
+    {
+        return 50;
+    }
 }
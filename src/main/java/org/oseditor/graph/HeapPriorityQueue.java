@@ -0,0 +1,177 @@
+package org.oseditor.graph;
+
+/**
+ * Indexed d-ary min-heap. The values are restricted to 0 to capacity - 1 and are used as index into a position map,
+ * so {@link #lowerPriority(int, int, int)} finds the value in constant time and sifts it up in O(log n).
+ */
+public final class HeapPriorityQueue
+    implements IntPriorityQueue
+{
+    private final int arity;
+
+    private int count;
+
+    /** values by heap position */
+    private final int[] heap;
+
+    /** priorities by value */
+    private final int[] priorities;
+
+    /** heap positions by value, -1 if the value is not in the queue */
+    private final int[] positions;
+
+    public HeapPriorityQueue(int capacity)
+    {
+        this(capacity, 4);
+    }
+
+    public HeapPriorityQueue(int capacity, int arity)
+    {
+        if (arity < 2)
+        {
+            throw new IllegalArgumentException("arity must be at least 2");
+        }
+
+        this.arity = arity;
+        heap = new int[capacity];
+        priorities = new int[capacity];
+        positions = new int[capacity];
+
+        for (int i = 0; i < capacity; i++)
+        {
+            positions[i] = -1;
+        }
+    }
+
+    @Override
+    public void add(int priority, int value)
+    {
+        if (value < 0 || value >= positions.length)
+        {
+            throw new IllegalArgumentException("Value " + value + " is out of range for capacity " + positions.length);
+        }
+        if (positions[value] >= 0)
+        {
+            throw new IllegalArgumentException("Value " + value + " is already in the queue");
+        }
+
+        priorities[value] = priority;
+        siftUp(count++, value);
+    }
+
+    @Override
+    public void lowerPriority(int value, int priority, int lowerPriority)
+    {
+        if (lowerPriority >= priority)
+        {
+            throw new PriorityNotLowerException(priority, lowerPriority);
+        }
+
+        if (value < 0 || value >= positions.length || positions[value] < 0 || priorities[value] != priority)
+        {
+            throw new QueueElementNotFound(priority, value);
+        }
+
+        priorities[value] = lowerPriority;
+        siftUp(positions[value], value);
+    }
+
+    @Override
+    public int popMinimalValue()
+    {
+        if (count == 0)
+        {
+            throw new QueueEmptyException();
+        }
+
+        int value = heap[0];
+        positions[value] = -1;
+
+        count--;
+        if (count > 0)
+        {
+            siftDown(0, heap[count]);
+        }
+
+        return value;
+    }
+
+    private void siftUp(int pos, int value)
+    {
+        int priority = priorities[value];
+        while (pos > 0)
+        {
+            int parentPos = (pos - 1) / arity;
+            int parent = heap[parentPos];
+            if (priorities[parent] <= priority)
+            {
+                break;
+            }
+            heap[pos] = parent;
+            positions[parent] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = value;
+        positions[value] = pos;
+    }
+
+    private void siftDown(int pos, int value)
+    {
+        int priority = priorities[value];
+        while (true)
+        {
+            int firstChild = pos * arity + 1;
+            if (firstChild >= count)
+            {
+                break;
+            }
+
+            int end = Math.min(firstChild + arity, count);
+            int minPos = firstChild;
+            int minPriority = priorities[heap[firstChild]];
+            for (int childPos = firstChild + 1; childPos < end; childPos++)
+            {
+                int p = priorities[heap[childPos]];
+                if (p < minPriority)
+                {
+                    minPriority = p;
+                    minPos = childPos;
+                }
+            }
+
+            if (minPriority >= priority)
+            {
+                break;
+            }
+
+            int child = heap[minPos];
+            heap[pos] = child;
+            positions[child] = pos;
+            pos = minPos;
+        }
+        heap[pos] = value;
+        positions[value] = pos;
+    }
+
+    @Override
+    public int size()
+    {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < count; i++)
+        {
+            positions[heap[i]] = -1;
+        }
+        count = 0;
+    }
+}
@@ -0,0 +1,245 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Strategies to place the nodes before the simulation starts. Nodes that start apart need fewer steps than nodes
+ * that start on top of each other and only get separated by jitter. All random choices use
+ * {@link GraphLayoutConfig#getInitialSeed()}, so a graph is always placed the same way.
+ *
+ * @see GraphLayoutConfig#getInitialPlacement()
+ */
+public enum InitialPlacement
+{
+    /**
+     * Keeps the positions of the graph nodes.
+     */
+    NONE
+    {
+        @Override
+        void place(GraphLayout layout, double[] stateXY)
+        {
+        }
+    },
+    /**
+     * Uniformly random positions in a disk that gives every node about the area of a square with the average edge
+     * distance as side.
+     */
+    RANDOM_DISK
+    {
+        @Override
+        void place(GraphLayout layout, double[] stateXY)
+        {
+            Random random = layout.random;
+            double radius = layout.getAverageEdgeDistance() * Math.sqrt(layout.nodeCount / Math.PI);
+            for (int i = 0; i < layout.nodeCount; i++)
+            {
+                double r = radius * Math.sqrt(random.nextDouble());
+                double angle = TAU * random.nextDouble();
+                stateXY[i * 2] = r * Math.cos(angle);
+                stateXY[i * 2 + 1] = r * Math.sin(angle);
+            }
+        }
+    },
+    /**
+     * Nodes on a circle in breadth-first order, so neighbours start close to each other. The circle has about the
+     * average edge distance between adjacent nodes.
+     */
+    CIRCLE
+    {
+        @Override
+        void place(GraphLayout layout, double[] stateXY)
+        {
+            int nodeCount = layout.nodeCount;
+            int[] order = breadthFirstOrder(layout.edges, nodeCount, null);
+            double radius = nodeCount * layout.getAverageEdgeDistance() / TAU;
+            for (int i = 0; i < nodeCount; i++)
+            {
+                double angle = TAU * i / nodeCount;
+                stateXY[order[i] * 2] = radius * Math.cos(angle);
+                stateXY[order[i] * 2 + 1] = radius * Math.sin(angle);
+            }
+        }
+    },
+    /**
+     * Classical multidimensional scaling of the target distances, approximated with a few pivot nodes. Comes close to
+     * the final layout. With a storage that {@link DistanceStorage#usesCutoff() uses a cutoff}, the distances of the
+     * pivots are searched, which takes one search per pivot.
+     */
+    MDS
+    {
+        @Override
+        void place(GraphLayout layout, double[] stateXY)
+        {
+            new PivotMDS(layout, MDS_PIVOTS).place(stateXY);
+            scaleToEdgeDistances(layout, stateXY);
+
+            // nodes with the same distances to all pivots end up on the same spot
+            double jitter = layout.getAverageEdgeDistance() * 0.01;
+            for (int i = 0; i < stateXY.length; i++)
+            {
+                stateXY[i] += (layout.random.nextDouble() - 0.5) * jitter;
+            }
+        }
+    },
+    /**
+     * Breadth-first levels as rows, starting at the node with the highest degree of each connected component.
+     * Components are placed next to each other.
+     */
+    BFS_LAYERED
+    {
+        @Override
+        void place(GraphLayout layout, double[] stateXY)
+        {
+            int nodeCount = layout.nodeCount;
+            int[] level = new int[nodeCount];
+            int[] order = breadthFirstOrder(layout.edges, nodeCount, level);
+            double spacing = layout.getAverageEdgeDistance();
+
+            double offset = 0;
+            int start = 0;
+            while (start < nodeCount)
+            {
+                // components start at level 0
+                int end = start + 1;
+                while (end < nodeCount && level[order[end]] > 0)
+                {
+                    end++;
+                }
+
+                int width = 0;
+                for (int i = start, run = 0; i < end; i++)
+                {
+                    run = i > start && level[order[i]] == level[order[i - 1]] ? run + 1 : 1;
+                    width = Math.max(width, run);
+                }
+
+                for (int i = start; i < end; )
+                {
+                    int runEnd = i + 1;
+                    while (runEnd < end && level[order[runEnd]] == level[order[i]])
+                    {
+                        runEnd++;
+                    }
+
+                    double x = offset + (width - (runEnd - i)) * spacing / 2;
+                    for (int j = i; j < runEnd; j++, x += spacing)
+                    {
+                        stateXY[order[j] * 2] = x;
+                        stateXY[order[j] * 2 + 1] = level[order[j]] * spacing;
+                    }
+                    i = runEnd;
+                }
+
+                offset += (width + 1) * spacing;
+                start = end;
+            }
+        }
+    };
+
+    private static final double TAU = Math.PI * 2;
+
+    private static final int MDS_PIVOTS = 50;
+
+    /**
+     * Writes the initial positions of all nodes into the given interleaved positions. The target distances are
+     * already calculated.
+     */
+    abstract void place(GraphLayout layout, double[] stateXY);
+
+    /**
+     * Scales the positions so the edges have their target distance on average.
+     */
+    private static void scaleToEdgeDistances(GraphLayout layout, double[] stateXY)
+    {
+        int[] offsets = layout.edges.offsets;
+        int[] targets = layout.edges.targets;
+        double distanceSum = 0;
+        double lengthSum = 0;
+        for (int index = 0; index < layout.nodeCount; index++)
+        {
+            for (int k = offsets[index], end = offsets[index + 1]; k < end; k++)
+            {
+                double x = stateXY[targets[k] * 2] - stateXY[index * 2];
+                double y = stateXY[targets[k] * 2 + 1] - stateXY[index * 2 + 1];
+                distanceSum += layout.getEdgeDistance(index, k);
+                lengthSum += Math.sqrt(x * x + y * y);
+            }
+        }
+
+        if (distanceSum > 0 && lengthSum > 0)
+        {
+            double scale = distanceSum / lengthSum;
+            for (int i = 0; i < stateXY.length; i++)
+            {
+                stateXY[i] *= scale;
+            }
+        }
+    }
+
+    /**
+     * Returns all nodes in breadth-first order. Each connected component starts at its node with the highest degree.
+     *
+     * @param edges         adjacency of the layout
+     * @param nodeCount     number of nodes
+     * @param level         receives the breadth-first level of every node if not <code>null</code>
+     */
+    private static int[] breadthFirstOrder(Adjacency edges, int nodeCount, int[] level)
+    {
+        int[] offsets = edges.offsets;
+        int[] targets = edges.targets;
+
+        // counting sort by descending degree
+        int maxDegree = 0;
+        for (int i = 0; i < nodeCount; i++)
+        {
+            maxDegree = Math.max(maxDegree, offsets[i + 1] - offsets[i]);
+        }
+        int[] firstOfDegree = new int[maxDegree + 2];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            firstOfDegree[maxDegree - (offsets[i + 1] - offsets[i]) + 1]++;
+        }
+        for (int d = 1; d < firstOfDegree.length; d++)
+        {
+            firstOfDegree[d] += firstOfDegree[d - 1];
+        }
+        int[] byDegree = new int[nodeCount];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            byDegree[firstOfDegree[maxDegree - (offsets[i + 1] - offsets[i])]++] = i;
+        }
+
+        int[] order = new int[nodeCount];
+        int[] levels = level != null ? level : new int[nodeCount];
+        Arrays.fill(levels, -1);
+
+        int tail = 0;
+        for (int root : byDegree)
+        {
+            if (levels[root] >= 0)
+            {
+                continue;
+            }
+
+            levels[root] = 0;
+            int head = tail;
+            order[tail++] = root;
+            while (head < tail)
+            {
+                int index = order[head++];
+                for (int k = offsets[index], end = offsets[index + 1]; k < end; k++)
+                {
+                    int to = targets[k];
+                    if (levels[to] < 0)
+                    {
+                        levels[to] = levels[index] + 1;
+                        order[tail++] = to;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,40 @@
+package org.oseditor.graph;
+
+/**
+ * Priority queue of <code>int</code> values with <code>int</code> priorities as used by the shortest path search
+ * in {@link GraphLayout}.
+ *
+ * @see PriorityQueueType
+ */
+public interface IntPriorityQueue
+{
+    void add(int priority, int value);
+
+    /**
+     * Lowers the priority of a value in the queue.
+     *
+     * @param value             value
+     * @param priority          current priority of the value
+     * @param lowerPriority     new, lower priority
+     *
+     * @throws PriorityNotLowerException if the new priority is not lower
+     * @throws QueueElementNotFound if the value is not in the queue with the given priority
+     */
+    void lowerPriority(int value, int priority, int lowerPriority);
+
+    /**
+     * Removes the value with the lowest priority from the queue and returns it.
+     *
+     * @throws QueueEmptyException if the queue is empty
+     */
+    int popMinimalValue();
+
+    int size();
+
+    boolean isEmpty();
+
+    /**
+     * Removes all values from the queue.
+     */
+    void clear();
+}
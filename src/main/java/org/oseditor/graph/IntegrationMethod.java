@@ -0,0 +1,59 @@
+package org.oseditor.graph;
+
+/**
+ * Available integrators for {@link AbstractForceSolver}.
+ *
+ * @see GraphLayoutConfig#getIntegrationMethod()
+ */
+public enum IntegrationMethod
+{
+    /**
+     * Explicit Euler, one force evaluation per step. Cheap but needs small steps to stay stable.
+     */
+    EULER
+    {
+        @Override
+        Integrator create(int nodeCount, GraphLayoutConfig config)
+        {
+            return new EulerIntegrator(nodeCount, config.getStatePrecision());
+        }
+    },
+    /**
+     * Two-step Adams-Bashforth, one force evaluation per step with second order accuracy by reusing the derivative
+     * of the previous step.
+     */
+    ADAMS_BASHFORTH
+    {
+        @Override
+        Integrator create(int nodeCount, GraphLayoutConfig config)
+        {
+            return new AdamsBashforthIntegrator(nodeCount, config.getStatePrecision());
+        }
+    },
+    /**
+     * Classic fourth order Runge-Kutta with a fixed step size, the reference integrator.
+     */
+    RUNGE_KUTTA
+    {
+        @Override
+        Integrator create(int nodeCount, GraphLayoutConfig config)
+        {
+            return new RungeKuttaIntegrator(nodeCount, config.isReuseBuffers(), config.getStatePrecision());
+        }
+    },
+    /**
+     * Dormand-Prince 5(4) with adaptive step size. Six force evaluations per accepted step, the step size grows while
+     * the estimated error stays below {@link GraphLayoutConfig#getIntegratorTolerance()}. Always calculates with
+     * {@link StatePrecision#DOUBLE} states.
+     */
+    DORMAND_PRINCE
+    {
+        @Override
+        Integrator create(int nodeCount, GraphLayoutConfig config)
+        {
+            return new DormandPrinceIntegrator(nodeCount, config.getStepSize(), config.getIntegratorTolerance());
+        }
+    };
+
+    abstract Integrator create(int nodeCount, GraphLayoutConfig config);
+}
@@ -0,0 +1,32 @@
+package org.oseditor.graph;
+
+/**
+ * Integration step strategy of an {@link AbstractForceSolver}.
+ *
+ * The derivative the solver calculates for a time delta is the force applied over that delta. Classic RK4 with step
+ * size h effectively moves the nodes by h times the derivative for h / 2, so all other integrators use that as the
+ * rate of change to stay comparable.
+ *
+ * @see IntegrationMethod
+ */
+abstract class Integrator
+{
+    /**
+     * Advances the state of the solver by one step.
+     *
+     * @param solver    solver to calculate the derivatives with
+     * @param state     state to advance
+     * @param time      current time
+     * @param stepSize  configured step size
+     * @return time the state was advanced by
+     */
+    abstract double step(AbstractForceSolver solver, State state, double time, double stepSize);
+
+    /**
+     * Discards everything the integrator remembers about previous steps. Called when the state was changed from
+     * outside.
+     */
+    void reset()
+    {
+    }
+}
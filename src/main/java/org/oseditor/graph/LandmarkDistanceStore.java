@@ -0,0 +1,139 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the exact distances up to a cutoff in a {@link SparseDistanceStore} and the distances of all nodes to a few
+ * landmark nodes. Distances beyond the cutoff are estimated as the shortest detour over a landmark, which is exact if
+ * one of the nodes is a landmark or a landmark lies on a shortest path between them, and too long otherwise.
+ *
+ * The landmark distances are kept per node, so an estimate reads two short consecutive runs of the landmark count.
+ */
+public final class LandmarkDistanceStore
+    implements DistanceStore
+{
+    private static final int[] EMPTY = new int[0];
+
+    private final SparseDistanceStore local;
+
+    private final int landmarkCount;
+
+    private int[] landmarks = EMPTY;
+    private boolean[] isLandmark;
+
+    /** distances from every node to all landmarks, node by node */
+    private int[] landmarkDistances = EMPTY;
+
+    public LandmarkDistanceStore(int nodeCount, int cutoff, int landmarkCount)
+    {
+        local = new SparseDistanceStore(nodeCount, cutoff);
+        this.landmarkCount = landmarkCount;
+        isLandmark = new boolean[nodeCount];
+    }
+
+    public int getCutoff()
+    {
+        return local.getCutoff();
+    }
+
+    /**
+     * Returns the number of landmarks to choose. Graphs with fewer nodes or where every node is close to a landmark
+     * get fewer.
+     */
+    public int getLandmarkCount()
+    {
+        return landmarkCount;
+    }
+
+    @Override
+    public int size()
+    {
+        return local.size();
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        int distance = local.getDistance(from, to);
+        if (distance != Integer.MAX_VALUE)
+        {
+            return distance;
+        }
+
+        int count = landmarks.length;
+        long shortest = Long.MAX_VALUE;
+        for (int p = 0, a = from * count, b = to * count; p < count; p++, a++, b++)
+        {
+            int toLandmark = landmarkDistances[a];
+            int fromLandmark = landmarkDistances[b];
+            if (toLandmark != Integer.MAX_VALUE && fromLandmark != Integer.MAX_VALUE)
+            {
+                shortest = Math.min(shortest, (long) toLandmark + fromLandmark);
+            }
+        }
+        return shortest == Long.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.min(shortest, Integer.MAX_VALUE - 1);
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        local.setDistances(from, distances);
+    }
+
+    /**
+     * Returns the store with the exact distances up to the cutoff.
+     */
+    public SparseDistanceStore getLocal()
+    {
+        return local;
+    }
+
+    /**
+     * Returns the node index of every landmark. The array must not be modified.
+     */
+    public int[] getLandmarks()
+    {
+        return landmarks;
+    }
+
+    boolean isLandmark(int node)
+    {
+        return isLandmark[node];
+    }
+
+    /**
+     * Returns the exact distance between a node and a landmark.
+     *
+     * @param node      node index
+     * @param landmark  position of the landmark in {@link #getLandmarks()}
+     */
+    public int getLandmarkDistance(int node, int landmark)
+    {
+        return landmarkDistances[node * landmarks.length + landmark];
+    }
+
+    /**
+     * Sets the landmarks and their distances to all nodes.
+     *
+     * @param indexes   node index of every landmark
+     * @param rows      distances from every landmark to all nodes
+     */
+    public void setLandmarks(int[] indexes, int[][] rows)
+    {
+        int nodeCount = size();
+        int count = indexes.length;
+
+        landmarks = indexes.clone();
+        landmarkDistances = new int[nodeCount * count];
+        Arrays.fill(isLandmark, false);
+        for (int p = 0; p < count; p++)
+        {
+            isLandmark[indexes[p]] = true;
+            int[] row = rows[p];
+            for (int i = 0, k = p; i < nodeCount; i++, k += count)
+            {
+                landmarkDistances[k] = row[i];
+            }
+        }
+    }
+}
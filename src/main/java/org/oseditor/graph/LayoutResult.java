@@ -0,0 +1,81 @@
+package org.oseditor.graph;
+
+/**
+ * Result of a {@link GraphLayout#run()}.
+ */
+public final class LayoutResult
+{
+    private final int iterations;
+    private final boolean converged;
+    private final double maxDisplacement;
+    private final double rmsDisplacement;
+    private final double squaredDisplacement;
+    private final long forceEvaluations;
+
+    public LayoutResult(int iterations, boolean converged, double maxDisplacement, double rmsDisplacement, double squaredDisplacement, long forceEvaluations)
+    {
+        this.iterations = iterations;
+        this.converged = converged;
+        this.maxDisplacement = maxDisplacement;
+        this.rmsDisplacement = rmsDisplacement;
+        this.squaredDisplacement = squaredDisplacement;
+        this.forceEvaluations = forceEvaluations;
+    }
+
+    /**
+     * Number of simulation steps taken.
+     */
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * <code>true</code> if the layout stopped because the movement fell below the tolerance, <code>false</code> if it
+     * ran out of iterations.
+     */
+    public boolean isConverged()
+    {
+        return converged;
+    }
+
+    /**
+     * Largest distance a single node moved in the last step.
+     */
+    public double getMaxDisplacement()
+    {
+        return maxDisplacement;
+    }
+
+    /**
+     * Root mean square of the distances the nodes moved in the last step.
+     */
+    public double getRmsDisplacement()
+    {
+        return rmsDisplacement;
+    }
+
+    /**
+     * Sum of the squared distances all nodes moved in the last step.
+     */
+    public double getSquaredDisplacement()
+    {
+        return squaredDisplacement;
+    }
+
+    /**
+     * Number of force evaluations done by the layout so far.
+     */
+    public long getForceEvaluations()
+    {
+        return forceEvaluations;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "LayoutResult: iterations = " + iterations + ", converged = " + converged + ", maxDisplacement = " +
+            maxDisplacement + ", rmsDisplacement = " + rmsDisplacement + ", squaredDisplacement = " + squaredDisplacement +
+            ", forceEvaluations = " + forceEvaluations;
+    }
+}
@@ -0,0 +1,25 @@
+package org.oseditor.graph;
+
+/**
+ * Method {@link GraphLayout#run()} uses to move the nodes towards their target distances.
+ *
+ * @see GraphLayoutConfig#getLayoutSolver()
+ */
+public enum LayoutSolver
+{
+    /**
+     * Simulates springs towards the target distances and the repulsion between nodes with the configured integrator.
+     */
+    FORCES,
+
+    /**
+     * Stress majorization (SMACOF): every iteration moves each node to the weighted average of the positions its
+     * target distances suggest, with weights falling with the square of the distance. Needs no step size and
+     * converges fastest from an {@link InitialPlacement#MDS} placement. All nodes move at once from the positions of
+     * the previous iteration, so the stress usually falls from iteration to iteration but is not guaranteed to.
+     * Ignores the repulsion and fall off curves.
+     *
+     * @see GraphLayoutConfig#getStressPivots()
+     */
+    STRESS_MAJORIZATION
+}
@@ -0,0 +1,131 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Calculates all hop count distances of a graph with a bit-parallel breadth-first search that advances the searches
+ * from 64 source nodes at once, one bit per source in a <code>long</code> per node.
+ *
+ * Every edge is only visited once per level and batch of sources, not once per source.
+ */
+final class MultiSourceBFS
+{
+    static final int BATCH_SIZE = 64;
+
+    private final int nodeCount;
+    private final int[] offsets;
+    private final int[] targets;
+
+    private final long[] seen;
+    private final long[] frontier;
+    private final long[] next;
+
+    private final int[] active;
+    private final int[] touched;
+
+    private int[][] rows;
+
+    MultiSourceBFS(Adjacency edges, int nodeCount)
+    {
+        this.nodeCount = nodeCount;
+        this.offsets = edges.offsets;
+        this.targets = edges.targets;
+
+        seen = new long[nodeCount];
+        frontier = new long[nodeCount];
+        next = new long[nodeCount];
+        active = new int[nodeCount];
+        touched = new int[nodeCount];
+    }
+
+    /**
+     * Calculates the distances from a range of nodes and writes them to the given store.
+     *
+     * @param store         store to write the distances to
+     * @param first         first source node
+     * @param end           end of the source nodes (exclusive)
+     * @param edgeDistance  distance of every edge
+     */
+    void calculate(DistanceStore store, int first, int end, int edgeDistance)
+    {
+        if (rows == null)
+        {
+            rows = new int[Math.min(BATCH_SIZE, nodeCount)][nodeCount];
+        }
+
+        for (; first < end; first += BATCH_SIZE)
+        {
+            int batch = Math.min(BATCH_SIZE, end - first);
+            search(first, batch, rows, edgeDistance);
+
+            for (int i = 0; i < batch; i++)
+            {
+                store.setDistances(first + i, rows[i]);
+            }
+        }
+    }
+
+    private void search(int first, int batch, int[][] rows, int edgeDistance)
+    {
+        Arrays.fill(seen, 0);
+        Arrays.fill(frontier, 0);
+
+        int activeCount = 0;
+        for (int i = 0; i < batch; i++)
+        {
+            int[] row = rows[i];
+            Arrays.fill(row, Integer.MAX_VALUE);
+
+            int source = first + i;
+            row[source] = 0;
+            seen[source] = 1L << i;
+            frontier[source] = 1L << i;
+            active[activeCount++] = source;
+        }
+
+        int distance = 0;
+        while (activeCount > 0)
+        {
+            distance += edgeDistance;
+
+            int touchedCount = 0;
+            for (int i = 0; i < activeCount; i++)
+            {
+                int node = active[i];
+                long bits = frontier[node];
+                frontier[node] = 0;
+
+                for (int k = offsets[node], last = offsets[node + 1]; k < last; k++)
+                {
+                    int target = targets[k];
+                    if (next[target] == 0)
+                    {
+                        touched[touchedCount++] = target;
+                    }
+                    next[target] |= bits;
+                }
+            }
+
+            activeCount = 0;
+            for (int i = 0; i < touchedCount; i++)
+            {
+                int node = touched[i];
+                long bits = next[node] & ~seen[node];
+                next[node] = 0;
+
+                if (bits != 0)
+                {
+                    seen[node] |= bits;
+                    frontier[node] = bits;
+                    active[activeCount++] = node;
+
+                    while (bits != 0)
+                    {
+                        rows[Long.numberOfTrailingZeros(bits)][node] = distance;
+                        bits &= bits - 1;
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package org.oseditor.graph;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Multilevel layout for large graphs. The graph is coarsened level by level: neighbours are matched in pairs and
+ * nodes left without a partner join their lightest neighbouring group, so stars collapse in one level. Once few
+ * nodes remain, the coarsest level gets a complete layout. Each finer level then starts with its nodes around the
+ * position of their group and is refined with a {@link GraphLayoutConfig#isWarmStart() warm start}.
+ *
+ * Coarse levels have their own edge distances: the average edge distance of the graph, scaled with the square root
+ * of the number of nodes merged into the ends of an edge. The configured distance function is only used for the
+ * graph itself. Every level uses the configured distance storage. For a storage that
+ * {@link DistanceStorage#usesCutoff() uses a cutoff}, the cutoff grows with the edge distances of the level. Large
+ * graphs need a {@link DistanceStorage#SPARSE sparse} distance storage and {@link RepulsionMode#BARNES_HUT Barnes-Hut}
+ * repulsion to keep every level near linear.
+ */
+public class MultilevelLayout
+{
+    private static Logger log = LoggerFactory.getLogger(MultilevelLayout.class);
+
+    private static final double TAU = Math.PI * 2;
+
+    private final GraphLayoutConfig config;
+
+    private int coarsestSize = 50;
+
+    private double minimumReduction = 0.1;
+
+    private int levelCount;
+
+    public MultilevelLayout(GraphLayoutConfig config)
+    {
+        if (config == null)
+        {
+            throw new IllegalArgumentException("config can't be null");
+        }
+        this.config = config;
+    }
+
+    /**
+     * Sets the number of nodes at which the coarsening stops.
+     */
+    public MultilevelLayout withCoarsestSize(int coarsestSize)
+    {
+        this.coarsestSize = coarsestSize;
+        return this;
+    }
+
+    /**
+     * Sets the fraction of nodes a level must merge away, the coarsening stops at the first level that merges
+     * fewer.
+     */
+    public MultilevelLayout withMinimumReduction(double minimumReduction)
+    {
+        this.minimumReduction = minimumReduction;
+        return this;
+    }
+
+    /**
+     * Returns the number of levels of the last layout, including the graph itself.
+     */
+    public int getLevelCount()
+    {
+        return levelCount;
+    }
+
+    public GraphLayout layout(DirectedGraph data)
+    {
+        return layout(CompactGraph.from(data));
+    }
+
+    /**
+     * Lays out the given graph. Call {@link GraphLayout#update()} on the result to write the positions back into the
+     * graph.
+     *
+     * @return refined layout of the graph, configured for warm starts so further runs continue to refine it
+     */
+    public GraphLayout layout(CompactGraph graph)
+    {
+        Random random = new Random(config.getInitialSeed());
+
+        List<Level> levels = new ArrayList<Level>();
+        int[] weights = new int[graph.getNodeCount()];
+        Arrays.fill(weights, 1);
+        Level level = new Level(graph, weights);
+        levels.add(level);
+        while (level.graph.getNodeCount() > coarsestSize)
+        {
+            Level coarser = level.coarsen(random);
+            if (coarser.graph.getNodeCount() > level.graph.getNodeCount() * (1 - minimumReduction))
+            {
+                level.parents = null;
+                break;
+            }
+            levels.add(coarser);
+            level = coarser;
+        }
+        levelCount = levels.size();
+
+        if (levelCount == 1)
+        {
+            GraphLayout layout = new GraphLayoutBuilder(config).buildFor(graph);
+            layout.run();
+            return layout;
+        }
+
+        GraphLayoutBuilder refine = new GraphLayoutBuilder(config)
+            .withWarmStart(true)
+            .withInitialPlacement(InitialPlacement.NONE);
+
+        GraphLayout finest = refine.buildFor(graph);
+        double edgeDistance = finest.getAverageEdgeDistance();
+
+        Level coarsest = levels.get(levelCount - 1);
+        LevelDistance coarsestDistance = new LevelDistance(coarsest, edgeDistance);
+        GraphLayoutBuilder cold = new GraphLayoutBuilder(config)
+            .withDistanceFunction(coarsestDistance)
+            .withDistanceCutoff(levelCutoff(coarsestDistance, edgeDistance));
+        if (config.getInitialPlacement() == InitialPlacement.NONE)
+        {
+            cold.withInitialPlacement(InitialPlacement.MDS);
+        }
+
+        GraphLayout layout = cold.buildFor(coarsest.graph);
+        LayoutResult result = layout.run();
+        log.debug("level {}: {} nodes, {}", new Object[] { levelCount - 1, coarsest.graph.getNodeCount(), result });
+
+        for (int i = levelCount - 2; i >= 0; i--)
+        {
+            Level finer = levels.get(i);
+            GraphLayout next = i == 0 ? finest : buildLevel(refine, finer, edgeDistance);
+
+            finer.prolong(layout.getInternalState().getData(), next.getInternalState().getData(), edgeDistance, random);
+            next.resetIntegrator();
+
+            result = next.run();
+            log.debug("level {}: {} nodes, {}", new Object[] { i, finer.graph.getNodeCount(), result });
+            layout = next;
+        }
+        return layout;
+    }
+
+    private GraphLayout buildLevel(GraphLayoutBuilder refine, Level level, double edgeDistance)
+    {
+        LevelDistance distance = new LevelDistance(level, edgeDistance);
+        return new GraphLayoutBuilder(refine)
+            .withDistanceFunction(distance)
+            .withDistanceCutoff(levelCutoff(distance, edgeDistance))
+            .buildFor(level.graph);
+    }
+
+    /**
+     * Scales the distance cutoff with the edge distances of a coarse level, so a storage with a cutoff keeps about the
+     * same number of edges deep around every node. The cutoff is at least the longest edge of the level, so every edge
+     * keeps its spring. Storages without a cutoff ignore it.
+     *
+     * @param distance      edge distances of the level
+     * @param edgeDistance  average edge distance of the graph
+     */
+    private int levelCutoff(LevelDistance distance, double edgeDistance)
+    {
+        if (!config.getDistanceStorage().usesCutoff())
+        {
+            return config.getDistanceCutoff();
+        }
+
+        double edgesDeep = config.getDistanceCutoff() / edgeDistance;
+        double cutoff = Math.max(Math.ceil(edgesDeep * distance.getAverage()), distance.getMaximum());
+        return (int) Math.min(Integer.MAX_VALUE - 1, cutoff);
+    }
+
+    private static String levelId(int index, int width)
+    {
+        String id = Integer.toString(index);
+        StringBuilder sb = new StringBuilder(width);
+        for (int i = id.length(); i < width; i++)
+        {
+            sb.append('0');
+        }
+        return sb.append(id).toString();
+    }
+
+    /**
+     * One level of the coarsening.
+     */
+    private static final class Level
+    {
+        final CompactGraph graph;
+
+        /** number of nodes of the graph merged into every node */
+        final int[] weights;
+
+        /** node of the next coarser level every node was merged into */
+        int[] parents;
+
+        /** number of nodes of this level merged into every node of the next coarser level */
+        int[] groupSizes;
+
+        Level(CompactGraph graph, int[] weights)
+        {
+            this.graph = graph;
+            this.weights = weights;
+        }
+
+        /**
+         * Creates the next coarser level.
+         */
+        Level coarsen(Random random)
+        {
+            int nodeCount = graph.getNodeCount();
+            Adjacency edges = Adjacency.undirected(graph);
+
+            int[] order = new int[nodeCount];
+            for (int i = 0; i < nodeCount; i++)
+            {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+
+            parents = new int[nodeCount];
+            Arrays.fill(parents, -1);
+            int groupCount = 0;
+
+            // match every node with its unmatched neighbour of lowest degree
+            for (int index : order)
+            {
+                if (parents[index] >= 0)
+                {
+                    continue;
+                }
+
+                int partner = -1;
+                for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+                {
+                    int to = edges.targets[k];
+                    if (to != index && parents[to] < 0 && (partner < 0 || edges.degree(to) < edges.degree(partner)))
+                    {
+                        partner = to;
+                    }
+                }
+                if (partner >= 0)
+                {
+                    parents[index] = groupCount;
+                    parents[partner] = groupCount;
+                    groupCount++;
+                }
+            }
+
+            int[] groupWeights = new int[groupCount + nodeCount];
+            for (int i = 0; i < nodeCount; i++)
+            {
+                if (parents[i] >= 0)
+                {
+                    groupWeights[parents[i]] += weights[i];
+                }
+            }
+
+            // all neighbours of the nodes left are matched, they join the lightest group next to them
+            int isolatedGroup = -1;
+            for (int index : order)
+            {
+                if (parents[index] >= 0)
+                {
+                    continue;
+                }
+
+                int group = -1;
+                for (int k = edges.offsets[index], end = edges.offsets[index + 1]; k < end; k++)
+                {
+                    int candidate = parents[edges.targets[k]];
+                    if (candidate >= 0 && (group < 0 || groupWeights[candidate] < groupWeights[group]))
+                    {
+                        group = candidate;
+                    }
+                }
+
+                if (group < 0)
+                {
+                    // isolated nodes are merged in pairs
+                    if (isolatedGroup < 0)
+                    {
+                        isolatedGroup = groupCount++;
+                        group = isolatedGroup;
+                    }
+                    else
+                    {
+                        group = isolatedGroup;
+                        isolatedGroup = -1;
+                    }
+                }
+                parents[index] = group;
+                groupWeights[group] += weights[index];
+            }
+
+            groupSizes = new int[groupCount];
+            for (int i = 0; i < nodeCount; i++)
+            {
+                groupSizes[parents[i]]++;
+            }
+
+            return new Level(coarseGraph(groupCount), Arrays.copyOf(groupWeights, groupCount));
+        }
+
+        private CompactGraph coarseGraph(int groupCount)
+        {
+            long[] keys = new long[graph.getEdgeCount()];
+            int keyCount = 0;
+            for (int e = 0; e < keys.length; e++)
+            {
+                int a = parents[graph.getEdgeFrom(e)];
+                int b = parents[graph.getEdgeTo(e)];
+                if (a != b)
+                {
+                    keys[keyCount++] = ((long) Math.min(a, b) << 32) | Math.max(a, b);
+                }
+            }
+            Arrays.sort(keys, 0, keyCount);
+
+            int[] edgeFrom = new int[keyCount];
+            int[] edgeTo = new int[keyCount];
+            int edgeCount = 0;
+            for (int i = 0; i < keyCount; i++)
+            {
+                if (i == 0 || keys[i] != keys[i - 1])
+                {
+                    edgeFrom[edgeCount] = (int) (keys[i] >>> 32);
+                    edgeTo[edgeCount] = (int) keys[i];
+                    edgeCount++;
+                }
+            }
+
+            // zero padded ids keep the index order
+            String[] ids = new String[groupCount];
+            int width = Integer.toString(Math.max(groupCount - 1, 0)).length();
+            for (int i = 0; i < groupCount; i++)
+            {
+                ids[i] = levelId(i, width);
+            }
+
+            return new CompactGraph(ids, null, null, Arrays.copyOf(edgeFrom, edgeCount), Arrays.copyOf(edgeTo, edgeCount));
+        }
+
+        /**
+         * Places the nodes of this level around the positions of their groups.
+         *
+         * @param coarseXY      interleaved positions of the next coarser level
+         * @param stateXY       interleaved positions of this level to write
+         * @param edgeDistance  average edge distance
+         * @param random        random for the angles around the group position
+         */
+        void prolong(double[] coarseXY, double[] stateXY, double edgeDistance, Random random)
+        {
+            for (int i = 0; i < parents.length; i++)
+            {
+                int group = parents[i];
+                double x = coarseXY[group * 2];
+                double y = coarseXY[group * 2 + 1];
+                if (groupSizes[group] > 1)
+                {
+                    double angle = TAU * random.nextDouble();
+                    x += Math.cos(angle) * edgeDistance / 2;
+                    y += Math.sin(angle) * edgeDistance / 2;
+                }
+                stateXY[i * 2] = x;
+                stateXY[i * 2 + 1] = y;
+            }
+        }
+    }
+
+    /**
+     * Edge distances of a coarse level, growing with the number of merged nodes at both ends.
+     */
+    private static final class LevelDistance
+        implements PureDistanceFunction
+    {
+        private final Level level;
+        private final double edgeDistance;
+
+        private double average = 1;
+        private int maximum = 1;
+
+        LevelDistance(Level level, double edgeDistance)
+        {
+            this.level = level;
+            this.edgeDistance = edgeDistance;
+
+            CompactGraph graph = level.graph;
+            int edgeCount = graph.getEdgeCount();
+            if (edgeCount > 0)
+            {
+                long sum = 0;
+                for (int e = 0; e < edgeCount; e++)
+                {
+                    int distance = getDistance(graph.getEdgeFrom(e), graph.getEdgeTo(e));
+                    sum += distance;
+                    maximum = Math.max(maximum, distance);
+                }
+                average = (double) sum / edgeCount;
+            }
+        }
+
+        /**
+         * Average distance of the edges of the level.
+         */
+        double getAverage()
+        {
+            return average;
+        }
+
+        /**
+         * Longest edge distance of the level.
+         */
+        int getMaximum()
+        {
+            return maximum;
+        }
+
+        @Override
+        public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+        {
+            return getDistance(level.graph.findNodeIndex(a.getId()), level.graph.findNodeIndex(b.getId()));
+        }
+
+        private int getDistance(int indexA, int indexB)
+        {
+            int weightA = level.weights[indexA];
+            int weightB = level.weights[indexB];
+            return (int) Math.max(1, Math.round(edgeDistance * (Math.sqrt(weightA) + Math.sqrt(weightB)) / 2));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.oseditor.graph;
+
+/**
+ * Read-only view on the indexes of the nodes adjacent to a node, in edge order. Nodes connected by several edges
+ * appear several times.
+ *
+ * @see DistanceFunction
+ */
+public final class Neighbors
+{
+    private final int[] targets;
+    private final int start;
+    private final int end;
+
+    Neighbors(int[] targets, int start, int end)
+    {
+        this.targets = targets;
+        this.start = start;
+        this.end = end;
+    }
+
+    public int size()
+    {
+        return end - start;
+    }
+
+    public boolean isEmpty()
+    {
+        return start == end;
+    }
+
+    /**
+     * Returns the node index of the given neighbor.
+     *
+     * @param i     neighbor from 0 to {@link #size()} - 1
+     */
+    public int get(int i)
+    {
+        if (i < 0 || i >= end - start)
+        {
+            throw new IndexOutOfBoundsException("Neighbor " + i + " of " + (end - start));
+        }
+        return targets[start + i];
+    }
+
+    public boolean contains(int nodeIndex)
+    {
+        for (int i = start; i < end; i++)
+        {
+            if (targets[i] == nodeIndex)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int[] toArray()
+    {
+        int[] array = new int[end - start];
+        System.arraycopy(targets, start, array, 0, array.length);
+        return array;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = start; i < end; i++)
+        {
+            if (i > start)
+            {
+                sb.append(", ");
+            }
+            sb.append(targets[i]);
+        }
+        return sb.append(']').toString();
+    }
+}
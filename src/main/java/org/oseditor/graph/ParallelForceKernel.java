@@ -0,0 +1,268 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Spreads the force calculation of a {@link GraphLayout} over several threads.
+ *
+ * The node pairs are split into blocks of consecutive rows holding roughly the same number of pairs. Every block
+ * accumulates its forces and counter-forces into its own buffer. The buffers are then summed up per node range in
+ * block order, so the result only depends on the number of blocks, not on the thread scheduling. The Barnes-Hut and
+ * cutoff repulsion write only the derivative of the nodes of a range and need no buffer.
+ *
+ * For {@link StatePrecision#FLOAT} derivatives the blocks accumulate into separate float x and y buffers and the
+ * repulsion is collected in an interleaved double derivative that is added per node range.
+ */
+final class ParallelForceKernel
+{
+    private final GraphLayout layout;
+    private final int blocks;
+
+    /** first row of each pair block, plus the node count at the end */
+    private final int[] pairStarts;
+
+    /** first node of each node range, plus the node count at the end */
+    private final int[] nodeStarts;
+
+    private double[][] buffers;
+    private float[][] xBuffers;
+    private float[][] yBuffers;
+    private final double[] angles;
+    private final int[][] stacks;
+
+    private final List<Callable<Void>> pairTasks;
+    private final List<Callable<Void>> reduceTasks;
+
+    private double[] stateXY;
+    private double[] derivativeXY;
+    private float[] xs, ys, dxs, dys;
+    private double time;
+    private double delta;
+    private boolean repulsion;
+    private boolean spatialRepulsion;
+
+    ParallelForceKernel(GraphLayout layout, int blocks)
+    {
+        this.layout = layout;
+        this.blocks = blocks;
+
+        int nodeCount = layout.nodeCount;
+
+        pairStarts = new int[blocks + 1];
+        nodeStarts = new int[blocks + 1];
+
+        long totalPairs = (long) nodeCount * (nodeCount - 1) / 2;
+        long pairs = 0;
+        int row = 0;
+        for (int block = 1; block < blocks; block++)
+        {
+            long limit = totalPairs * block / blocks;
+            while (row < nodeCount && pairs < limit)
+            {
+                pairs += nodeCount - 1 - row;
+                row++;
+            }
+            pairStarts[block] = row;
+            nodeStarts[block] = (int) ((long) nodeCount * block / blocks);
+        }
+        pairStarts[blocks] = nodeCount;
+        nodeStarts[blocks] = nodeCount;
+
+        angles = new double[blocks];
+        stacks = new int[blocks][];
+
+        pairTasks = ParallelTasks.prepare(blocks, new ParallelTasks.Task()
+        {
+            @Override
+            public void run(int block)
+            {
+                double start = angles[block];
+                if (dxs != null)
+                {
+                    float[] xBuffer = xBuffers[block];
+                    float[] yBuffer = yBuffers[block];
+                    Arrays.fill(xBuffer, 0);
+                    Arrays.fill(yBuffer, 0);
+                    angles[block] = ParallelForceKernel.this.layout.pairForces(xs, ys, xBuffer, yBuffer, pairStarts[block], pairStarts[block + 1], start, time, delta, repulsion) - start;
+                    return;
+                }
+
+                double[] buffer = buffers[block];
+                Arrays.fill(buffer, 0);
+
+                angles[block] = ParallelForceKernel.this.layout.pairForces(stateXY, buffer, pairStarts[block], pairStarts[block + 1], start, time, delta, repulsion) - start;
+            }
+        });
+
+        reduceTasks = ParallelTasks.prepare(blocks, new ParallelTasks.Task()
+        {
+            @Override
+            public void run(int block)
+            {
+                if (dxs != null)
+                {
+                    reduceFloat(block);
+                    return;
+                }
+
+                int start = nodeStarts[block] * 2;
+                int end = nodeStarts[block + 1] * 2;
+
+                for (double[] buffer : buffers)
+                {
+                    for (int i = start; i < end; i++)
+                    {
+                        derivativeXY[i] += buffer[i];
+                    }
+                }
+
+                if (spatialRepulsion)
+                {
+                    if (stacks[block] == null)
+                    {
+                        stacks[block] = BarnesHutTree.createStack();
+                    }
+                    ParallelForceKernel.this.layout.spatialRepulsion(stateXY, derivativeXY, nodeStarts[block], nodeStarts[block + 1], delta, stacks[block]);
+                }
+            }
+        });
+    }
+
+    /**
+     * Sums up the float buffers of all blocks and the repulsion for the nodes of the given range.
+     */
+    private void reduceFloat(int block)
+    {
+        int start = nodeStarts[block];
+        int end = nodeStarts[block + 1];
+
+        for (int b = 0; b < blocks; b++)
+        {
+            float[] xBuffer = xBuffers[b];
+            float[] yBuffer = yBuffers[b];
+            for (int i = start; i < end; i++)
+            {
+                dxs[i] += xBuffer[i];
+                dys[i] += yBuffer[i];
+            }
+        }
+
+        if (spatialRepulsion)
+        {
+            if (stacks[block] == null)
+            {
+                stacks[block] = BarnesHutTree.createStack();
+            }
+            layout.spatialRepulsion(stateXY, derivativeXY, start, end, delta, stacks[block]);
+            for (int i = start; i < end; i++)
+            {
+                dxs[i] += (float) derivativeXY[i * 2];
+                dys[i] += (float) derivativeXY[i * 2 + 1];
+            }
+        }
+    }
+
+    /**
+     * Adds the forces for the given state to the derivative.
+     *
+     * @param stateXY       interleaved node positions
+     * @param derivativeXY  interleaved derivative to add to
+     * @param angle         current jitter angle for coincident nodes
+     * @param time          current time
+     * @param delta         time delta
+     * @param repulsion     if <code>true</code>, the pair forces include the repulsion
+     * @param spatialRepulsion  if <code>true</code>, the repulsion from the already built Barnes-Hut tree or cutoff
+     *                          grid is added
+     * @return new jitter angle
+     */
+    double run(double[] stateXY, double[] derivativeXY, double angle, double time, double delta, boolean repulsion, boolean spatialRepulsion)
+    {
+        if (buffers == null)
+        {
+            buffers = new double[blocks][derivativeXY.length];
+        }
+
+        this.stateXY = stateXY;
+        this.derivativeXY = derivativeXY;
+        this.dxs = null;
+        this.time = time;
+        this.delta = delta;
+        this.repulsion = repulsion;
+        this.spatialRepulsion = spatialRepulsion;
+
+        // every block gets its own jitter angle sequence, so the result does not depend on the thread scheduling
+        for (int block = 0; block < blocks; block++)
+        {
+            angles[block] = angle + block;
+        }
+
+        ParallelTasks.invokeAll(layout.executor(), pairTasks);
+        ParallelTasks.invokeAll(layout.executor(), reduceTasks);
+
+        for (double advance : angles)
+        {
+            angle += advance;
+        }
+
+        this.stateXY = null;
+        this.derivativeXY = null;
+        return angle;
+    }
+
+    /**
+     * Adds the forces for the given float state to the float derivative.
+     *
+     * @param xs            x positions
+     * @param ys            y positions
+     * @param dxs           x derivative to add to
+     * @param dys           y derivative to add to
+     * @param stateXY       interleaved node positions the Barnes-Hut tree or cutoff grid was built from,
+     *                      <code>null</code> if there is no spatial repulsion
+     * @param derivativeXY  cleared interleaved derivative to collect the spatial repulsion in, <code>null</code> if
+     *                      there is no spatial repulsion
+     * @param angle         current jitter angle for coincident nodes
+     * @param time          current time
+     * @param delta         time delta
+     * @param repulsion     if <code>true</code>, the pair forces include the repulsion
+     * @return new jitter angle
+     */
+    double run(float[] xs, float[] ys, float[] dxs, float[] dys, double[] stateXY, double[] derivativeXY, double angle, double time, double delta, boolean repulsion)
+    {
+        if (xBuffers == null)
+        {
+            xBuffers = new float[blocks][xs.length];
+            yBuffers = new float[blocks][xs.length];
+        }
+
+        this.xs = xs;
+        this.ys = ys;
+        this.dxs = dxs;
+        this.dys = dys;
+        this.stateXY = stateXY;
+        this.derivativeXY = derivativeXY;
+        this.time = time;
+        this.delta = delta;
+        this.repulsion = repulsion;
+        this.spatialRepulsion = stateXY != null;
+
+        for (int block = 0; block < blocks; block++)
+        {
+            angles[block] = angle + block;
+        }
+
+        ParallelTasks.invokeAll(layout.executor(), pairTasks);
+        ParallelTasks.invokeAll(layout.executor(), reduceTasks);
+
+        for (double advance : angles)
+        {
+            angle += advance;
+        }
+
+        this.xs = this.ys = this.dxs = this.dys = null;
+        this.stateXY = null;
+        this.derivativeXY = null;
+        return angle;
+    }
+}
@@ -0,0 +1,96 @@
+package org.oseditor.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a fixed number of tasks on an executor and waits for all of them.
+ */
+final class ParallelTasks
+{
+    /**
+     * A task that is executed once for every worker index.
+     */
+    interface Task
+    {
+        void run(int worker) throws Exception;
+    }
+
+    private ParallelTasks()
+    {
+    }
+
+    /**
+     * Runs the task once for each worker index from 0 to workers - 1 and waits for all of them to finish.
+     *
+     * @param executor  executor to run the tasks on
+     * @param workers   number of tasks
+     * @param task      task
+     */
+    static void run(ExecutorService executor, int workers, Task task)
+    {
+        invokeAll(executor, prepare(workers, task));
+    }
+
+    /**
+     * Creates the callables to run the task once for each worker index, to be reused with
+     * {@link #invokeAll(ExecutorService, List)}.
+     *
+     * @param workers   number of tasks
+     * @param task      task
+     * @return callables
+     */
+    static List<Callable<Void>> prepare(int workers, final Task task)
+    {
+        List<Callable<Void>> callables = new ArrayList<Callable<Void>>(workers);
+        for (int i = 0; i < workers; i++)
+        {
+            final int worker = i;
+            callables.add(new Callable<Void>()
+            {
+                @Override
+                public Void call() throws Exception
+                {
+                    task.run(worker);
+                    return null;
+                }
+            });
+        }
+        return callables;
+    }
+
+    /**
+     * Runs the given callables and waits for all of them to finish. Rethrows the first failure.
+     *
+     * @param executor  executor to run the tasks on
+     * @param callables callables
+     */
+    static void invokeAll(ExecutorService executor, List<Callable<Void>> callables)
+    {
+        try
+        {
+            for (Future<Void> future : executor.invokeAll(callables))
+            {
+                future.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new EditorRuntimeException("Interrupted while waiting for parallel tasks", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new EditorRuntimeException(cause);
+        }
+    }
+}
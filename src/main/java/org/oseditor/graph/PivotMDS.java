@@ -0,0 +1,198 @@
+package org.oseditor.graph;
+
+import java.util.Random;
+
+/**
+ * Classical multidimensional scaling of the target distances, approximated with the distances to a few pivot nodes
+ * (Brandes and Pich, "Eigensolver Methods for Progressive Multidimensional Scaling of Large Data"). Needs time and
+ * memory linear in the number of nodes instead of the full double centered distance matrix.
+ *
+ * The pivots are chosen by {@link Pivots}. Unreachable distances are treated as a bit more than the greatest known
+ * distance.
+ */
+final class PivotMDS
+{
+    private static final int POWER_ITERATIONS = 100;
+
+    private final GraphLayout layout;
+    private final int nodeCount;
+    private final int requestedPivots;
+
+    /** number of pivots found, fewer than requested if the graph has fewer nodes */
+    private int pivotCount;
+
+    /** squared distances of every node to every pivot, double centered, row per node */
+    private double[] matrix;
+
+    PivotMDS(GraphLayout layout, int pivotCount)
+    {
+        this.layout = layout;
+        this.nodeCount = layout.nodeCount;
+        this.requestedPivots = pivotCount;
+    }
+
+    /**
+     * Writes the coordinates along the first two principal axes into the given interleaved positions. The coordinates
+     * are not scaled to the target distances.
+     */
+    void place(double[] stateXY)
+    {
+        if (nodeCount == 0)
+        {
+            return;
+        }
+
+        Random random = layout.random;
+        Pivots pivots = new Pivots(layout, requestedPivots);
+        pivotCount = pivots.indexes.length;
+        matrix = new double[nodeCount * pivotCount];
+        fillMatrix(pivots.rows);
+
+        int k = pivotCount;
+        double[] product = new double[k * k];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int row = i * k;
+            for (int a = 0; a < k; a++)
+            {
+                double value = matrix[row + a];
+                for (int b = 0; b < k; b++)
+                {
+                    product[a * k + b] += value * matrix[row + b];
+                }
+            }
+        }
+
+        double[] first = eigenvector(product, null, random);
+        double[] second = eigenvector(product, first, random);
+
+        for (int i = 0; i < nodeCount; i++)
+        {
+            stateXY[i * 2] = project(i, first);
+            stateXY[i * 2 + 1] = project(i, second);
+        }
+    }
+
+    private void fillMatrix(int[][] pivotRows)
+    {
+        int k = pivotCount;
+
+        long maxDistance = 0;
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int p = 0; p < k; p++)
+            {
+                int distance = pivotRows[p][i];
+                if (distance != Integer.MAX_VALUE)
+                {
+                    maxDistance = Math.max(maxDistance, distance);
+                }
+                matrix[i * k + p] = distance;
+            }
+        }
+
+        double unreachable = Math.max(maxDistance * 1.25, 1);
+        double[] columnMeans = new double[k];
+        double total = 0;
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int p = 0; p < k; p++)
+            {
+                double distance = matrix[i * k + p];
+                if (distance == Integer.MAX_VALUE)
+                {
+                    distance = unreachable;
+                }
+                double squared = distance * distance;
+                matrix[i * k + p] = squared;
+                columnMeans[p] += squared;
+                total += squared;
+            }
+        }
+        for (int p = 0; p < k; p++)
+        {
+            columnMeans[p] /= nodeCount;
+        }
+        total /= (double) nodeCount * k;
+
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int row = i * k;
+            double rowMean = 0;
+            for (int p = 0; p < k; p++)
+            {
+                rowMean += matrix[row + p];
+            }
+            rowMean /= k;
+
+            for (int p = 0; p < k; p++)
+            {
+                matrix[row + p] = -0.5 * (matrix[row + p] - rowMean - columnMeans[p] + total);
+            }
+        }
+    }
+
+    /**
+     * Power iteration for the dominant eigenvector of the symmetric pivot product, orthogonal to the given vector.
+     */
+    private double[] eigenvector(double[] product, double[] orthogonal, Random random)
+    {
+        int k = pivotCount;
+        double[] vector = new double[k];
+        for (int a = 0; a < k; a++)
+        {
+            vector[a] = random.nextDouble() - 0.5;
+        }
+
+        double[] next = new double[k];
+        for (int iteration = 0; iteration < POWER_ITERATIONS; iteration++)
+        {
+            if (orthogonal != null)
+            {
+                double dot = 0;
+                for (int a = 0; a < k; a++)
+                {
+                    dot += vector[a] * orthogonal[a];
+                }
+                for (int a = 0; a < k; a++)
+                {
+                    vector[a] -= dot * orthogonal[a];
+                }
+            }
+
+            double norm = 0;
+            for (int a = 0; a < k; a++)
+            {
+                double sum = 0;
+                for (int b = 0; b < k; b++)
+                {
+                    sum += product[a * k + b] * vector[b];
+                }
+                next[a] = sum;
+                norm += sum * sum;
+            }
+
+            norm = Math.sqrt(norm);
+            if (norm == 0)
+            {
+                // no variance left in this direction
+                return new double[k];
+            }
+            for (int a = 0; a < k; a++)
+            {
+                vector[a] = next[a] / norm;
+            }
+        }
+        return vector;
+    }
+
+    private double project(int node, double[] vector)
+    {
+        double sum = 0;
+        for (int p = 0, row = node * pivotCount; p < pivotCount; p++)
+        {
+            sum += matrix[row + p] * vector[p];
+        }
+        return sum;
+    }
+}
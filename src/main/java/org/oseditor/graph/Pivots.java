@@ -0,0 +1,72 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Pivot nodes of a {@link GraphLayout} with their distances to all nodes. The pivots are chosen one after another as
+ * the node farthest from all pivots so far, starting with a random node. Unreachable nodes count as farthest, so
+ * every connected component gets a pivot before any component gets a second one. The selection stops early once
+ * every node is a pivot.
+ *
+ * If the layout stores all distances, the rows of the pivots are read from the store. Stores with a cutoff don't know
+ * the distances to far nodes, so there each pivot takes one single source search and choosing k pivots takes k times
+ * the time of a search.
+ */
+final class Pivots
+{
+    /** node index of every pivot */
+    final int[] indexes;
+
+    /** distances from every pivot to all nodes */
+    final int[][] rows;
+
+    Pivots(GraphLayout layout, int count)
+    {
+        int nodeCount = layout.nodeCount;
+        count = Math.min(count, nodeCount);
+
+        int[] pivots = new int[count];
+        int[][] pivotRows = new int[count][];
+        int found = 0;
+        if (count > 0)
+        {
+            DistanceStore distances = layout.distances;
+            boolean stored = !(distances instanceof SparseDistanceStore) && !(distances instanceof LandmarkDistanceStore);
+            DijkstraSearch search = stored ? null : new DijkstraSearch(layout, layout.createQueue());
+            int[] minDistance = new int[nodeCount];
+            Arrays.fill(minDistance, Integer.MAX_VALUE);
+
+            int pivot = layout.random.nextInt(nodeCount);
+            while (found < count && minDistance[pivot] != 0)
+            {
+                pivots[found] = pivot;
+                int[] row = stored ? storedRow(distances, pivot) : search.search(pivot, null).clone();
+                pivotRows[found++] = row;
+
+                int farthest = 0;
+                for (int i = 0; i < nodeCount; i++)
+                {
+                    minDistance[i] = Math.min(minDistance[i], row[i]);
+                    if (minDistance[i] > minDistance[farthest])
+                    {
+                        farthest = i;
+                    }
+                }
+                pivot = farthest;
+            }
+        }
+
+        indexes = Arrays.copyOf(pivots, found);
+        rows = Arrays.copyOf(pivotRows, found);
+    }
+
+    private static int[] storedRow(DistanceStore distances, int pivot)
+    {
+        int[] row = new int[distances.size()];
+        for (int i = 0; i < row.length; i++)
+        {
+            row[i] = distances.getDistance(pivot, i);
+        }
+        return row;
+    }
+}
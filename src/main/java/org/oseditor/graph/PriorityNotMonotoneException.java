@@ -0,0 +1,12 @@
+package org.oseditor.graph;
+
+public class PriorityNotMonotoneException
+    extends EditorRuntimeException
+{
+    private static final long serialVersionUID = 3905263414811470131L;
+
+    public PriorityNotMonotoneException(int last, int priority)
+    {
+        super("Priority " + priority + " is lower than the last popped priority " + last);
+    }
+}
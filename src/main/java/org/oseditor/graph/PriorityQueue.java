@@ -1,6 +1,10 @@
 package org.oseditor.graph;
 
+/**
+ * {@link IntPriorityQueue} implementation keeping the values sorted by priority in an array.
+ */
 public class PriorityQueue
+    implements IntPriorityQueue
 {
     private int count;
     private int[] priorities;
@@ -13,6 +17,7 @@ public class PriorityQueue
         count = 0;
     }
 
+    @Override
     public void add(int priority, int value)
     {
         int index = findInsertIndex(priority, 0, count);
@@ -108,6 +113,7 @@ public class PriorityQueue
         return -1;
     }
 
+    @Override
     public void lowerPriority(int value, int priority, int lowerPriority)
     {
 
@@ -142,11 +148,13 @@ public class PriorityQueue
         return priorities[index];
     }
 
+    @Override
     public int size()
     {
         return count;
     }
 
+    @Override
     public int popMinimalValue()
     {
         if (count == 0)
@@ -162,8 +170,18 @@ public class PriorityQueue
         return  value;
     }
 
+    @Override
     public boolean isEmpty()
     {
         return count == 0;
     }
+
+    /**
+     * Removes all values from the queue. The arrays are kept, so the queue can be reused for another search.
+     */
+    @Override
+    public void clear()
+    {
+        count = 0;
+    }
 }
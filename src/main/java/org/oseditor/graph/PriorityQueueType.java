@@ -0,0 +1,53 @@
+package org.oseditor.graph;
+
+/**
+ * Available {@link IntPriorityQueue} implementations for the shortest path search.
+ *
+ * @see GraphLayoutConfig#getPriorityQueueType()
+ */
+public enum PriorityQueueType
+{
+    /**
+     * {@link PriorityQueue}: sorted array, O(n) per operation.
+     */
+    SORTED_ARRAY
+    {
+        @Override
+        public IntPriorityQueue create(int capacity)
+        {
+            return new PriorityQueue(capacity);
+        }
+    },
+    /**
+     * {@link HeapPriorityQueue}: 4-ary heap with position map, O(log n) per operation.
+     */
+    HEAP
+    {
+        @Override
+        public IntPriorityQueue create(int capacity)
+        {
+            return new HeapPriorityQueue(capacity, 4);
+        }
+    },
+    /**
+     * {@link RadixPriorityQueue}: monotone radix heap, amortized O(log C) per value. Requires priorities to never
+     * drop below the last popped one, which is the case for non-negative distances and a distance factor of at
+     * least 1.
+     */
+    RADIX
+    {
+        @Override
+        public IntPriorityQueue create(int capacity)
+        {
+            return new RadixPriorityQueue(capacity);
+        }
+    };
+
+    /**
+     * Creates a queue for the values 0 to capacity - 1.
+     *
+     * @param capacity  capacity
+     * @return new queue
+     */
+    public abstract IntPriorityQueue create(int capacity);
+}
@@ -0,0 +1,14 @@
+package org.oseditor.graph;
+
+/**
+ * Marks a {@link DistanceFunction} whose result only depends on its arguments and which can be called from several
+ * threads at once.
+ *
+ * {@link GraphLayout} calls a pure distance function exactly once per edge and direction and caches the results.
+ * Other distance functions are called on every use of an edge, they are also kept out of the parallel shortest
+ * path calculation and the automatic breadth-first search detection.
+ */
+public interface PureDistanceFunction
+    extends DistanceFunction
+{
+}
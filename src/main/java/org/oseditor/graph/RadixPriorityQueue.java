@@ -0,0 +1,191 @@
+package org.oseditor.graph;
+
+/**
+ * Monotone radix heap for values 0 to capacity - 1.
+ *
+ * Values are kept in 33 buckets according to the highest bit in which their priority differs from the last popped
+ * priority. Popping only ever moves values into lower buckets, so each value is moved at most 32 times. Priorities
+ * must never be lower than the last popped priority.
+ */
+public final class RadixPriorityQueue
+    implements IntPriorityQueue
+{
+    private static final int BUCKETS = 33;
+
+    private final int[] heads = new int[BUCKETS];
+
+    private final int[] next;
+    private final int[] previous;
+    private final int[] buckets;
+    private final int[] priorities;
+
+    private int last;
+    private int count;
+
+    public RadixPriorityQueue(int capacity)
+    {
+        next = new int[capacity];
+        previous = new int[capacity];
+        buckets = new int[capacity];
+        priorities = new int[capacity];
+
+        for (int i = 0; i < capacity; i++)
+        {
+            buckets[i] = -1;
+        }
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            heads[i] = -1;
+        }
+        last = Integer.MIN_VALUE;
+    }
+
+    private int bucketIndex(int priority)
+    {
+        return priority == last ? 0 : 32 - Integer.numberOfLeadingZeros(priority ^ last);
+    }
+
+    private void link(int value, int bucket)
+    {
+        int head = heads[bucket];
+        next[value] = head;
+        previous[value] = -1;
+        if (head >= 0)
+        {
+            previous[head] = value;
+        }
+        heads[bucket] = value;
+        buckets[value] = bucket;
+    }
+
+    private void unlink(int value)
+    {
+        int n = next[value];
+        int p = previous[value];
+        if (p >= 0)
+        {
+            next[p] = n;
+        }
+        else
+        {
+            heads[buckets[value]] = n;
+        }
+        if (n >= 0)
+        {
+            previous[n] = p;
+        }
+        buckets[value] = -1;
+    }
+
+    @Override
+    public void add(int priority, int value)
+    {
+        if (value < 0 || value >= buckets.length)
+        {
+            throw new IllegalArgumentException("Value " + value + " is out of range for capacity " + buckets.length);
+        }
+        if (buckets[value] >= 0)
+        {
+            throw new IllegalArgumentException("Value " + value + " is already in the queue");
+        }
+        if (priority < last)
+        {
+            throw new PriorityNotMonotoneException(last, priority);
+        }
+
+        priorities[value] = priority;
+        link(value, bucketIndex(priority));
+        count++;
+    }
+
+    @Override
+    public void lowerPriority(int value, int priority, int lowerPriority)
+    {
+        if (lowerPriority >= priority)
+        {
+            throw new PriorityNotLowerException(priority, lowerPriority);
+        }
+
+        if (value < 0 || value >= buckets.length || buckets[value] < 0 || priorities[value] != priority)
+        {
+            throw new QueueElementNotFound(priority, value);
+        }
+
+        if (lowerPriority < last)
+        {
+            throw new PriorityNotMonotoneException(last, lowerPriority);
+        }
+
+        unlink(value);
+        priorities[value] = lowerPriority;
+        link(value, bucketIndex(lowerPriority));
+    }
+
+    @Override
+    public int popMinimalValue()
+    {
+        if (count == 0)
+        {
+            throw new QueueEmptyException();
+        }
+
+        if (heads[0] < 0)
+        {
+            int bucket = 1;
+            while (heads[bucket] < 0)
+            {
+                bucket++;
+            }
+
+            int min = Integer.MAX_VALUE;
+            for (int value = heads[bucket]; value >= 0; value = next[value])
+            {
+                min = Math.min(min, priorities[value]);
+            }
+            last = min;
+
+            int value = heads[bucket];
+            heads[bucket] = -1;
+            while (value >= 0)
+            {
+                int n = next[value];
+                link(value, bucketIndex(priorities[value]));
+                value = n;
+            }
+        }
+
+        int value = heads[0];
+        unlink(value);
+        count--;
+        return value;
+    }
+
+    @Override
+    public int size()
+    {
+        return count;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    @Override
+    public void clear()
+    {
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            int value = heads[i];
+            while (value >= 0)
+            {
+                buckets[value] = -1;
+                value = next[value];
+            }
+            heads[i] = -1;
+        }
+        count = 0;
+        last = Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,31 @@
+package org.oseditor.graph;
+
+/**
+ * Defines how {@link GraphLayout} calculates the repulsion between nodes.
+ *
+ * @see GraphLayoutConfig#getRepulsionMode()
+ */
+public enum RepulsionMode
+{
+    /**
+     * Exact repulsion between every pair of nodes. O(n^2) per evaluation, serves as reference.
+     */
+    EXACT,
+
+    /**
+     * Barnes-Hut approximation of the repulsion. Distant groups of nodes are summarized by their
+     * center of mass in a quad-tree rebuilt on every evaluation. O(n log n) per evaluation.
+     *
+     * @see GraphLayoutConfig#getBarnesHutTheta()
+     */
+    BARNES_HUT,
+
+    /**
+     * Exact repulsion, but only between nodes closer than the maximum distance of the repulsion fall off curve. The
+     * nodes within that distance are found in a uniform grid rebuilt on every evaluation. O(n) per evaluation as long
+     * as the nodes are spread out. Needs a repulsion fall off curve with a minimum value of 0.
+     *
+     * @see GraphLayoutConfig#getRepulsionFallOff()
+     */
+    CUTOFF
+}
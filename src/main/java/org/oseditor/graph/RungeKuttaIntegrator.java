@@ -0,0 +1,126 @@
+package org.oseditor.graph;
+
+/**
+ * Classic fourth order Runge-Kutta integration with fixed step size.
+ */
+final class RungeKuttaIntegrator
+    extends Integrator
+{
+    /**
+     * Preallocated states for the allocation-free simulation step, <code>null</code> if every step allocates
+     * new states.
+     */
+    private final State zero, a, b, c, d, scratch;
+
+    /** precision of the intermediary states and derivatives */
+    private final StatePrecision precision;
+
+    RungeKuttaIntegrator(int nodeCount, boolean reuseBuffers)
+    {
+        this(nodeCount, reuseBuffers, StatePrecision.DOUBLE);
+    }
+
+    /**
+     * Creates a new RK4 integrator.
+     *
+     * @param nodeCount     number of nodes
+     * @param reuseBuffers  if <code>true</code>, all intermediary states of a step are allocated once and reused
+     * @param precision     precision of the intermediary states and derivatives
+     */
+    RungeKuttaIntegrator(int nodeCount, boolean reuseBuffers, StatePrecision precision)
+    {
+        this.precision = precision;
+        if (reuseBuffers)
+        {
+            zero = new State(nodeCount, precision);
+            a = new State(nodeCount, precision);
+            b = new State(nodeCount, precision);
+            c = new State(nodeCount, precision);
+            d = new State(nodeCount, precision);
+            scratch = new State(nodeCount, precision);
+        }
+        else
+        {
+            zero = a = b = c = d = scratch = null;
+        }
+    }
+
+    @Override
+    double step(AbstractForceSolver solver, State state, double time, double delta)
+    {
+        if (scratch != null)
+        {
+            stepInPlace(solver, state, time, delta);
+            return delta;
+        }
+
+        State nd = new State(state.size(), precision);
+        State a = solver.evaluate(state, nd, time, 0);
+        State b = solver.evaluate(state,  a, time, delta * 0.5);
+        State c = solver.evaluate(state,  b, time, delta * 0.5);
+        State d = solver.evaluate(state,  c, time, delta);
+
+        b.add(c).scale(2);
+        d.add(a).add(b).scale(1.0/6);
+
+        state.add(d.scale(delta));
+
+        return delta;
+    }
+
+    /**
+     * RK4 step on the preallocated states. For {@link StatePrecision#DOUBLE} states it performs the same floating
+     * point operations in the same order as the allocating variant, so both produce identical results. Float states
+     * round at different points and only agree within float precision.
+     */
+    private void stepInPlace(AbstractForceSolver solver, State state, double time, double delta)
+    {
+        evaluate(solver, state, zero, time, 0, a);
+        evaluate(solver, state,    a, time, delta * 0.5, b);
+        evaluate(solver, state,    b, time, delta * 0.5, c);
+        evaluate(solver, state,    c, time, delta, d);
+
+        double[] stateData = state.getData();
+        if (precision == StatePrecision.FLOAT)
+        {
+            addFloat(stateData, delta);
+            return;
+        }
+
+        double[] aData = a.getData();
+        double[] bData = b.getData();
+        double[] cData = c.getData();
+        double[] dData = d.getData();
+
+        double sixth = 1.0 / 6;
+        for (int i = 0; i < stateData.length; i++)
+        {
+            stateData[i] += (((dData[i] + aData[i]) + (bData[i] + cData[i]) * 2) * sixth) * delta;
+        }
+    }
+
+    /**
+     * Adds the weighted float derivatives to the double positions.
+     */
+    private void addFloat(double[] stateData, double delta)
+    {
+        float[] aXs = a.getXs(), aYs = a.getYs();
+        float[] bXs = b.getXs(), bYs = b.getYs();
+        float[] cXs = c.getXs(), cYs = c.getYs();
+        float[] dXs = d.getXs(), dYs = d.getYs();
+
+        double sixth = 1.0 / 6;
+        for (int i = 0, j = 0; i < aXs.length; i++)
+        {
+            stateData[j++] += (((dXs[i] + aXs[i]) + (bXs[i] + cXs[i]) * 2.0) * sixth) * delta;
+            stateData[j++] += (((dYs[i] + aYs[i]) + (bYs[i] + cYs[i]) * 2.0) * sixth) * delta;
+        }
+    }
+
+    private void evaluate(AbstractForceSolver solver, State initialState, State derivative, double time, double delta, State result)
+    {
+        scratch.axpy(delta, derivative, initialState);
+
+        solver.derivative(scratch, time, delta, result);
+    }
+}
@@ -0,0 +1,68 @@
+package org.oseditor.graph;
+
+/**
+ * Keeps the upper triangle of a symmetric distance matrix in unsigned 16 bit entries.
+ */
+public final class ShortDistanceStore
+    implements DistanceStore
+{
+    static final int MAX_DISTANCE = 0xfffe;
+
+    private static final int UNREACHABLE = 0xffff;
+
+    private final short[][] rows;
+
+    public ShortDistanceStore(int nodeCount)
+    {
+        rows = new short[nodeCount][];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            rows[i] = new short[nodeCount - 1 - i];
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return rows.length;
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        if (from == to)
+        {
+            return 0;
+        }
+
+        int value;
+        if (from > to)
+        {
+            value = rows[to][from - to - 1] & 0xffff;
+        }
+        else
+        {
+            value = rows[from][to - from - 1] & 0xffff;
+        }
+        return value == UNREACHABLE ? Integer.MAX_VALUE : value;
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        short[] row = rows[from];
+        for (int i = 0, j = from + 1; i < row.length; i++, j++)
+        {
+            int distance = distances[j];
+            if (distance == Integer.MAX_VALUE)
+            {
+                distance = UNREACHABLE;
+            }
+            else if (distance > MAX_DISTANCE || distance < 0)
+            {
+                throw new DistanceOutOfRangeException(distance, MAX_DISTANCE);
+            }
+            row[i] = (short) distance;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.oseditor.graph;
+
+/**
+ * Algorithm used to calculate the target distances between all nodes.
+ *
+ * @see GraphLayoutConfig#getShortestPathAlgorithm()
+ */
+public enum ShortestPathAlgorithm
+{
+    /**
+     * Uses {@link #BFS} if the distance factor is 1 and the distance function is a {@link PureDistanceFunction}
+     * returning the same distance for every edge, {@link #DIJKSTRA} otherwise.
+     */
+    AUTO,
+
+    /**
+     * One Dijkstra search per node, works with every distance function.
+     */
+    DIJKSTRA,
+
+    /**
+     * Bit-parallel breadth-first search from 64 nodes at once. Treats every edge as having a distance of 1, without
+     * consulting the distance function.
+     */
+    BFS
+}
@@ -0,0 +1,126 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Keeps only the distances up to a cutoff, in sorted per-node rows of the upper triangle. All other distances are
+ * reported as {@link Integer#MAX_VALUE}, which disables the spring between those nodes.
+ */
+public final class SparseDistanceStore
+    implements DistanceStore
+{
+    private static final int[] EMPTY = new int[0];
+
+    private final int cutoff;
+
+    private final int[][] targets;
+    private final int[][] values;
+
+    public SparseDistanceStore(int nodeCount, int cutoff)
+    {
+        // unreachable nodes are never stored
+        this.cutoff = Math.min(cutoff, Integer.MAX_VALUE - 1);
+        targets = new int[nodeCount][];
+        values = new int[nodeCount][];
+        Arrays.fill(targets, EMPTY);
+        Arrays.fill(values, EMPTY);
+    }
+
+    public int getCutoff()
+    {
+        return cutoff;
+    }
+
+    @Override
+    public int size()
+    {
+        return targets.length;
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        if (from == to)
+        {
+            return 0;
+        }
+        if (from > to)
+        {
+            int h = from;
+            from = to;
+            to = h;
+        }
+
+        int index = Arrays.binarySearch(targets[from], to);
+        return index < 0 ? Integer.MAX_VALUE : values[from][index];
+    }
+
+    /**
+     * Returns the nodes with a higher index the given node has a distance to, in ascending order. The array must not
+     * be modified.
+     */
+    public int[] getRowTargets(int from)
+    {
+        return targets[from];
+    }
+
+    /**
+     * Returns the distances to the nodes of {@link #getRowTargets(int)}. The array must not be modified.
+     */
+    public int[] getRowValues(int from)
+    {
+        return values[from];
+    }
+
+    /**
+     * Sets the row of the given node from distances that are already within the cutoff.
+     *
+     * @param from          node index
+     * @param rowTargets    nodes with a higher index, in ascending order
+     * @param rowValues     distances to those nodes
+     * @param count         number of entries to copy
+     */
+    public void setRow(int from, int[] rowTargets, int[] rowValues, int count)
+    {
+        targets[from] = count == 0 ? EMPTY : Arrays.copyOf(rowTargets, count);
+        values[from] = count == 0 ? EMPTY : Arrays.copyOf(rowValues, count);
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        int nodeCount = distances.length;
+
+        int count = 0;
+        for (int j = from + 1; j < nodeCount; j++)
+        {
+            if (distances[j] <= cutoff)
+            {
+                count++;
+            }
+        }
+
+        if (count == 0)
+        {
+            targets[from] = EMPTY;
+            values[from] = EMPTY;
+            return;
+        }
+
+        int[] rowTargets = new int[count];
+        int[] rowValues = new int[count];
+        for (int j = from + 1, i = 0; j < nodeCount; j++)
+        {
+            int distance = distances[j];
+            if (distance <= cutoff)
+            {
+                rowTargets[i] = j;
+                rowValues[i] = distance;
+                i++;
+            }
+        }
+
+        targets[from] = rowTargets;
+        values[from] = rowValues;
+    }
+}
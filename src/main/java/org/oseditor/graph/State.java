@@ -3,8 +3,13 @@ package org.oseditor.graph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+
 /**
  * Encapsulates the internal node state or a derivative of it.
+ *
+ * A state either keeps interleaved x/y <code>double</code> values or separate x and y <code>float</code> arrays, see
+ * {@link StatePrecision}. The arithmetic accepts states of both precisions and converts where they differ.
  */
 public final class State
     implements Cloneable
@@ -12,27 +17,237 @@ public final class State
     private static Logger log = LoggerFactory.getLogger(State.class);
 
 
+    /** interleaved x/y values, <code>null</code> for a float state */
     private double[] data;
 
+    /** x and y values of a float state, <code>null</code> for a double state */
+    private float[] xs;
+    private float[] ys;
+
     public State(int size)
     {
         data = new double[size * 2];
     }
 
+    /**
+     * Creates a state with the given precision.
+     *
+     * @param size          number of nodes
+     * @param precision     precision and layout of the values
+     */
+    public State(int size, StatePrecision precision)
+    {
+        if (precision == StatePrecision.FLOAT)
+        {
+            xs = new float[size];
+            ys = new float[size];
+        }
+        else
+        {
+            data = new double[size * 2];
+        }
+    }
+
+    public StatePrecision getPrecision()
+    {
+        return data != null ? StatePrecision.DOUBLE : StatePrecision.FLOAT;
+    }
+
     public State add(State that)
     {
-        for (int i=0; i < data.length; i++)
+        if (data != null && that.data != null)
         {
-            data[i] += that.data[i];
+            for (int i=0; i < data.length; i++)
+            {
+                data[i] += that.data[i];
+            }
+        }
+        else if (data == null && that.data == null)
+        {
+            float[] thatXs = that.xs;
+            float[] thatYs = that.ys;
+            for (int i=0; i < xs.length; i++)
+            {
+                xs[i] += thatXs[i];
+            }
+            for (int i=0; i < ys.length; i++)
+            {
+                ys[i] += thatYs[i];
+            }
+        }
+        else
+        {
+            for (int i=0, count = size(); i < count; i++)
+            {
+                setX(i, getX(i) + that.getX(i));
+                setY(i, getY(i) + that.getY(i));
+            }
         }
         return this;
     }
 
     public State scale(double s)
     {
-        for (int i=0; i < data.length; i++)
+        if (data != null)
+        {
+            for (int i=0; i < data.length; i++)
+            {
+                data[i] *= s;
+            }
+        }
+        else
+        {
+            float f = (float) s;
+            for (int i=0; i < xs.length; i++)
+            {
+                xs[i] *= f;
+            }
+            for (int i=0; i < ys.length; i++)
+            {
+                ys[i] *= f;
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds the scaled values of the given state to this state (this += s * that).
+     *
+     * @param that  state to add
+     * @param s     scale factor
+     * @return this state
+     */
+    public State addScaled(State that, double s)
+    {
+        if (data != null && that.data != null)
+        {
+            double[] thatData = that.data;
+            for (int i=0; i < data.length; i++)
+            {
+                data[i] += thatData[i] * s;
+            }
+        }
+        else if (data == null && that.data == null)
+        {
+            float f = (float) s;
+            float[] thatXs = that.xs;
+            float[] thatYs = that.ys;
+            for (int i=0; i < xs.length; i++)
+            {
+                xs[i] += thatXs[i] * f;
+            }
+            for (int i=0; i < ys.length; i++)
+            {
+                ys[i] += thatYs[i] * f;
+            }
+        }
+        else if (data != null)
+        {
+            // a float derivative added to double positions
+            float[] thatXs = that.xs;
+            float[] thatYs = that.ys;
+            for (int i=0, j=0; i < thatXs.length; i++)
+            {
+                data[j++] += thatXs[i] * s;
+                data[j++] += thatYs[i] * s;
+            }
+        }
+        else
+        {
+            for (int i=0, count = size(); i < count; i++)
+            {
+                setX(i, getX(i) + that.getX(i) * s);
+                setY(i, getY(i) + that.getY(i) * s);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Sets this state to the sum of the scaled state x and the state y (this = a * x + y).
+     *
+     * @param a     scale factor for x
+     * @param x     state to scale
+     * @param y     state to add
+     * @return this state
+     */
+    public State axpy(double a, State x, State y)
+    {
+        if (data != null && x.data != null && y.data != null)
+        {
+            double[] xData = x.data;
+            double[] yData = y.data;
+            for (int i=0; i < data.length; i++)
+            {
+                data[i] = xData[i] * a + yData[i];
+            }
+        }
+        else if (data == null && x.data == null && y.data != null)
+        {
+            // float stage from a float derivative and the double positions
+            float[] xXs = x.xs;
+            float[] xYs = x.ys;
+            double[] yData = y.data;
+            for (int i=0, j=0; i < xs.length; i++)
+            {
+                xs[i] = (float) (xXs[i] * a + yData[j++]);
+                ys[i] = (float) (xYs[i] * a + yData[j++]);
+            }
+        }
+        else
+        {
+            for (int i=0, count = size(); i < count; i++)
+            {
+                setX(i, x.getX(i) * a + y.getX(i));
+                setY(i, x.getY(i) * a + y.getY(i));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Copies the values of the given state into this state.
+     *
+     * @param that  state to copy
+     * @return this state
+     */
+    public State set(State that)
+    {
+        if (data != null && that.data != null)
+        {
+            System.arraycopy(that.data, 0, data, 0, data.length);
+        }
+        else if (data == null && that.data == null)
         {
-            data[i] *= s;
+            System.arraycopy(that.xs, 0, xs, 0, xs.length);
+            System.arraycopy(that.ys, 0, ys, 0, ys.length);
+        }
+        else
+        {
+            for (int i=0, count = size(); i < count; i++)
+            {
+                setX(i, that.getX(i));
+                setY(i, that.getY(i));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Sets all values to zero.
+     *
+     * @return this state
+     */
+    public State clear()
+    {
+        if (data != null)
+        {
+            Arrays.fill(data, 0);
+        }
+        else
+        {
+            Arrays.fill(xs, 0);
+            Arrays.fill(ys, 0);
         }
         return this;
     }
@@ -42,9 +257,15 @@ public final class State
         try
         {
             State clone = (State) super.clone();
-            int len = this.data.length;
-            clone.data = new double[len];
-            System.arraycopy(this.data, 0, clone.data, 0, len);
+            if (data != null)
+            {
+                clone.data = data.clone();
+            }
+            else
+            {
+                clone.xs = xs.clone();
+                clone.ys = ys.clone();
+            }
 
             return clone;
 
@@ -58,33 +279,104 @@ public final class State
 
     public int size()
     {
-        return data.length / 2;
+        return data != null ? data.length / 2 : xs.length;
     }
 
+    /**
+     * Returns the interleaved x/y values of a double state.
+     *
+     * @throws IllegalStateException for a float state
+     */
     public double[] getData()
     {
+        if (data == null)
+        {
+            throw new IllegalStateException("Float state has no interleaved data");
+        }
         return data;
     }
 
+    /**
+     * Returns the x values of a float state.
+     *
+     * @throws IllegalStateException for a double state
+     */
+    public float[] getXs()
+    {
+        if (xs == null)
+        {
+            throw new IllegalStateException("Double state has no separate x values");
+        }
+        return xs;
+    }
+
+    /**
+     * Returns the y values of a float state.
+     *
+     * @throws IllegalStateException for a double state
+     */
+    public float[] getYs()
+    {
+        if (ys == null)
+        {
+            throw new IllegalStateException("Double state has no separate y values");
+        }
+        return ys;
+    }
+
+    public double getX(int index)
+    {
+        return data != null ? data[index * 2] : xs[index];
+    }
+
+    public double getY(int index)
+    {
+        return data != null ? data[index * 2 + 1] : ys[index];
+    }
+
+    private void setX(int index, double x)
+    {
+        if (data != null)
+        {
+            data[index * 2] = x;
+        }
+        else
+        {
+            xs[index] = (float) x;
+        }
+    }
+
+    private void setY(int index, double y)
+    {
+        if (data != null)
+        {
+            data[index * 2 + 1] = y;
+        }
+        else
+        {
+            ys[index] = (float) y;
+        }
+    }
+
     @Override
     public String toString()
     {
-        int count = data.length;
+        int count = size();
         String cut = "";
-        if (count > 50)
+        if (count > 25)
         {
-            count = 50;
+            count = 25;
             cut = " ...";
         }
         StringBuilder sb = new StringBuilder();
-        for (int i=0; i < count; i+=2)
+        for (int i=0; i < count; i++)
         {
-            sb.append(data[i]);
+            sb.append(getX(i));
             sb.append(",");
-            sb.append(data[i+1]);
+            sb.append(getY(i));
             sb.append(" ");
         }
 
-        return super.toString() + ": " + sb.toString() + cut + " ( " + data.length + " )" ;
+        return super.toString() + ": " + sb.toString() + cut + " ( " + size() * 2 + " )" ;
     }
 }
@@ -0,0 +1,25 @@
+package org.oseditor.graph;
+
+/**
+ * Precision and memory layout of the intermediary states the integrator calculates the forces for.
+ *
+ * The positions of the layout itself are always kept as interleaved <code>double</code> values, so small steps add up
+ * without rounding and {@link AbstractForceSolver#getInternalState()} stays the same for both precisions.
+ *
+ * @see GraphLayoutConfig#getStatePrecision()
+ */
+public enum StatePrecision
+{
+    /**
+     * Interleaved x/y <code>double</code> values.
+     */
+    DOUBLE,
+
+    /**
+     * Separate x and y <code>float</code> arrays. Halves the memory the pair forces read and write, and the state
+     * arithmetic runs over plain arrays of one coordinate. Positions and forces lose precision beyond about seven
+     * digits. {@link IntegrationMethod#DORMAND_PRINCE} needs the precision for its error estimate and always uses
+     * {@link #DOUBLE}.
+     */
+    FLOAT
+}
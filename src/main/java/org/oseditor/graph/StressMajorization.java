@@ -0,0 +1,289 @@
+package org.oseditor.graph;
+
+import java.util.Arrays;
+
+/**
+ * Stress majorization of the target distances of a {@link GraphLayout} (Gansner, Koren and North, "Graph Drawing by
+ * Stress Majorization"). Each iteration moves every node to the weighted average of the positions its terms suggest:
+ * the position of the other node plus the target distance in the direction of the node. Terms are weighted with
+ * the inverse square of the target distance. All nodes are updated from the positions of the previous iteration, so
+ * node ranges can be updated in parallel and the result does not depend on the order. Unlike the full Guttman
+ * transform or an in-order update, this localized update does not guarantee that the stress decreases monotonically.
+ *
+ * With all distances known, every node has a term for every other node it is connected to. With
+ * {@link DistanceStorage#SPARSE} only the stored distances are terms, and the distances beyond the cutoff are
+ * approximated with a few pivots (Ortmann, Klimenta and Brandes, "A Sparse Stress Model"): each node gets a term for
+ * every pivot outside its cutoff, weighted with the number of nodes of the pivot's region between the pivot and half
+ * the way to the node. With {@link DistanceStorage#LANDMARK} the landmarks are the pivots.
+ */
+final class StressMajorization
+{
+    /** spreads the directions between coincident nodes */
+    private static final double GOLDEN_ANGLE = Math.PI * (3 - Math.sqrt(5));
+
+    private final int nodeCount;
+    private final DistanceStore distances;
+
+    /** terms of every node for the sparse model, <code>null</code> if all distances are known */
+    private int[] termOffsets;
+    private int[] termTargets;
+    private int[] termDistances;
+    private double[] termWeights;
+
+    StressMajorization(GraphLayout layout)
+    {
+        this.nodeCount = layout.nodeCount;
+        this.distances = layout.distances;
+
+        if (distances instanceof SparseDistanceStore)
+        {
+            Pivots pivots = new Pivots(layout, layout.config.getStressPivots());
+            createSparseTerms((SparseDistanceStore) distances, pivots.indexes, pivots.rows);
+        }
+        else if (distances instanceof LandmarkDistanceStore)
+        {
+            LandmarkDistanceStore store = (LandmarkDistanceStore) distances;
+            createSparseTerms(store.getLocal(), store.getLandmarks(), landmarkRows(store));
+        }
+    }
+
+    /**
+     * Writes the positions of the given nodes after one iteration.
+     *
+     * @param current       interleaved positions of the previous iteration
+     * @param next          interleaved positions to write
+     * @param start         first node
+     * @param end           end node (exclusive)
+     */
+    void iterate(double[] current, double[] next, int start, int end)
+    {
+        boolean sparse = termOffsets != null;
+        for (int i = start; i < end; i++)
+        {
+            double x = current[i * 2];
+            double y = current[i * 2 + 1];
+
+            double sumX = 0;
+            double sumY = 0;
+            double sumWeights = 0;
+            for (int k = sparse ? termOffsets[i] : 0, termEnd = sparse ? termOffsets[i + 1] : nodeCount; k < termEnd; k++)
+            {
+                int j;
+                int distance;
+                double weight;
+                if (sparse)
+                {
+                    j = termTargets[k];
+                    distance = termDistances[k];
+                    weight = termWeights[k];
+                }
+                else
+                {
+                    j = k;
+                    distance = distances.getDistance(i, j);
+                    if (j == i || distance <= 0 || distance == Integer.MAX_VALUE)
+                    {
+                        continue;
+                    }
+                    weight = 1.0 / ((double) distance * distance);
+                }
+
+                double otherX = current[j * 2];
+                double otherY = current[j * 2 + 1];
+                double dx = x - otherX;
+                double dy = y - otherY;
+                double length = Math.sqrt(dx * dx + dy * dy);
+                if (length == 0)
+                {
+                    // coincident nodes move apart in opposite directions that only depend on the two indexes
+                    double angle = GOLDEN_ANGLE * (i + j);
+                    double sign = i < j ? 1 : -1;
+                    dx = sign * Math.cos(angle);
+                    dy = sign * Math.sin(angle);
+                    length = 1;
+                }
+
+                double scale = distance / length;
+                sumX += weight * (otherX + dx * scale);
+                sumY += weight * (otherY + dy * scale);
+                sumWeights += weight;
+            }
+
+            if (sumWeights > 0)
+            {
+                next[i * 2] = sumX / sumWeights;
+                next[i * 2 + 1] = sumY / sumWeights;
+            }
+            else
+            {
+                next[i * 2] = x;
+                next[i * 2 + 1] = y;
+            }
+        }
+    }
+
+    private void createSparseTerms(SparseDistanceStore sparse, int[] pivots, int[][] pivotRows)
+    {
+        int cutoff = sparse.getCutoff();
+        int pivotCount = pivots.length;
+
+        int[] counts = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int j : sparse.getRowTargets(i))
+            {
+                counts[i]++;
+                counts[j]++;
+            }
+        }
+
+        int[][] regionDistances = regionDistances(pivotRows);
+        for (int p = 0; p < pivotCount; p++)
+        {
+            for (int i = 0; i < nodeCount; i++)
+            {
+                if (isPivotTerm(pivotRows[p][i], cutoff))
+                {
+                    counts[i]++;
+                }
+            }
+        }
+
+        termOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            termOffsets[i + 1] = termOffsets[i] + counts[i];
+        }
+        int termCount = termOffsets[nodeCount];
+        termTargets = new int[termCount];
+        termDistances = new int[termCount];
+        termWeights = new double[termCount];
+
+        int[] next = Arrays.copyOf(termOffsets, nodeCount);
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int[] rowTargets = sparse.getRowTargets(i);
+            int[] rowValues = sparse.getRowValues(i);
+            for (int k = 0; k < rowTargets.length; k++)
+            {
+                int distance = rowValues[k];
+                double weight = distance > 0 ? 1.0 / ((double) distance * distance) : 0;
+                addTerm(next, i, rowTargets[k], distance, weight);
+                addTerm(next, rowTargets[k], i, distance, weight);
+            }
+        }
+
+        for (int p = 0; p < pivotCount; p++)
+        {
+            int[] row = pivotRows[p];
+            for (int i = 0; i < nodeCount; i++)
+            {
+                int distance = row[i];
+                if (isPivotTerm(distance, cutoff))
+                {
+                    // the pivot itself is always part of its region
+                    int regionSize = Math.max(1, upperBound(regionDistances[p], distance / 2));
+                    addTerm(next, i, pivots[p], distance, regionSize / ((double) distance * distance));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the distances from every landmark to all nodes.
+     */
+    private int[][] landmarkRows(LandmarkDistanceStore store)
+    {
+        int[][] rows = new int[store.getLandmarks().length][nodeCount];
+        for (int p = 0; p < rows.length; p++)
+        {
+            for (int i = 0; i < nodeCount; i++)
+            {
+                rows[p][i] = store.getLandmarkDistance(i, p);
+            }
+        }
+        return rows;
+    }
+
+    private static boolean isPivotTerm(int distance, int cutoff)
+    {
+        // nodes within the cutoff already have a term for the pivot
+        return distance > cutoff && distance != Integer.MAX_VALUE;
+    }
+
+    private void addTerm(int[] next, int i, int j, int distance, double weight)
+    {
+        int k = next[i]++;
+        termTargets[k] = j;
+        termDistances[k] = distance;
+        termWeights[k] = weight;
+    }
+
+    /**
+     * Assigns every node to its closest pivot and returns the sorted distances of the nodes of every region to its
+     * pivot.
+     */
+    private int[][] regionDistances(int[][] pivotRows)
+    {
+        int pivotCount = pivotRows.length;
+        int[][] regions = new int[pivotCount][];
+        if (pivotCount == 0)
+        {
+            return regions;
+        }
+
+        int[] region = new int[nodeCount];
+        int[] sizes = new int[pivotCount];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int closest = 0;
+            for (int p = 1; p < pivotCount; p++)
+            {
+                if (pivotRows[p][i] < pivotRows[closest][i])
+                {
+                    closest = p;
+                }
+            }
+            region[i] = closest;
+            sizes[closest]++;
+        }
+
+        for (int p = 0; p < pivotCount; p++)
+        {
+            regions[p] = new int[sizes[p]];
+            sizes[p] = 0;
+        }
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int p = region[i];
+            regions[p][sizes[p]++] = pivotRows[p][i];
+        }
+        for (int[] distancesInRegion : regions)
+        {
+            Arrays.sort(distancesInRegion);
+        }
+        return regions;
+    }
+
+    /**
+     * Returns the number of values in the sorted array that are less than or equal to the given value.
+     */
+    private static int upperBound(int[] sorted, int value)
+    {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high)
+        {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= value)
+            {
+                low = mid + 1;
+            }
+            else
+            {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
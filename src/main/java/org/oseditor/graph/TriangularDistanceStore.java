@@ -0,0 +1,47 @@
+package org.oseditor.graph;
+
+/**
+ * Keeps the upper triangle of a symmetric distance matrix. Each row only holds the distances to the nodes with a
+ * higher index.
+ */
+public final class TriangularDistanceStore
+    implements DistanceStore
+{
+    private final int[][] rows;
+
+    public TriangularDistanceStore(int nodeCount)
+    {
+        rows = new int[nodeCount][];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            rows[i] = new int[nodeCount - 1 - i];
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return rows.length;
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        if (from == to)
+        {
+            return 0;
+        }
+        if (from > to)
+        {
+            return rows[to][from - to - 1];
+        }
+        return rows[from][to - from - 1];
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        int[] row = rows[from];
+        System.arraycopy(distances, from + 1, row, 0, row.length);
+    }
+}
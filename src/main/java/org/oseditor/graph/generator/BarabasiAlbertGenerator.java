@@ -0,0 +1,99 @@
+package org.oseditor.graph.generator;
+
+import java.util.Random;
+
+/**
+ * Barabasi-Albert preferential attachment graph. Nodes are added one by one and connected to a
+ * fixed number of distinct existing nodes, chosen with a probability proportional to their degree.
+ * Produces a connected, scale-free graph with a few very high degree hubs.
+ */
+public class BarabasiAlbertGenerator
+    extends GraphGenerator
+{
+    private final int nodeCount;
+
+    private final int edgesPerNode;
+
+    /**
+     * @param nodeCount     number of nodes
+     * @param edgesPerNode  number of edges each new node attaches with
+     * @param seed          random seed
+     */
+    public BarabasiAlbertGenerator(int nodeCount, int edgesPerNode, long seed)
+    {
+        super(seed);
+        checkPositive("nodeCount", nodeCount);
+        checkPositive("edgesPerNode", edgesPerNode);
+
+        this.nodeCount = nodeCount;
+        this.edgesPerNode = edgesPerNode;
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public int getEdgesPerNode()
+    {
+        return edgesPerNode;
+    }
+
+    @Override
+    protected void generateEdges(EdgeSink sink, Random random)
+    {
+        // both endpoints of every edge so far, a uniform pick selects nodes proportional to their degree
+        int[] endpoints = new int[(int) Math.min(Integer.MAX_VALUE - 8, 2L * edgesPerNode * nodeCount)];
+        int count = 0;
+
+        int[] targets = new int[edgesPerNode];
+
+        for (int node = 1; node < nodeCount; node++)
+        {
+            int links;
+            if (node <= edgesPerNode)
+            {
+                // not enough nodes yet to choose from, connect to all of them
+                links = node;
+                for (int i = 0; i < links; i++)
+                {
+                    targets[i] = i;
+                }
+            }
+            else
+            {
+                links = edgesPerNode;
+                for (int i = 0; i < links; i++)
+                {
+                    int target;
+                    do
+                    {
+                        target = endpoints[random.nextInt(count)];
+                    } while (contains(targets, i, target));
+                    targets[i] = target;
+                }
+            }
+
+            for (int i = 0; i < links; i++)
+            {
+                int target = targets[i];
+                sink.edge(node, target);
+                endpoints[count++] = node;
+                endpoints[count++] = target;
+            }
+        }
+    }
+
+    private static boolean contains(int[] array, int len, int value)
+    {
+        for (int i = 0; i < len; i++)
+        {
+            if (array[i] == value)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,75 @@
+package org.oseditor.graph.generator;
+
+import java.util.Random;
+
+/**
+ * Several disconnected clusters. Every cluster is a random tree with additional random edges
+ * inside the cluster, so the clusters themselves are connected.
+ */
+public class ClusterGenerator
+    extends GraphGenerator
+{
+    private final int clusters;
+
+    private final int clusterSize;
+
+    private final int extraEdges;
+
+    /**
+     * @param clusters      number of clusters
+     * @param clusterSize   number of nodes per cluster
+     * @param extraEdges    number of random edges per cluster in addition to the spanning tree
+     * @param seed          random seed
+     */
+    public ClusterGenerator(int clusters, int clusterSize, int extraEdges, long seed)
+    {
+        super(seed);
+        checkPositive("clusters", clusters);
+        checkPositive("clusterSize", clusterSize);
+        if (extraEdges < 0)
+        {
+            throw new IllegalArgumentException("extraEdges can't be negative: " + extraEdges);
+        }
+        if ((long) clusters * clusterSize > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Too many nodes: " + clusters + " x " + clusterSize);
+        }
+
+        this.clusters = clusters;
+        this.clusterSize = clusterSize;
+        this.extraEdges = extraEdges;
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return clusters * clusterSize;
+    }
+
+    @Override
+    protected void generateEdges(EdgeSink sink, Random random)
+    {
+        for (int cluster = 0; cluster < clusters; cluster++)
+        {
+            int offset = cluster * clusterSize;
+            for (int i = 1; i < clusterSize; i++)
+            {
+                sink.edge(offset + random.nextInt(i), offset + i);
+            }
+
+            if (clusterSize > 1)
+            {
+                for (int i = 0; i < extraEdges; i++)
+                {
+                    int from = random.nextInt(clusterSize);
+                    int to = random.nextInt(clusterSize - 1);
+                    if (to >= from)
+                    {
+                        to++;
+                    }
+                    sink.edge(offset + from, offset + to);
+                }
+            }
+        }
+    }
+}
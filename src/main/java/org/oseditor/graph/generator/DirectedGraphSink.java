@@ -0,0 +1,90 @@
+package org.oseditor.graph.generator;
+
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.Edge;
+import org.oseditor.graph.GraphNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Builds a {@link DirectedGraph} from generated edges. Node ids are "n" followed by the node index,
+ * zero-padded so that ids sort in index order.
+ */
+public class DirectedGraphSink
+    implements EdgeSink
+{
+    private final double nodeWidth;
+    private final double nodeHeight;
+
+    private DirectedGraph graph;
+
+    private String[] ids;
+
+    public DirectedGraphSink()
+    {
+        this(10, 10);
+    }
+
+    public DirectedGraphSink(double nodeWidth, double nodeHeight)
+    {
+        this.nodeWidth = nodeWidth;
+        this.nodeHeight = nodeHeight;
+    }
+
+    @Override
+    public void begin(int nodeCount)
+    {
+        ids = new String[nodeCount];
+
+        Map<String, GraphNode> nodes = new HashMap<String, GraphNode>(nodeCount * 4 / 3 + 1);
+        for (int i = 0; i < nodeCount; i++)
+        {
+            String id = nodeId(i, nodeCount);
+            ids[i] = id;
+            nodes.put(id, new GraphNode(id, nodeWidth, nodeHeight));
+        }
+
+        graph = new DirectedGraph();
+        graph.setNodes(nodes);
+        graph.setEdges(new ArrayList<Edge>());
+    }
+
+    @Override
+    public void edge(int from, int to)
+    {
+        graph.addEdge(new Edge(ids[from], ids[to]));
+    }
+
+    @Override
+    public void end()
+    {
+        ids = null;
+    }
+
+    public DirectedGraph getGraph()
+    {
+        return graph;
+    }
+
+    /**
+     * Returns the id the sink uses for the node with the given index.
+     *
+     * @param index         node index
+     * @param nodeCount     number of nodes in the graph
+     */
+    public static String nodeId(int index, int nodeCount)
+    {
+        String number = String.valueOf(index);
+        int digits = String.valueOf(Math.max(nodeCount - 1, 0)).length();
+
+        StringBuilder sb = new StringBuilder(digits + 1);
+        sb.append('n');
+        for (int i = number.length(); i < digits; i++)
+        {
+            sb.append('0');
+        }
+        return sb.append(number).toString();
+    }
+}
@@ -0,0 +1,83 @@
+package org.oseditor.graph.generator;
+
+/**
+ * Collects generated edges as two growing int arrays. Needs 8 bytes per edge and no objects
+ * per node or edge.
+ */
+public class EdgeList
+    implements EdgeSink
+{
+    private int nodeCount;
+
+    private int edgeCount;
+
+    private int[] from = new int[16];
+    private int[] to = new int[16];
+
+    @Override
+    public void begin(int nodeCount)
+    {
+        this.nodeCount = nodeCount;
+        edgeCount = 0;
+    }
+
+    @Override
+    public void edge(int from, int to)
+    {
+        if (edgeCount == this.from.length)
+        {
+            int len = edgeCount * 2;
+            this.from = copyOf(this.from, len);
+            this.to = copyOf(this.to, len);
+        }
+
+        this.from[edgeCount] = from;
+        this.to[edgeCount] = to;
+        edgeCount++;
+    }
+
+    @Override
+    public void end()
+    {
+    }
+
+    private static int[] copyOf(int[] array, int len)
+    {
+        int[] copy = new int[len];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, len));
+        return copy;
+    }
+
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    public int getFrom(int edge)
+    {
+        return from[edge];
+    }
+
+    public int getTo(int edge)
+    {
+        return to[edge];
+    }
+
+    /**
+     * Replays the collected edges into another sink.
+     */
+    public void replay(EdgeSink sink)
+    {
+        sink.begin(nodeCount);
+        for (int i = 0; i < edgeCount; i++)
+        {
+            sink.edge(from[i], to[i]);
+        }
+        sink.end();
+    }
+}
@@ -0,0 +1,27 @@
+package org.oseditor.graph.generator;
+
+/**
+ * Receives the output of a {@link GraphGenerator} as a stream of node indexes.
+ *
+ * @see DirectedGraphSink
+ * @see EdgeList
+ */
+public interface EdgeSink
+{
+    /**
+     * Called once before the first edge.
+     *
+     * @param nodeCount     number of nodes, the edges use indexes from 0 to nodeCount - 1
+     */
+    void begin(int nodeCount);
+
+    /**
+     * Called for every generated edge.
+     */
+    void edge(int from, int to);
+
+    /**
+     * Called once after the last edge.
+     */
+    void end();
+}
@@ -0,0 +1,93 @@
+package org.oseditor.graph.generator;
+
+import java.util.Random;
+
+/**
+ * Erdos-Renyi random graph G(n, p) where every pair of nodes is connected with the same probability,
+ * chosen so that the graph has the requested number of edges on average.
+ *
+ * Uses geometric skipping over the pairs (Batagelj and Brandes), so the running time is linear in
+ * the number of nodes and edges, not in the number of pairs. There are no self loops and no
+ * duplicate edges.
+ */
+public class ErdosRenyiGenerator
+    extends GraphGenerator
+{
+    private final int nodeCount;
+
+    private final double probability;
+
+    /**
+     * @param nodeCount     number of nodes
+     * @param edgeCount     expected number of edges
+     * @param seed          random seed
+     */
+    public ErdosRenyiGenerator(int nodeCount, long edgeCount, long seed)
+    {
+        super(seed);
+        checkPositive("nodeCount", nodeCount);
+        if (edgeCount < 0)
+        {
+            throw new IllegalArgumentException("edgeCount can't be negative: " + edgeCount);
+        }
+
+        this.nodeCount = nodeCount;
+
+        double pairs = (double) nodeCount * (nodeCount - 1) / 2;
+        this.probability = pairs == 0 ? 0 : Math.min(1.0, edgeCount / pairs);
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public double getProbability()
+    {
+        return probability;
+    }
+
+    @Override
+    protected void generateEdges(EdgeSink sink, Random random)
+    {
+        if (probability == 0)
+        {
+            return;
+        }
+
+        if (probability == 1)
+        {
+            for (int v = 1; v < nodeCount; v++)
+            {
+                for (int w = 0; w < v; w++)
+                {
+                    sink.edge(v, w);
+                }
+            }
+            return;
+        }
+
+        double logQ = Math.log(1 - probability);
+
+        // walk the lower triangle of the adjacency matrix row by row, skipping geometric gaps
+        int v = 1;
+        long w = -1;
+        while (v < nodeCount)
+        {
+            double skip = Math.floor(Math.log(1 - random.nextDouble()) / logQ);
+            w += 1 + (long) Math.min(skip, Long.MAX_VALUE / 4);
+
+            while (w >= v && v < nodeCount)
+            {
+                w -= v;
+                v++;
+            }
+
+            if (v < nodeCount)
+            {
+                sink.edge(v, (int) w);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.oseditor.graph.generator;
+
+import org.oseditor.graph.DirectedGraph;
+
+import java.util.Random;
+
+/**
+ * Base class for generators of reproducible synthetic graphs. The same generator settings and seed
+ * always produce the same edges in the same order.
+ */
+public abstract class GraphGenerator
+{
+    private final long seed;
+
+    protected GraphGenerator(long seed)
+    {
+        this.seed = seed;
+    }
+
+    public long getSeed()
+    {
+        return seed;
+    }
+
+    /**
+     * Returns the number of nodes the generator produces.
+     */
+    public abstract int getNodeCount();
+
+    /**
+     * Streams the generated graph into the given sink without building any intermediate structures.
+     */
+    public final void generate(EdgeSink sink)
+    {
+        sink.begin(getNodeCount());
+        generateEdges(sink, new Random(seed));
+        sink.end();
+    }
+
+    /**
+     * Generates a {@link DirectedGraph} with zero-padded node ids.
+     *
+     * @see DirectedGraphSink
+     */
+    public DirectedGraph createGraph()
+    {
+        DirectedGraphSink sink = new DirectedGraphSink();
+        generate(sink);
+        return sink.getGraph();
+    }
+
+    /**
+     * Generates the indexes of all edges.
+     */
+    public EdgeList createEdgeList()
+    {
+        EdgeList list = new EdgeList();
+        generate(list);
+        return list;
+    }
+
+    protected abstract void generateEdges(EdgeSink sink, Random random);
+
+    static void checkPositive(String name, int value)
+    {
+        if (value <= 0)
+        {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+    }
+}
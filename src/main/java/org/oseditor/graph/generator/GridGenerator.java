@@ -0,0 +1,82 @@
+package org.oseditor.graph.generator;
+
+import java.util.Random;
+
+/**
+ * Rectangular grid where every node is connected to its right and lower neighbour, optionally
+ * wrapped around into a torus.
+ */
+public class GridGenerator
+    extends GraphGenerator
+{
+    private final int width;
+
+    private final int height;
+
+    private final boolean torus;
+
+    public GridGenerator(int width, int height, boolean torus)
+    {
+        super(0);
+        checkPositive("width", width);
+        checkPositive("height", height);
+        if ((long) width * height > Integer.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Grid too large: " + width + " x " + height);
+        }
+
+        this.width = width;
+        this.height = height;
+        this.torus = torus;
+    }
+
+    /**
+     * Creates the most square grid of at least the given number of nodes.
+     */
+    public static GridGenerator square(int nodeCount, boolean torus)
+    {
+        checkPositive("nodeCount", nodeCount);
+        int width = (int) Math.ceil(Math.sqrt(nodeCount));
+        return new GridGenerator(width, (nodeCount + width - 1) / width, torus);
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return width * height;
+    }
+
+    @Override
+    protected void generateEdges(EdgeSink sink, Random random)
+    {
+        // wrapping a dimension of two or less would only duplicate existing edges
+        boolean wrapX = torus && width > 2;
+        boolean wrapY = torus && height > 2;
+
+        for (int y = 0; y < height; y++)
+        {
+            int row = y * width;
+            for (int x = 0; x < width; x++)
+            {
+                int node = row + x;
+                if (x + 1 < width)
+                {
+                    sink.edge(node, node + 1);
+                }
+                else if (wrapX)
+                {
+                    sink.edge(node, row);
+                }
+
+                if (y + 1 < height)
+                {
+                    sink.edge(node, node + width);
+                }
+                else if (wrapY)
+                {
+                    sink.edge(node, x);
+                }
+            }
+        }
+    }
+}
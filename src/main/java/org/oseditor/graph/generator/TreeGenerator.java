@@ -0,0 +1,39 @@
+package org.oseditor.graph.generator;
+
+import java.util.Random;
+
+/**
+ * Complete tree with a fixed branching factor, filled level by level.
+ */
+public class TreeGenerator
+    extends GraphGenerator
+{
+    private final int nodeCount;
+
+    private final int branching;
+
+    public TreeGenerator(int nodeCount, int branching)
+    {
+        super(0);
+        checkPositive("nodeCount", nodeCount);
+        checkPositive("branching", branching);
+
+        this.nodeCount = nodeCount;
+        this.branching = branching;
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    @Override
+    protected void generateEdges(EdgeSink sink, Random random)
+    {
+        for (int node = 1; node < nodeCount; node++)
+        {
+            sink.edge((node - 1) / branching, node);
+        }
+    }
+}
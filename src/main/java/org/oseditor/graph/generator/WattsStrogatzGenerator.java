@@ -0,0 +1,71 @@
+package org.oseditor.graph.generator;
+
+import java.util.Random;
+
+/**
+ * Watts-Strogatz small world graph. Starts from a ring where every node is connected to its nearest
+ * neighbours and rewires the far end of every edge to a random node with a given probability.
+ *
+ * Rewiring avoids self loops but does not check for existing edges, so a rewired edge can rarely
+ * duplicate another one.
+ */
+public class WattsStrogatzGenerator
+    extends GraphGenerator
+{
+    private final int nodeCount;
+
+    private final int neighbours;
+
+    private final double rewiring;
+
+    /**
+     * @param nodeCount     number of nodes
+     * @param neighbours    number of ring neighbours on each side, every node starts with twice that degree
+     * @param rewiring      probability to rewire an edge, between 0 (ring lattice) and 1 (random graph)
+     * @param seed          random seed
+     */
+    public WattsStrogatzGenerator(int nodeCount, int neighbours, double rewiring, long seed)
+    {
+        super(seed);
+        checkPositive("nodeCount", nodeCount);
+        checkPositive("neighbours", neighbours);
+        if (neighbours * 2 >= nodeCount)
+        {
+            throw new IllegalArgumentException("Too many neighbours for " + nodeCount + " nodes: " + neighbours);
+        }
+        if (rewiring < 0 || rewiring > 1)
+        {
+            throw new IllegalArgumentException("rewiring must be between 0 and 1: " + rewiring);
+        }
+
+        this.nodeCount = nodeCount;
+        this.neighbours = neighbours;
+        this.rewiring = rewiring;
+    }
+
+    @Override
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    @Override
+    protected void generateEdges(EdgeSink sink, Random random)
+    {
+        for (int node = 0; node < nodeCount; node++)
+        {
+            for (int i = 1; i <= neighbours; i++)
+            {
+                int target = (node + i) % nodeCount;
+                if (random.nextDouble() < rewiring)
+                {
+                    do
+                    {
+                        target = random.nextInt(nodeCount);
+                    } while (target == node);
+                }
+                sink.edge(node, target);
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package org.oseditor.graph.io;
+
+/**
+ * Layout of the binary graph snapshot files written by {@link GraphSnapshotWriter} and read by
+ * {@link GraphSnapshot}. All values are little endian, every section starts at a multiple of 8.
+ *
+ * <pre>
+ * header (32 bytes)
+ *      int     magic "OSGL"
+ *      int     version
+ *      int     flags
+ *      int     node count n
+ *      int     edge count m
+ *      int     bytes per distance entry (0, 2 or 4)
+ *      int     distance cutoff                         if {@link #SPARSE}, 0 otherwise
+ *      int     landmark count L                        if {@link #LANDMARKS}, 0 otherwise
+ * int[n + 1]       start of every node id in the id bytes, the last entry is the total length
+ * byte[]           UTF-8 encoded node ids in node index order (sorted by id)
+ * int[n + 1]       start of the outgoing edges of every node in the edge targets (CSR)
+ * int[m]           edge targets
+ * double[2n]       interleaved width / height             if {@link #SIZES}
+ * double[2n]       interleaved x / y of the layout state   if {@link #POSITIONS}
+ * entry[n * n]     row major distance matrix              if {@link #DISTANCES} without {@link #SPARSE}
+ * int[n + 1]       start of the row of every node in the sparse entries (CSR)   if {@link #DISTANCES} and {@link #SPARSE}
+ * int[k]           targets of the upper triangle rows, ascending per row        if {@link #DISTANCES} and {@link #SPARSE}
+ * entry[k]         distances to those targets                                   if {@link #DISTANCES} and {@link #SPARSE}
+ * int[L]           node index of every landmark                                 if {@link #LANDMARKS}
+ * entry[n * L]     distances from every node to all landmarks, node by node     if {@link #LANDMARKS}
+ * </pre>
+ *
+ * Distances are stored as unsigned shorts when they all fit, with 0xffff marking unreachable nodes, and as ints
+ * otherwise. Distances of a {@link org.oseditor.graph.SparseDistanceStore} are stored as its rows, those of a
+ * {@link org.oseditor.graph.LandmarkDistanceStore} as the rows of its local store plus the landmarks, every other
+ * store as the full matrix. Version 1 files have no sparse distances.
+ */
+final class BinaryGraphFormat
+{
+    static final int MAGIC = 0x4c47534f;
+
+    static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 32;
+
+    static final int SIZES = 1;
+    static final int POSITIONS = 2;
+    static final int DISTANCES = 4;
+    static final int SPARSE = 8;
+    static final int LANDMARKS = 16;
+
+    static final int UNREACHABLE_SHORT = 0xffff;
+
+    private BinaryGraphFormat()
+    {
+    }
+
+    static long align(long offset)
+    {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -0,0 +1,17 @@
+package org.oseditor.graph.io;
+
+import org.oseditor.graph.EditorRuntimeException;
+
+/**
+ * Thrown when a serialized graph can't be read.
+ */
+public class GraphFormatException
+    extends EditorRuntimeException
+{
+    private static final long serialVersionUID = 3017412580993416731L;
+
+    public GraphFormatException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,240 @@
+package org.oseditor.graph.io;
+
+import org.oseditor.graph.CompactGraph;
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.NodeNotFoundException;
+import org.oseditor.graph.io.JsonPullParser.Token;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads graphs in the JSON format of {@link DirectedGraph} directly into a {@link CompactGraph}, without creating
+ * {@link org.oseditor.graph.GraphNode} or {@link org.oseditor.graph.Edge} objects.
+ *
+ * Of the node properties only "x", "y", "width" and "height" are read, all others are skipped. Nodes and edges
+ * can appear in any order.
+ */
+public class GraphJsonReader
+{
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Reads a graph from an UTF-8 encoded stream. The stream is not closed.
+     */
+    public CompactGraph read(InputStream in) throws IOException
+    {
+        return read(new InputStreamReader(in, UTF8));
+    }
+
+    /**
+     * Reads a graph. The reader is not closed.
+     */
+    public CompactGraph read(Reader reader) throws IOException
+    {
+        return new Parse(new JsonPullParser(reader)).graph();
+    }
+
+    private static final class Parse
+    {
+        private final JsonPullParser parser;
+
+        /** index for every id seen so far, in nodes or in edges */
+        private final Map<String, Integer> indexes = new HashMap<String, Integer>();
+
+        private String[] ids = new String[16];
+        private boolean[] defined = new boolean[16];
+        private double[] positions = new double[32];
+        private double[] sizes = new double[32];
+
+        private int[] edgeFrom = new int[16];
+        private int[] edgeTo = new int[16];
+        private int edgeCount;
+
+        private Parse(JsonPullParser parser)
+        {
+            this.parser = parser;
+        }
+
+        private CompactGraph graph() throws IOException
+        {
+            parser.expect(Token.BEGIN_OBJECT);
+            Token token;
+            while ((token = parser.next()) == Token.NAME)
+            {
+                if (parser.textEquals("nodes"))
+                {
+                    nodes();
+                }
+                else if (parser.textEquals("edges"))
+                {
+                    edges();
+                }
+                else
+                {
+                    parser.skipValue(parser.next());
+                }
+            }
+            if (token != Token.END_OBJECT)
+            {
+                throw parser.error("Expected END_OBJECT, got " + token);
+            }
+
+            int count = indexes.size();
+            for (int i = 0; i < count; i++)
+            {
+                if (!defined[i])
+                {
+                    throw new NodeNotFoundException("No node with the id '" + ids[i] + "' exists.");
+                }
+            }
+
+            return new CompactGraph(
+                Arrays.copyOf(ids, count),
+                Arrays.copyOf(positions, count * 2),
+                Arrays.copyOf(sizes, count * 2),
+                Arrays.copyOf(edgeFrom, edgeCount),
+                Arrays.copyOf(edgeTo, edgeCount));
+        }
+
+        private void nodes() throws IOException
+        {
+            Token token = parser.next();
+            if (token == Token.NULL)
+            {
+                return;
+            }
+            if (token != Token.BEGIN_OBJECT)
+            {
+                throw parser.error("Expected nodes object, got " + token);
+            }
+
+            while ((token = parser.next()) == Token.NAME)
+            {
+                int index = index(parser.getText());
+                if (defined[index])
+                {
+                    throw parser.error("Duplicate node id '" + ids[index] + "'");
+                }
+                defined[index] = true;
+
+                parser.expect(Token.BEGIN_OBJECT);
+                while ((token = parser.next()) == Token.NAME)
+                {
+                    if (parser.textEquals("x"))
+                    {
+                        positions[index * 2] = parser.nextNumber(0);
+                    }
+                    else if (parser.textEquals("y"))
+                    {
+                        positions[index * 2 + 1] = parser.nextNumber(0);
+                    }
+                    else if (parser.textEquals("width"))
+                    {
+                        sizes[index * 2] = parser.nextNumber(0);
+                    }
+                    else if (parser.textEquals("height"))
+                    {
+                        sizes[index * 2 + 1] = parser.nextNumber(0);
+                    }
+                    else
+                    {
+                        parser.skipValue(parser.next());
+                    }
+                }
+                checkEnd(token, Token.END_OBJECT);
+            }
+            checkEnd(token, Token.END_OBJECT);
+        }
+
+        private void edges() throws IOException
+        {
+            Token token = parser.next();
+            if (token == Token.NULL)
+            {
+                return;
+            }
+            if (token != Token.BEGIN_ARRAY)
+            {
+                throw parser.error("Expected edges array, got " + token);
+            }
+
+            while ((token = parser.next()) == Token.BEGIN_OBJECT)
+            {
+                int from = -1;
+                int to = -1;
+                while ((token = parser.next()) == Token.NAME)
+                {
+                    if (parser.textEquals("from"))
+                    {
+                        from = index(parser.nextString());
+                    }
+                    else if (parser.textEquals("to"))
+                    {
+                        to = index(parser.nextString());
+                    }
+                    else
+                    {
+                        parser.skipValue(parser.next());
+                    }
+                }
+                checkEnd(token, Token.END_OBJECT);
+
+                if (from < 0 || to < 0)
+                {
+                    throw parser.error("Edge without from or to");
+                }
+                addEdge(from, to);
+            }
+            checkEnd(token, Token.END_ARRAY);
+        }
+
+        private void checkEnd(Token token, Token expected)
+        {
+            if (token != expected)
+            {
+                throw parser.error("Expected " + expected + ", got " + token);
+            }
+        }
+
+        private int index(String id)
+        {
+            Integer index = indexes.get(id);
+            if (index != null)
+            {
+                return index;
+            }
+
+            int newIndex = indexes.size();
+            if (newIndex == ids.length)
+            {
+                int len = newIndex * 2;
+                ids = Arrays.copyOf(ids, len);
+                defined = Arrays.copyOf(defined, len);
+                positions = Arrays.copyOf(positions, len * 2);
+                sizes = Arrays.copyOf(sizes, len * 2);
+            }
+            ids[newIndex] = id;
+            indexes.put(id, newIndex);
+            return newIndex;
+        }
+
+        private void addEdge(int from, int to)
+        {
+            if (edgeCount == edgeFrom.length)
+            {
+                edgeFrom = Arrays.copyOf(edgeFrom, edgeCount * 2);
+                edgeTo = Arrays.copyOf(edgeTo, edgeCount * 2);
+            }
+            edgeFrom[edgeCount] = from;
+            edgeTo[edgeCount] = to;
+            edgeCount++;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package org.oseditor.graph.io;
+
+import org.oseditor.graph.CompactGraph;
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.GraphLayout;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes graphs and node positions as UTF-8 encoded JSON straight to an {@link OutputStream}, using a single
+ * reused byte buffer.
+ *
+ * Positions are those of the {@link CompactGraph} of a layout, i.e. as written by {@link GraphLayout#update()}.
+ */
+public class GraphJsonWriter
+{
+    private final byte[] buffer = new byte[8192];
+    private int pos;
+
+    private OutputStream out;
+
+    /**
+     * Writes the positions of all nodes as an object mapping node ids to objects with "x" and "y". The stream is
+     * flushed but not closed.
+     */
+    public void writePositions(CompactGraph graph, OutputStream out) throws IOException
+    {
+        this.out = out;
+        try
+        {
+            write('{');
+            for (int i = 0, count = graph.getNodeCount(); i < count; i++)
+            {
+                if (i > 0)
+                {
+                    write(',');
+                }
+                writeString(graph.getId(i));
+                writeAscii(":{\"x\":");
+                writeNumber(graph.getX(i));
+                writeAscii(",\"y\":");
+                writeNumber(graph.getY(i));
+                write('}');
+            }
+            write('}');
+            flush();
+        }
+        finally
+        {
+            this.out = null;
+            pos = 0;
+        }
+    }
+
+    /**
+     * Writes the whole graph in the JSON format of {@link DirectedGraph}, readable by {@link GraphJsonReader}. The
+     * stream is flushed but not closed.
+     */
+    public void write(CompactGraph graph, OutputStream out) throws IOException
+    {
+        this.out = out;
+        try
+        {
+            writeAscii("{\"nodes\":{");
+            for (int i = 0, count = graph.getNodeCount(); i < count; i++)
+            {
+                if (i > 0)
+                {
+                    write(',');
+                }
+                String id = graph.getId(i);
+                writeString(id);
+                writeAscii(":{\"id\":");
+                writeString(id);
+                writeAscii(",\"x\":");
+                writeNumber(graph.getX(i));
+                writeAscii(",\"y\":");
+                writeNumber(graph.getY(i));
+                writeAscii(",\"width\":");
+                writeNumber(graph.getWidth(i));
+                writeAscii(",\"height\":");
+                writeNumber(graph.getHeight(i));
+                write('}');
+            }
+            writeAscii("},\"edges\":[");
+            for (int e = 0, count = graph.getEdgeCount(); e < count; e++)
+            {
+                if (e > 0)
+                {
+                    write(',');
+                }
+                writeAscii("{\"from\":");
+                writeString(graph.getId(graph.getEdgeFrom(e)));
+                writeAscii(",\"to\":");
+                writeString(graph.getId(graph.getEdgeTo(e)));
+                write('}');
+            }
+            writeAscii("]}");
+            flush();
+        }
+        finally
+        {
+            this.out = null;
+            pos = 0;
+        }
+    }
+
+    private void writeNumber(double value) throws IOException
+    {
+        if (Double.isNaN(value) || Double.isInfinite(value))
+        {
+            throw new IllegalArgumentException("Can't write " + value + " as JSON number");
+        }
+        writeAscii(Double.toString(value));
+    }
+
+    private void writeAscii(String s) throws IOException
+    {
+        for (int i = 0, len = s.length(); i < len; i++)
+        {
+            write(s.charAt(i));
+        }
+    }
+
+    private void writeString(String s) throws IOException
+    {
+        write('"');
+        for (int i = 0, len = s.length(); i < len; i++)
+        {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\')
+            {
+                write('\\');
+                write(c);
+            }
+            else if (c < 0x20)
+            {
+                writeAscii("\\u00");
+                write(Character.forDigit(c >> 4, 16));
+                write(Character.forDigit(c & 15, 16));
+            }
+            else if (c < 0x80)
+            {
+                write(c);
+            }
+            else if (c < 0x800)
+            {
+                write(0xc0 | (c >> 6));
+                write(0x80 | (c & 0x3f));
+            }
+            else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(s.charAt(i + 1)))
+            {
+                int codePoint = Character.toCodePoint(c, s.charAt(++i));
+                write(0xf0 | (codePoint >> 18));
+                write(0x80 | ((codePoint >> 12) & 0x3f));
+                write(0x80 | ((codePoint >> 6) & 0x3f));
+                write(0x80 | (codePoint & 0x3f));
+            }
+            else
+            {
+                write(0xe0 | (c >> 12));
+                write(0x80 | ((c >> 6) & 0x3f));
+                write(0x80 | (c & 0x3f));
+            }
+        }
+        write('"');
+    }
+
+    private void write(int b) throws IOException
+    {
+        if (pos == buffer.length)
+        {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+        buffer[pos++] = (byte) b;
+    }
+
+    private void flush() throws IOException
+    {
+        out.write(buffer, 0, pos);
+        pos = 0;
+        out.flush();
+    }
+}
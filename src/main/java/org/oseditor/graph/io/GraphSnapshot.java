@@ -0,0 +1,460 @@
+package org.oseditor.graph.io;
+
+import org.oseditor.graph.CompactGraph;
+import org.oseditor.graph.DistanceStore;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.GraphLayoutBuilder;
+import org.oseditor.graph.LandmarkDistanceStore;
+import org.oseditor.graph.NodeNotFoundException;
+import org.oseditor.graph.SparseDistanceStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.oseditor.graph.io.BinaryGraphFormat.*;
+
+/**
+ * Graph snapshot opened from a file in the binary snapshot format. The file is memory mapped, so opening it is
+ * independent of the graph size and ids, positions and distances are read from the mapping on access without
+ * copying them onto the heap.
+ *
+ * Sparse and landmark distances are the exception, they are copied into a {@link SparseDistanceStore} or
+ * {@link LandmarkDistanceStore} on opening, so a layout created from the snapshot keeps calculating springs only for
+ * the stored pairs and landmarks.
+ *
+ * The mappings stay valid until the snapshot is garbage collected, there is nothing to close.
+ *
+ * @see BinaryGraphFormat
+ * @see GraphSnapshotWriter
+ */
+public final class GraphSnapshot
+{
+    /** keep single mappings well below the 2GB limit */
+    private static final long MAX_CHUNK = 1L << 30;
+
+    private final int version;
+    private final int flags;
+    private final int nodeCount;
+    private final int edgeCount;
+
+    private final ByteBuffer data;
+
+    private final int idOffsetsStart;
+    private final int idBytesStart;
+    private final int edgeOffsetsStart;
+    private final int edgeTargetsStart;
+    private final int sizesStart;
+    private final int positionsStart;
+
+    private final DistanceStore distances;
+
+    private GraphSnapshot(FileChannel channel) throws IOException
+    {
+        long fileSize = channel.size();
+        if (fileSize < HEADER_SIZE)
+        {
+            throw new GraphFormatException("File too short for a graph snapshot");
+        }
+
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC)
+        {
+            throw new GraphFormatException("Not a graph snapshot");
+        }
+
+        version = header.getInt(4);
+        if (version < 1 || version > VERSION)
+        {
+            throw new GraphFormatException("Unsupported graph snapshot version " + version);
+        }
+
+        flags = header.getInt(8);
+        nodeCount = header.getInt(12);
+        edgeCount = header.getInt(16);
+        int distanceBytes = header.getInt(20);
+        int distanceCutoff = header.getInt(24);
+        int landmarkCount = header.getInt(28);
+
+        // the id offsets can only be read once they are mapped, so map the ids in a first step
+        long offset = HEADER_SIZE;
+        long idOffsetsSize = (nodeCount + 1) * 4L;
+        ByteBuffer idOffsets = map(channel, offset, idOffsetsSize, fileSize);
+        long idBytes = idOffsets.getInt(nodeCount * 4) & 0xffffffffL;
+
+        long end = align(offset + idOffsetsSize);
+        long idBytesOffset = end;
+        end = align(end + idBytes);
+        long edgeOffsetsOffset = end;
+        end = align(end + (nodeCount + 1) * 4L);
+        long edgeTargetsOffset = end;
+        end = align(end + edgeCount * 4L);
+        long sizesOffset = end;
+        if ((flags & SIZES) != 0)
+        {
+            end += nodeCount * 16L;
+        }
+        long positionsOffset = end;
+        if ((flags & POSITIONS) != 0)
+        {
+            end += nodeCount * 16L;
+        }
+
+        if (end - HEADER_SIZE > Integer.MAX_VALUE)
+        {
+            throw new GraphFormatException("Graph snapshot too large to map");
+        }
+
+        data = map(channel, HEADER_SIZE, end - HEADER_SIZE, fileSize);
+        idOffsetsStart = 0;
+        idBytesStart = (int) (idBytesOffset - HEADER_SIZE);
+        edgeOffsetsStart = (int) (edgeOffsetsOffset - HEADER_SIZE);
+        edgeTargetsStart = (int) (edgeTargetsOffset - HEADER_SIZE);
+        sizesStart = (int) (sizesOffset - HEADER_SIZE);
+        positionsStart = (int) (positionsOffset - HEADER_SIZE);
+
+        if ((flags & DISTANCES) != 0)
+        {
+            if (distanceBytes != 2 && distanceBytes != 4)
+            {
+                throw new GraphFormatException("Invalid distance entry size " + distanceBytes);
+            }
+            if ((flags & LANDMARKS) != 0)
+            {
+                distances = readLandmarkDistances(channel, end, distanceBytes, distanceCutoff, landmarkCount, fileSize);
+            }
+            else if ((flags & SPARSE) != 0)
+            {
+                SparseDistanceStore sparse = new SparseDistanceStore(nodeCount, distanceCutoff);
+                readSparseRows(channel, end, distanceBytes, sparse, fileSize);
+                distances = sparse;
+            }
+            else
+            {
+                distances = mapDistances(channel, end, distanceBytes, fileSize);
+            }
+        }
+        else
+        {
+            distances = null;
+        }
+    }
+
+    /**
+     * Opens a snapshot file.
+     *
+     * @throws GraphFormatException if the file is no snapshot or has an unsupported version
+     */
+    public static GraphSnapshot open(Path file) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            return new GraphSnapshot(channel);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+
+    private DistanceStore mapDistances(FileChannel channel, long offset, int entryBytes, long fileSize) throws IOException
+    {
+        long rowBytes = (long) nodeCount * entryBytes;
+        int rowsPerChunk = (int) Math.max(1, Math.min(nodeCount, MAX_CHUNK / Math.max(rowBytes, 1)));
+        if (rowBytes * rowsPerChunk > Integer.MAX_VALUE)
+        {
+            throw new GraphFormatException("Distance rows too large to map");
+        }
+
+        int chunkCount = nodeCount == 0 ? 0 : (nodeCount + rowsPerChunk - 1) / rowsPerChunk;
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++)
+        {
+            int rows = Math.min(rowsPerChunk, nodeCount - i * rowsPerChunk);
+            chunks[i] = map(channel, offset + i * rowsPerChunk * rowBytes, rows * rowBytes, fileSize);
+        }
+        return new MappedDistanceStore(nodeCount, entryBytes, rowsPerChunk, chunks);
+    }
+
+    /**
+     * Reads the sparse rows starting at the given offset into the given store.
+     *
+     * @return offset behind the rows
+     */
+    private long readSparseRows(FileChannel channel, long offset, int entryBytes, SparseDistanceStore store, long fileSize) throws IOException
+    {
+        long offsetsSize = (nodeCount + 1) * 4L;
+        ByteBuffer offsets = map(channel, offset, offsetsSize, fileSize);
+        long entryCount = offsets.getInt(nodeCount * 4) & 0xffffffffL;
+        if (entryCount * 4 > Integer.MAX_VALUE)
+        {
+            throw new GraphFormatException("Sparse distances too large to map");
+        }
+
+        long targetsOffset = align(offset + offsetsSize);
+        long valuesOffset = align(targetsOffset + entryCount * 4);
+        ByteBuffer targets = map(channel, targetsOffset, entryCount * 4, fileSize);
+        ByteBuffer values = map(channel, valuesOffset, entryCount * entryBytes, fileSize);
+
+        int[] rowTargets = new int[0];
+        int[] rowValues = new int[0];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int start = offsets.getInt(i * 4);
+            int count = offsets.getInt(i * 4 + 4) - start;
+            if (count > rowTargets.length)
+            {
+                rowTargets = new int[count];
+                rowValues = new int[count];
+            }
+            for (int k = 0; k < count; k++)
+            {
+                rowTargets[k] = targets.getInt((start + k) * 4);
+                rowValues[k] = entry(values, start + k, entryBytes);
+            }
+            store.setRow(i, rowTargets, rowValues, count);
+        }
+        return align(valuesOffset + entryCount * entryBytes);
+    }
+
+    private LandmarkDistanceStore readLandmarkDistances(FileChannel channel, long offset, int entryBytes, int cutoff, int landmarkCount, long fileSize) throws IOException
+    {
+        LandmarkDistanceStore store = new LandmarkDistanceStore(nodeCount, cutoff, landmarkCount);
+        long indexesOffset = readSparseRows(channel, offset, entryBytes, store.getLocal(), fileSize);
+
+        long distancesOffset = align(indexesOffset + landmarkCount * 4L);
+        long distancesSize = (long) nodeCount * landmarkCount * entryBytes;
+        if (distancesSize > Integer.MAX_VALUE)
+        {
+            throw new GraphFormatException("Landmark distances too large to map");
+        }
+        ByteBuffer indexBuffer = map(channel, indexesOffset, landmarkCount * 4L, fileSize);
+        ByteBuffer distanceBuffer = map(channel, distancesOffset, distancesSize, fileSize);
+
+        int[] indexes = new int[landmarkCount];
+        int[][] rows = new int[landmarkCount][nodeCount];
+        for (int p = 0; p < landmarkCount; p++)
+        {
+            indexes[p] = indexBuffer.getInt(p * 4);
+        }
+        for (int i = 0, k = 0; i < nodeCount; i++)
+        {
+            for (int p = 0; p < landmarkCount; p++, k++)
+            {
+                rows[p][i] = entry(distanceBuffer, k, entryBytes);
+            }
+        }
+        store.setLandmarks(indexes, rows);
+        return store;
+    }
+
+    private static int entry(ByteBuffer buffer, int index, int entryBytes)
+    {
+        if (entryBytes == 2)
+        {
+            int value = buffer.getShort(index * 2) & 0xffff;
+            return value == UNREACHABLE_SHORT ? Integer.MAX_VALUE : value;
+        }
+        return buffer.getInt(index * 4);
+    }
+
+    private static ByteBuffer map(FileChannel channel, long offset, long size, long fileSize) throws IOException
+    {
+        if (offset + size > fileSize)
+        {
+            throw new GraphFormatException("Graph snapshot truncated");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, size).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    public boolean hasSizes()
+    {
+        return (flags & SIZES) != 0;
+    }
+
+    public boolean hasPositions()
+    {
+        return (flags & POSITIONS) != 0;
+    }
+
+    public boolean hasDistances()
+    {
+        return distances != null;
+    }
+
+    /**
+     * Decodes the id of the node with the given index.
+     */
+    public String getId(int index)
+    {
+        int start = data.getInt(idOffsetsStart + index * 4);
+        int end = data.getInt(idOffsetsStart + index * 4 + 4);
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0, pos = idBytesStart + start; i < bytes.length; i++, pos++)
+        {
+            bytes[i] = data.get(pos);
+        }
+        return new String(bytes, GraphJsonReader.UTF8);
+    }
+
+    /**
+     * Returns the index of the node with the given id.
+     *
+     * @throws NodeNotFoundException if there is no such node
+     */
+    public int findNodeIndex(String id)
+    {
+        int lo = 0;
+        int hi = nodeCount - 1;
+        while (lo <= hi)
+        {
+            int mid = (lo + hi) >>> 1;
+            int cmp = getId(mid).compareTo(id);
+            if (cmp < 0)
+            {
+                lo = mid + 1;
+            }
+            else if (cmp > 0)
+            {
+                hi = mid - 1;
+            }
+            else
+            {
+                return mid;
+            }
+        }
+        throw new NodeNotFoundException("No node with the id '" + id + "' exists.");
+    }
+
+    /**
+     * Returns the number of outgoing edges of a node.
+     */
+    public int getEdgeCount(int index)
+    {
+        return edgeOffset(index + 1) - edgeOffset(index);
+    }
+
+    /**
+     * Returns the target of an outgoing edge of a node.
+     *
+     * @param index     node index
+     * @param edge      edge number from 0 to {@link #getEdgeCount(int)} - 1
+     */
+    public int getEdgeTarget(int index, int edge)
+    {
+        return data.getInt(edgeTargetsStart + (edgeOffset(index) + edge) * 4);
+    }
+
+    private int edgeOffset(int index)
+    {
+        return data.getInt(edgeOffsetsStart + index * 4);
+    }
+
+    public double getWidth(int index)
+    {
+        return hasSizes() ? data.getDouble(sizesStart + index * 16) : 0;
+    }
+
+    public double getHeight(int index)
+    {
+        return hasSizes() ? data.getDouble(sizesStart + index * 16 + 8) : 0;
+    }
+
+    public double getX(int index)
+    {
+        checkPositions();
+        return data.getDouble(positionsStart + index * 16);
+    }
+
+    public double getY(int index)
+    {
+        checkPositions();
+        return data.getDouble(positionsStart + index * 16 + 8);
+    }
+
+    private void checkPositions()
+    {
+        if (!hasPositions())
+        {
+            throw new IllegalStateException("Snapshot contains no positions");
+        }
+    }
+
+    /**
+     * Returns the stored distances or <code>null</code> if the snapshot has none. Sparse distances come back as a
+     * {@link SparseDistanceStore}, landmark distances as a {@link LandmarkDistanceStore}, all others as a read-only
+     * store over the mapped matrix.
+     */
+    public DistanceStore getDistances()
+    {
+        return distances;
+    }
+
+    /**
+     * Copies the graph onto the heap. Nodes start at the stored positions, or at the origin if there are none.
+     */
+    public CompactGraph toCompactGraph()
+    {
+        String[] ids = new String[nodeCount];
+        double[] sizes = new double[nodeCount * 2];
+        double[] positions = new double[nodeCount * 2];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            ids[i] = getId(i);
+            if (hasSizes())
+            {
+                sizes[i * 2] = getWidth(i);
+                sizes[i * 2 + 1] = getHeight(i);
+            }
+            if (hasPositions())
+            {
+                positions[i * 2] = getX(i);
+                positions[i * 2 + 1] = getY(i);
+            }
+        }
+
+        int[] edgeFrom = new int[edgeCount];
+        int[] edgeTo = new int[edgeCount];
+        for (int i = 0, e = 0; i < nodeCount; i++)
+        {
+            for (int j = 0, count = getEdgeCount(i); j < count; j++, e++)
+            {
+                edgeFrom[e] = i;
+                edgeTo[e] = getEdgeTarget(i, j);
+            }
+        }
+
+        return new CompactGraph(ids, positions, sizes, edgeFrom, edgeTo);
+    }
+
+    /**
+     * Builds a layout from the snapshot, starting at the stored positions and reusing the stored distances if there
+     * are any. Use a builder {@link GraphLayoutBuilder#withWarmStart(boolean) with warm start} to only refine
+     * the stored layout.
+     */
+    public GraphLayout createLayout(GraphLayoutBuilder builder)
+    {
+        CompactGraph graph = toCompactGraph();
+        return distances != null ? builder.buildFor(graph, distances) : builder.buildFor(graph);
+    }
+}
@@ -0,0 +1,396 @@
+package org.oseditor.graph.io;
+
+import org.oseditor.graph.CompactGraph;
+import org.oseditor.graph.DistanceStore;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.LandmarkDistanceStore;
+import org.oseditor.graph.SparseDistanceStore;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.oseditor.graph.io.BinaryGraphFormat.*;
+
+/**
+ * Writes graphs and layout states in the binary snapshot format.
+ *
+ * @see BinaryGraphFormat
+ * @see GraphSnapshot
+ */
+public class GraphSnapshotWriter
+{
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private FileChannel channel;
+
+    private long written;
+
+    /**
+     * Writes the graph of a layout with the current state of the layout.
+     *
+     * @param file              target file
+     * @param layout            layout
+     * @param includeDistances  if <code>true</code>, the target distances are written too
+     */
+    public void write(Path file, GraphLayout layout, boolean includeDistances) throws IOException
+    {
+        write(file, layout.getGraph(), layout.getInternalState().getData(), includeDistances ? layout.getDistances() : null);
+    }
+
+    /**
+     * Writes a graph.
+     *
+     * @param file          target file
+     * @param graph         graph
+     * @param positions     interleaved x/y positions or <code>null</code> to write no positions
+     * @param distances     distances or <code>null</code> to write no distances. A {@link SparseDistanceStore} is
+     *                      written as its rows, a {@link LandmarkDistanceStore} as its local rows and landmarks,
+     *                      all other stores as the full matrix.
+     */
+    public void write(Path file, CompactGraph graph, double[] positions, DistanceStore distances) throws IOException
+    {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        if (positions != null && positions.length != nodeCount * 2)
+        {
+            throw new IllegalArgumentException("Expected " + nodeCount * 2 + " positions, got " + positions.length);
+        }
+        if (distances != null && distances.size() != nodeCount)
+        {
+            throw new IllegalArgumentException("Distances for " + distances.size() + " nodes don't match graph with " + nodeCount + " nodes");
+        }
+
+        boolean sizes = hasSizes(graph);
+        LandmarkDistanceStore landmarks = distances instanceof LandmarkDistanceStore ? (LandmarkDistanceStore) distances : null;
+        SparseDistanceStore sparse = landmarks != null ? landmarks.getLocal() :
+            distances instanceof SparseDistanceStore ? (SparseDistanceStore) distances : null;
+        int distanceBytes = 0;
+        if (sparse != null)
+        {
+            distanceBytes = Math.max(sparseDistanceBytes(sparse), landmarks != null ? landmarkDistanceBytes(landmarks) : 2);
+        }
+        else if (distances != null)
+        {
+            distanceBytes = distanceBytes(distances);
+        }
+
+        int flags = (sizes ? SIZES : 0) | (positions != null ? POSITIONS : 0) | (distances != null ? DISTANCES : 0) |
+            (sparse != null ? SPARSE : 0) | (landmarks != null ? LANDMARKS : 0);
+
+        byte[][] ids = new byte[nodeCount][];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            ids[i] = graph.getId(i).getBytes(GraphJsonReader.UTF8);
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        try
+        {
+            buffer.clear();
+            written = 0;
+
+            putInt(MAGIC);
+            putInt(VERSION);
+            putInt(flags);
+            putInt(nodeCount);
+            putInt(edgeCount);
+            putInt(distanceBytes);
+            putInt(sparse != null ? sparse.getCutoff() : 0);
+            putInt(landmarks != null ? landmarks.getLandmarks().length : 0);
+
+            int idOffset = 0;
+            putInt(0);
+            for (byte[] id : ids)
+            {
+                idOffset += id.length;
+                putInt(idOffset);
+            }
+            pad();
+
+            for (byte[] id : ids)
+            {
+                for (byte b : id)
+                {
+                    putByte(b);
+                }
+            }
+            pad();
+
+            writeAdjacency(graph);
+
+            if (sizes)
+            {
+                for (int i = 0; i < nodeCount; i++)
+                {
+                    putDouble(graph.getWidth(i));
+                    putDouble(graph.getHeight(i));
+                }
+            }
+
+            if (positions != null)
+            {
+                for (double position : positions)
+                {
+                    putDouble(position);
+                }
+            }
+
+            if (sparse != null)
+            {
+                writeSparseDistances(sparse, distanceBytes);
+                if (landmarks != null)
+                {
+                    writeLandmarks(landmarks, distanceBytes);
+                }
+            }
+            else if (distances != null)
+            {
+                writeDistances(distances, distanceBytes);
+            }
+
+            drain();
+        }
+        finally
+        {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void writeAdjacency(CompactGraph graph) throws IOException
+    {
+        int nodeCount = graph.getNodeCount();
+        int edgeCount = graph.getEdgeCount();
+
+        // counting sort of the edges by start node
+        int[] offsets = new int[nodeCount + 1];
+        for (int e = 0; e < edgeCount; e++)
+        {
+            offsets[graph.getEdgeFrom(e) + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++)
+        {
+            offsets[i + 1] += offsets[i];
+        }
+
+        int[] targets = new int[edgeCount];
+        int[] next = offsets.clone();
+        for (int e = 0; e < edgeCount; e++)
+        {
+            targets[next[graph.getEdgeFrom(e)]++] = graph.getEdgeTo(e);
+        }
+
+        for (int offset : offsets)
+        {
+            putInt(offset);
+        }
+        pad();
+        for (int target : targets)
+        {
+            putInt(target);
+        }
+        pad();
+    }
+
+    private void writeDistances(DistanceStore distances, int distanceBytes) throws IOException
+    {
+        int nodeCount = distances.size();
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int j = 0; j < nodeCount; j++)
+            {
+                putDistance(distances.getDistance(i, j), distanceBytes);
+            }
+        }
+        pad();
+    }
+
+    private void putDistance(int distance, int distanceBytes) throws IOException
+    {
+        if (distanceBytes == 2)
+        {
+            putShort(distance == Integer.MAX_VALUE ? UNREACHABLE_SHORT : distance);
+        }
+        else
+        {
+            putInt(distance);
+        }
+    }
+
+    /**
+     * Writes the upper triangle rows of a sparse store. Only the stored distances are visited.
+     */
+    private void writeSparseDistances(SparseDistanceStore sparse, int distanceBytes) throws IOException
+    {
+        int nodeCount = sparse.size();
+
+        int offset = 0;
+        putInt(0);
+        for (int i = 0; i < nodeCount; i++)
+        {
+            offset += sparse.getRowTargets(i).length;
+            putInt(offset);
+        }
+        pad();
+
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int target : sparse.getRowTargets(i))
+            {
+                putInt(target);
+            }
+        }
+        pad();
+
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int distance : sparse.getRowValues(i))
+            {
+                putDistance(distance, distanceBytes);
+            }
+        }
+        pad();
+    }
+
+    private void writeLandmarks(LandmarkDistanceStore landmarks, int distanceBytes) throws IOException
+    {
+        int count = landmarks.getLandmarks().length;
+        for (int landmark : landmarks.getLandmarks())
+        {
+            putInt(landmark);
+        }
+        pad();
+
+        for (int i = 0; i < landmarks.size(); i++)
+        {
+            for (int p = 0; p < count; p++)
+            {
+                putDistance(landmarks.getLandmarkDistance(i, p), distanceBytes);
+            }
+        }
+        pad();
+    }
+
+    private static boolean hasSizes(CompactGraph graph)
+    {
+        for (int i = 0; i < graph.getNodeCount(); i++)
+        {
+            if (graph.getWidth(i) != 0 || graph.getHeight(i) != 0)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int distanceBytes(DistanceStore distances)
+    {
+        int nodeCount = distances.size();
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int j = 0; j < nodeCount; j++)
+            {
+                if (!fitsShort(distances.getDistance(i, j)))
+                {
+                    return 4;
+                }
+            }
+        }
+        return 2;
+    }
+
+    private static int sparseDistanceBytes(SparseDistanceStore sparse)
+    {
+        for (int i = 0; i < sparse.size(); i++)
+        {
+            for (int distance : sparse.getRowValues(i))
+            {
+                if (!fitsShort(distance))
+                {
+                    return 4;
+                }
+            }
+        }
+        return 2;
+    }
+
+    private static int landmarkDistanceBytes(LandmarkDistanceStore landmarks)
+    {
+        int count = landmarks.getLandmarks().length;
+        for (int i = 0; i < landmarks.size(); i++)
+        {
+            for (int p = 0; p < count; p++)
+            {
+                if (!fitsShort(landmarks.getLandmarkDistance(i, p)))
+                {
+                    return 4;
+                }
+            }
+        }
+        return 2;
+    }
+
+    private static boolean fitsShort(int distance)
+    {
+        return distance == Integer.MAX_VALUE || (distance >= 0 && distance < UNREACHABLE_SHORT);
+    }
+
+    private void ensure(int bytes) throws IOException
+    {
+        if (buffer.remaining() < bytes)
+        {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void pad() throws IOException
+    {
+        while ((written & 7) != 0)
+        {
+            putByte((byte) 0);
+        }
+    }
+
+    private void putByte(byte value) throws IOException
+    {
+        ensure(1);
+        buffer.put(value);
+        written += 1;
+    }
+
+    private void putShort(int value) throws IOException
+    {
+        ensure(2);
+        buffer.putShort((short) value);
+        written += 2;
+    }
+
+    private void putInt(int value) throws IOException
+    {
+        ensure(4);
+        buffer.putInt(value);
+        written += 4;
+    }
+
+    private void putDouble(double value) throws IOException
+    {
+        ensure(8);
+        buffer.putDouble(value);
+        written += 8;
+    }
+}
@@ -0,0 +1,345 @@
+package org.oseditor.graph.io;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Minimal pull parser for JSON. Returns one token at a time and keeps the text of the current string or number in
+ * a reused buffer, so reading names and skipping values does not allocate.
+ *
+ * Commas and colons are treated as separators, the parser does not validate the structure beyond what the caller
+ * expects.
+ */
+final class JsonPullParser
+{
+    enum Token
+    {
+        BEGIN_OBJECT,
+        END_OBJECT,
+        BEGIN_ARRAY,
+        END_ARRAY,
+        /** string followed by a colon */
+        NAME,
+        STRING,
+        NUMBER,
+        TRUE,
+        FALSE,
+        NULL,
+        /** end of input */
+        END
+    }
+
+    private final Reader reader;
+
+    private final char[] buffer = new char[8192];
+    private int pos;
+    private int limit;
+
+    /** characters consumed before the current buffer, for error messages */
+    private long offset;
+
+    private final StringBuilder text = new StringBuilder();
+
+    JsonPullParser(Reader reader)
+    {
+        this.reader = reader;
+    }
+
+    Token next() throws IOException
+    {
+        while (true)
+        {
+            int c = read();
+            switch (c)
+            {
+                case -1:
+                    return Token.END;
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r':
+                case ',':
+                case ':':
+                    continue;
+                case '{':
+                    return Token.BEGIN_OBJECT;
+                case '}':
+                    return Token.END_OBJECT;
+                case '[':
+                    return Token.BEGIN_ARRAY;
+                case ']':
+                    return Token.END_ARRAY;
+                case '"':
+                    readString();
+                    return skipWhitespace() == ':' ? Token.NAME : Token.STRING;
+                case 't':
+                    expectLiteral("rue");
+                    return Token.TRUE;
+                case 'f':
+                    expectLiteral("alse");
+                    return Token.FALSE;
+                case 'n':
+                    expectLiteral("ull");
+                    return Token.NULL;
+                default:
+                    if (c == '-' || (c >= '0' && c <= '9'))
+                    {
+                        readNumber((char) c);
+                        return Token.NUMBER;
+                    }
+                    throw error("Unexpected character '" + (char) c + "'");
+            }
+        }
+    }
+
+    /**
+     * Returns the text of the current name, string or number.
+     */
+    String getText()
+    {
+        return text.toString();
+    }
+
+    /**
+     * Compares the text of the current name, string or number without creating a string.
+     */
+    boolean textEquals(String s)
+    {
+        int len = s.length();
+        if (text.length() != len)
+        {
+            return false;
+        }
+        for (int i = 0; i < len; i++)
+        {
+            if (text.charAt(i) != s.charAt(i))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    double getNumber()
+    {
+        try
+        {
+            return Double.parseDouble(text.toString());
+        }
+        catch (NumberFormatException e)
+        {
+            throw error("Invalid number '" + text + "'");
+        }
+    }
+
+    /**
+     * Reads the next token and fails if it is not the expected one.
+     */
+    void expect(Token expected) throws IOException
+    {
+        Token token = next();
+        if (token != expected)
+        {
+            throw error("Expected " + expected + ", got " + token);
+        }
+    }
+
+    /**
+     * Reads a number value, <code>null</code> is read as the given default.
+     */
+    double nextNumber(double defaultValue) throws IOException
+    {
+        Token token = next();
+        if (token == Token.NUMBER)
+        {
+            return getNumber();
+        }
+        if (token == Token.NULL)
+        {
+            return defaultValue;
+        }
+        throw error("Expected NUMBER, got " + token);
+    }
+
+    /**
+     * Reads a string value.
+     */
+    String nextString() throws IOException
+    {
+        expect(Token.STRING);
+        return getText();
+    }
+
+    /**
+     * Skips the value that starts with the given token, including all nested values.
+     */
+    void skipValue(Token token) throws IOException
+    {
+        if (token != Token.BEGIN_OBJECT && token != Token.BEGIN_ARRAY)
+        {
+            if (token == Token.END || token == Token.END_OBJECT || token == Token.END_ARRAY || token == Token.NAME)
+            {
+                throw error("Expected value, got " + token);
+            }
+            return;
+        }
+
+        int depth = 1;
+        while (depth > 0)
+        {
+            switch (next())
+            {
+                case BEGIN_OBJECT:
+                case BEGIN_ARRAY:
+                    depth++;
+                    break;
+                case END_OBJECT:
+                case END_ARRAY:
+                    depth--;
+                    break;
+                case END:
+                    throw error("Unexpected end of input");
+                default:
+                    break;
+            }
+        }
+    }
+
+    GraphFormatException error(String message)
+    {
+        return new GraphFormatException(message + " at offset " + (offset + pos));
+    }
+
+    private int read() throws IOException
+    {
+        if (pos == limit)
+        {
+            offset += limit;
+            pos = 0;
+            limit = reader.read(buffer, 0, buffer.length);
+            if (limit <= 0)
+            {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[pos++];
+    }
+
+    /**
+     * Skips whitespace and returns the next character without consuming it unless it is a colon.
+     */
+    private int skipWhitespace() throws IOException
+    {
+        while (true)
+        {
+            int c = read();
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r')
+            {
+                continue;
+            }
+            if (c != ':' && c != -1)
+            {
+                pos--;
+            }
+            return c;
+        }
+    }
+
+    private void readString() throws IOException
+    {
+        text.setLength(0);
+        while (true)
+        {
+            int c = read();
+            if (c == '"')
+            {
+                return;
+            }
+            if (c == -1)
+            {
+                throw error("Unterminated string");
+            }
+            if (c == '\\')
+            {
+                c = read();
+                switch (c)
+                {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        c = readHex();
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    default:
+                        throw error("Invalid escape");
+                }
+            }
+            text.append((char) c);
+        }
+    }
+
+    private int readHex() throws IOException
+    {
+        int value = 0;
+        for (int i = 0; i < 4; i++)
+        {
+            int digit = Character.digit(read(), 16);
+            if (digit < 0)
+            {
+                throw error("Invalid unicode escape");
+            }
+            value = value * 16 + digit;
+        }
+        return value;
+    }
+
+    private void readNumber(char first) throws IOException
+    {
+        text.setLength(0);
+        text.append(first);
+        while (true)
+        {
+            int c = read();
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '-' || c == '+')
+            {
+                text.append((char) c);
+            }
+            else
+            {
+                if (c != -1)
+                {
+                    pos--;
+                }
+                return;
+            }
+        }
+    }
+
+    private void expectLiteral(String rest) throws IOException
+    {
+        for (int i = 0; i < rest.length(); i++)
+        {
+            if (read() != rest.charAt(i))
+            {
+                throw error("Invalid literal");
+            }
+        }
+    }
+}
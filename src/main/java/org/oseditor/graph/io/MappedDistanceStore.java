@@ -0,0 +1,55 @@
+package org.oseditor.graph.io;
+
+import org.oseditor.graph.DistanceStore;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Read-only {@link DistanceStore} over the memory mapped distance matrix of a {@link GraphSnapshot}. The matrix is
+ * mapped in chunks of whole rows, so it can be larger than a single mapping.
+ */
+final class MappedDistanceStore
+    implements DistanceStore
+{
+    private final int nodeCount;
+
+    private final int entryBytes;
+
+    private final int rowsPerChunk;
+
+    private final ByteBuffer[] chunks;
+
+    MappedDistanceStore(int nodeCount, int entryBytes, int rowsPerChunk, ByteBuffer[] chunks)
+    {
+        this.nodeCount = nodeCount;
+        this.entryBytes = entryBytes;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+    }
+
+    @Override
+    public int size()
+    {
+        return nodeCount;
+    }
+
+    @Override
+    public int getDistance(int from, int to)
+    {
+        ByteBuffer chunk = chunks[from / rowsPerChunk];
+        int index = ((from % rowsPerChunk) * nodeCount + to) * entryBytes;
+
+        if (entryBytes == 2)
+        {
+            int value = chunk.getShort(index) & 0xffff;
+            return value == BinaryGraphFormat.UNREACHABLE_SHORT ? Integer.MAX_VALUE : value;
+        }
+        return chunk.getInt(index);
+    }
+
+    @Override
+    public void setDistances(int from, int[] distances)
+    {
+        throw new UnsupportedOperationException("Snapshot distances are read-only");
+    }
+}
@@ -0,0 +1,48 @@
+package org.oseditor.graph;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class CompiledFallOffCurveTest
+{
+    private static final FallOffCurveDefinition[] CURVES = {
+        new FallOffCurveDefinition(0.9, 1, 0.95, 0, 0.1, 10),
+        new FallOffCurveDefinition(0.5, 1, 0.75, 0.01, 0, 3),
+        new FallOffCurveDefinition(0.5, 1, 0.7, 0.5, 0.05, 10)
+    };
+
+    @Test
+    public void thatPolynomialMatchesHelper() throws Exception
+    {
+        FallOffHelper helper = new FallOffHelper();
+        for (FallOffCurveDefinition def : CURVES)
+        {
+            CompiledFallOffCurve curve = CompiledFallOffCurve.compile(def);
+            for (int i = 0; i <= 1200; i++)
+            {
+                double distance = i / 100.0;
+                assertThat(curve.fallOff(distance), is(closeTo(helper.fallOff(def, distance), 1e-12)));
+            }
+        }
+    }
+
+    @Test
+    public void thatLookupTableStaysWithinErrorBound() throws Exception
+    {
+        FallOffHelper helper = new FallOffHelper();
+        for (FallOffCurveDefinition def : CURVES)
+        {
+            for (int resolution : new int[] { 16, 256, 1024 })
+            {
+                CompiledFallOffCurve curve = CompiledFallOffCurve.compile(def, resolution);
+                for (int i = 0; i <= 12345; i++)
+                {
+                    double distance = def.getMax() * 1.2 * i / 12345;
+                    assertThat(curve.fallOff(distance), is(closeTo(helper.fallOff(def, distance), curve.getErrorBound() + 1e-12)));
+                }
+            }
+        }
+    }
+}
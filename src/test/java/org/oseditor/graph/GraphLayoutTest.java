@@ -1,9 +1,14 @@
 package org.oseditor.graph;
 
 import org.junit.Test;
+import org.oseditor.graph.generator.TreeGenerator;
 import org.svenson.JSONParser;
 
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
@@ -36,25 +41,1094 @@ public class GraphLayoutTest
             .withDistanceFunction(new DistanceFunction()
             {
                 @Override
-                public int getDistance(GraphNode a, GraphNode b, List<Integer> edgeIndexesA, List<Integer> edgeIndexesB)
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
                 {
                     return 1;
                 }
             }).buildFor(graphData);
 
-        int[] distance = layout.distances[0];
+        DistanceStore distances = layout.distances;
 
-        assertThat("Distance from A to A is 0", distance[0], is(0));
-        assertThat("Distance from A to E is 2", distance[4], is(2));
-        assertThat("Distance from A to K is 5", distance[10], is(5));
-        assertThat("Distance from A to G is 2", distance[6], is(2));
+        assertThat("Distance from A to A is 0", distances.getDistance(0, 0), is(0));
+        assertThat("Distance from A to E is 2", distances.getDistance(0, 4), is(2));
+        assertThat("Distance from A to K is 5", distances.getDistance(0, 10), is(5));
+        assertThat("Distance from A to G is 2", distances.getDistance(0, 6), is(2));
 
-        distance = layout.distances[4];
-        assertThat("Distance from E to E is 0", distance[4], is(0));
-        assertThat("Distance from E to A is 2", distance[0], is(2));
-        assertThat("Distance from E to K is 6", distance[10], is(6));
-        assertThat("Distance from E to F is 3", distance[5], is(3));
+        assertThat("Distance from E to E is 0", distances.getDistance(4, 4), is(0));
+        assertThat("Distance from E to A is 2", distances.getDistance(4, 0), is(2));
+        assertThat("Distance from E to K is 6", distances.getDistance(4, 10), is(6));
+        assertThat("Distance from E to F is 3", distances.getDistance(4, 5), is(3));
 
         assertThat("All Integer.MAX resolved", layout.areAllNodesConnected(), is(true));
     }
+
+    @Test
+    public void thatAllDistanceStoragesAgree() throws Exception
+    {
+        DistanceStore dense = createLayout(new GraphLayoutBuilder()).distances;
+
+        for (DistanceStorage storage : DistanceStorage.values())
+        {
+            DistanceStore store = createLayout(new GraphLayoutBuilder().withDistanceStorage(storage)).distances;
+            for (int i = 0; i < dense.size(); i++)
+            {
+                for (int j = 0; j < dense.size(); j++)
+                {
+                    int expected = dense.getDistance(i, j);
+                    if (storage == DistanceStorage.SPARSE && expected > 5)
+                    {
+                        expected = Integer.MAX_VALUE;
+                    }
+                    assertThat(storage + ": " + i + " to " + j, store.getDistance(i, j), is(expected));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatDistanceCutoffKeepsTheStorage() throws Exception
+    {
+        for (DistanceStorage storage : DistanceStorage.values())
+        {
+            GraphLayout layout = createLayout(new GraphLayoutBuilder().withDistanceStorage(storage).withDistanceCutoff(1));
+
+            assertThat(storage.name(), layout.getConfig().getDistanceStorage(), is(storage));
+            if (!storage.usesCutoff())
+            {
+                assertThat(storage + ": cutoff ignored", layout.distances.getDistance(0, 10), is(5));
+            }
+        }
+    }
+
+    @Test
+    public void thatBreadthFirstSearchMatchesDijkstraForZeroDistances() throws Exception
+    {
+        GraphLayoutBuilder zeroDistances = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(new PureDistanceFunction()
+            {
+                @Override
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+                {
+                    return 0;
+                }
+            });
+
+        DistanceStore dijkstra = zeroDistances
+            .withShortestPathAlgorithm(ShortestPathAlgorithm.DIJKSTRA)
+            .buildFor(createRandomGraph(100, 90, 5)).distances;
+
+        // AUTO detects the uniform edge distance and takes the breadth-first search
+        DistanceStore bfs = zeroDistances
+            .withShortestPathAlgorithm(ShortestPathAlgorithm.AUTO)
+            .buildFor(createRandomGraph(100, 90, 5)).distances;
+
+        for (int i = 0; i < dijkstra.size(); i++)
+        {
+            for (int j = 0; j < dijkstra.size(); j++)
+            {
+                assertThat(i + " to " + j, bfs.getDistance(i, j), is(dijkstra.getDistance(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void thatAllQueueTypesAgree() throws Exception
+    {
+        DistanceStore reference = createLayout(new GraphLayoutBuilder().withPriorityQueueType(PriorityQueueType.SORTED_ARRAY)).distances;
+
+        for (PriorityQueueType type : PriorityQueueType.values())
+        {
+            DistanceStore store = createLayout(new GraphLayoutBuilder().withPriorityQueueType(type)).distances;
+            for (int i = 0; i < reference.size(); i++)
+            {
+                for (int j = 0; j < reference.size(); j++)
+                {
+                    assertThat(type + ": " + i + " to " + j, store.getDistance(i, j), is(reference.getDistance(i, j)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatBreadthFirstSearchMatchesDijkstra() throws Exception
+    {
+        DistanceFunction unitDistance = new DistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                return 1;
+            }
+        };
+
+        // more than 64 nodes to cover several batches, with unconnected nodes
+        DistanceStore dijkstra = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(unitDistance)
+            .withShortestPathAlgorithm(ShortestPathAlgorithm.DIJKSTRA)
+            .buildFor(createRandomGraph(150, 140, 42)).distances;
+
+        DistanceStore bfs = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(unitDistance)
+            .withUnitDistances()
+            .buildFor(createRandomGraph(150, 140, 42)).distances;
+
+        for (int i = 0; i < dijkstra.size(); i++)
+        {
+            for (int j = 0; j < dijkstra.size(); j++)
+            {
+                assertThat(i + " to " + j, bfs.getDistance(i, j), is(dijkstra.getDistance(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void thatParallelDistancesMatchSequentialDistances() throws Exception
+    {
+        // symmetric, but not uniform
+        DistanceFunction idLengthDistance = new PureDistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                return a.getId().length() + b.getId().length();
+            }
+        };
+
+        for (ShortestPathAlgorithm algorithm : ShortestPathAlgorithm.values())
+        {
+            DistanceStore sequential = new GraphLayoutBuilder()
+                .withSpringFallOffDistance(10)
+                .withRepulsionFallOffDistance(3)
+                .withDistanceFunction(idLengthDistance)
+                .withShortestPathAlgorithm(algorithm)
+                .buildFor(createRandomGraph(300, 400, 7)).distances;
+
+            DistanceStore parallel = new GraphLayoutBuilder()
+                .withSpringFallOffDistance(10)
+                .withRepulsionFallOffDistance(3)
+                .withDistanceFunction(idLengthDistance)
+                .withShortestPathAlgorithm(algorithm)
+                .withParallelism(4)
+                .buildFor(createRandomGraph(300, 400, 7)).distances;
+
+            for (int i = 0; i < sequential.size(); i++)
+            {
+                for (int j = 0; j < sequential.size(); j++)
+                {
+                    assertThat(algorithm + ": " + i + " to " + j, parallel.getDistance(i, j), is(sequential.getDistance(i, j)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatSparseDistancesMatchDenseDistancesWithinCutoff() throws Exception
+    {
+        DistanceFunction idLengthDistance = new PureDistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                return a.getId().length() + b.getId().length();
+            }
+        };
+
+        DistanceStore dense = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(idLengthDistance)
+            .buildFor(createRandomGraph(300, 400, 7)).distances;
+
+        for (int parallelism : new int[] { 1, 4 })
+        {
+            DistanceStore sparse = new GraphLayoutBuilder()
+                .withSpringFallOffDistance(10)
+                .withRepulsionFallOffDistance(3)
+                .withDistanceFunction(idLengthDistance)
+                .withDistanceStorage(DistanceStorage.SPARSE)
+                .withDistanceCutoff(20)
+                .withParallelism(parallelism)
+                .buildFor(createRandomGraph(300, 400, 7)).distances;
+
+            for (int i = 0; i < dense.size(); i++)
+            {
+                for (int j = 0; j < dense.size(); j++)
+                {
+                    int expected = dense.getDistance(i, j);
+                    assertThat(parallelism + ": " + i + " to " + j, sparse.getDistance(i, j), is(expected > 20 ? Integer.MAX_VALUE : expected));
+                }
+            }
+        }
+    }
+
+    private DirectedGraph createRandomGraph(int nodeCount, int edgeCount, long seed)
+    {
+        Random random = new Random(seed);
+        DirectedGraph graph = new DirectedGraph();
+        for (int i = 0; i < nodeCount; i++)
+        {
+            graph.addNode(new GraphNode("n" + i, 20, 20));
+        }
+        for (int i = 0; i < edgeCount; i++)
+        {
+            graph.addEdge(new Edge("n" + random.nextInt(nodeCount), "n" + random.nextInt(nodeCount)));
+        }
+        return graph;
+    }
+
+    @Test
+    public void thatReusedBuffersGiveIdenticalResults() throws Exception
+    {
+        GraphLayout allocating = createLayout(new GraphLayoutBuilder().withReuseBuffers(false));
+        GraphLayout reusing = createLayout(new GraphLayoutBuilder().withReuseBuffers(true));
+
+        for (int i = 0; i < 500; i++)
+        {
+            allocating.simulate();
+            reusing.simulate();
+        }
+
+        assertThat(Arrays.equals(reusing.getInternalState().getData(), allocating.getInternalState().getData()), is(true));
+    }
+
+    @Test
+    public void thatIntegratorsCountForceEvaluations() throws Exception
+    {
+        GraphLayout euler = createLayout(new GraphLayoutBuilder().withIntegrationMethod(IntegrationMethod.EULER));
+        GraphLayout adamsBashforth = createLayout(new GraphLayoutBuilder().withIntegrationMethod(IntegrationMethod.ADAMS_BASHFORTH));
+        GraphLayout rungeKutta = createLayout(new GraphLayoutBuilder());
+
+        for (int i = 0; i < 10; i++)
+        {
+            euler.simulate();
+            adamsBashforth.simulate();
+            rungeKutta.simulate();
+        }
+
+        assertThat(euler.getForceEvaluations(), is(10L));
+        assertThat(adamsBashforth.getForceEvaluations(), is(10L));
+        // the first RK4 evaluation is for a zero time delta and does not calculate anything
+        assertThat(rungeKutta.getForceEvaluations(), is(30L));
+    }
+
+    @Test
+    public void thatAdaptiveIntegratorMatchesRungeKutta() throws Exception
+    {
+        GraphLayout rungeKutta = createLayout(new GraphLayoutBuilder());
+        GraphLayout dormandPrince = createLayout(new GraphLayoutBuilder().withIntegrationMethod(IntegrationMethod.DORMAND_PRINCE));
+
+        double end = 500 * rungeKutta.getConfig().getStepSize();
+        while (rungeKutta.getTime() < end)
+        {
+            rungeKutta.simulate();
+        }
+        while (dormandPrince.getTime() < end)
+        {
+            dormandPrince.simulate();
+        }
+
+        assertThat(dormandPrince.getForceEvaluations(), is(lessThan(rungeKutta.getForceEvaluations())));
+
+        double[] a = rungeKutta.getInternalState().getData();
+        double[] b = dormandPrince.getInternalState().getData();
+        for (int i = 2; i < a.length; i += 2)
+        {
+            double distanceA = Math.hypot(a[i] - a[i - 2], a[i + 1] - a[i - 1]);
+            double distanceB = Math.hypot(b[i] - b[i - 2], b[i + 1] - b[i - 1]);
+            assertThat(distanceB, is(closeTo(distanceA, 0.1)));
+        }
+    }
+
+    @Test
+    public void thatRunStopsWhenConverged() throws Exception
+    {
+        GraphLayoutBuilder builder = new GraphLayoutBuilder().withRepulsionStart(0.01);
+        builder.withIterations(5000);
+        GraphLayout layout = createLayout(builder);
+
+        LayoutResult result = layout.run();
+
+        assertThat(result.toString(), result.isConverged(), is(true));
+        assertThat(result.getIterations(), is(lessThan(5000)));
+        assertThat(result.getMaxDisplacement(), is(lessThan(0.001)));
+        assertThat(layout.getTime(), is(greaterThan(5000 * layout.getConfig().getStepSize() * 0.01)));
+    }
+
+    @Test
+    public void thatRunContinuesFromCurrentTime() throws Exception
+    {
+        GraphLayoutBuilder builder = new GraphLayoutBuilder();
+        builder.withIterations(20);
+        GraphLayout layout = createLayout(builder);
+
+        LayoutResult first = layout.run();
+        double time = layout.getTime();
+        LayoutResult second = layout.run();
+
+        assertThat(first.getIterations(), is(20));
+        assertThat(second.getIterations(), is(greaterThan(0)));
+        assertThat(layout.getTime(), is(greaterThan(time)));
+    }
+
+    @Test
+    public void thatWarmStartRefinesExistingLayout() throws Exception
+    {
+        GraphLayoutBuilder builder = new GraphLayoutBuilder();
+        GraphLayout cold = createLayout(builder);
+        LayoutResult coldResult = cold.run();
+        cold.update();
+
+        GraphLayout warm = builder.withWarmStart(true).buildFor(cold.getGraph());
+        assertThat(warm.getInternalState().getData(), is(cold.getInternalState().getData()));
+
+        LayoutResult warmResult = warm.run();
+        assertThat(warmResult.getIterations(), is(lessThanOrEqualTo(builder.getWarmStartIterations())));
+        assertThat(warmResult.getForceEvaluations(), is(lessThan(coldResult.getForceEvaluations() / 10)));
+
+        // the layout stays where it was
+        double[] before = cold.getInternalState().getData();
+        double[] after = warm.getInternalState().getData();
+        for (int i = 0; i < before.length; i++)
+        {
+            assertThat(Math.abs(after[i] - before[i]), is(lessThan(1.0)));
+        }
+
+        // each run continues from the last one
+        warm.run();
+        assertThat(warm.getTime(), is(greaterThan(warmResult.getIterations() * builder.getStepSize())));
+    }
+
+    @Test
+    public void thatWarmStartKeepsPositionsWithPlacement() throws Exception
+    {
+        GraphLayout cold = createLayout(new GraphLayoutBuilder());
+        cold.run();
+        cold.update();
+
+        GraphLayout warm = new GraphLayoutBuilder(cold.getConfig())
+            .withWarmStart(true)
+            .withInitialPlacement(InitialPlacement.CIRCLE)
+            .buildFor(cold.getGraph());
+
+        assertThat(warm.getInternalState().getData(), is(cold.getInternalState().getData()));
+    }
+
+    @Test
+    public void thatInitialPlacementsSeparateNodes() throws Exception
+    {
+        for (InitialPlacement placement : InitialPlacement.values())
+        {
+            if (placement == InitialPlacement.NONE)
+            {
+                continue;
+            }
+
+            double[] positions = createLayout(new GraphLayoutBuilder().withInitialPlacement(placement)).getInternalState().getData();
+            double[] again = createLayout(new GraphLayoutBuilder().withInitialPlacement(placement)).getInternalState().getData();
+            assertThat(placement.toString(), again, is(positions));
+
+            for (int i = 0; i < positions.length; i += 2)
+            {
+                for (int j = i + 2; j < positions.length; j += 2)
+                {
+                    assertThat(placement + ": " + i / 2 + " and " + j / 2, positions[i] != positions[j] || positions[i + 1] != positions[j + 1], is(true));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatMultidimensionalScalingPlacesPathOnLine() throws Exception
+    {
+        DirectedGraph graph = new DirectedGraph();
+        for (int i = 0; i < 10; i++)
+        {
+            graph.addNode(new GraphNode("n" + i, 20, 20));
+            if (i > 0)
+            {
+                graph.addEdge(new Edge("n" + (i - 1), "n" + i));
+            }
+        }
+
+        GraphLayout layout = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(new PureDistanceFunction()
+            {
+                @Override
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+                {
+                    return 10;
+                }
+            })
+            .withInitialPlacement(InitialPlacement.MDS)
+            .buildFor(graph);
+
+        double[] positions = layout.getInternalState().getData();
+        int first = layout.findNodeIndex("n0");
+        int last = layout.findNodeIndex("n9");
+        double x = positions[last * 2] - positions[first * 2];
+        double y = positions[last * 2 + 1] - positions[first * 2 + 1];
+        assertThat(Math.sqrt(x * x + y * y), is(closeTo(90, 1)));
+    }
+
+    @Test
+    public void thatParallelForcesAreDeterministic() throws Exception
+    {
+        for (RepulsionMode mode : RepulsionMode.values())
+        {
+            GraphLayout sequential = createLayout(new GraphLayoutBuilder().withRepulsionStart(0.1).withRepulsionMode(mode));
+            GraphLayout parallel = createLayout(new GraphLayoutBuilder().withRepulsionStart(0.1).withRepulsionMode(mode).withParallelism(3));
+            GraphLayout parallel2 = createLayout(new GraphLayoutBuilder().withRepulsionStart(0.1).withRepulsionMode(mode).withParallelism(3));
+
+            // no coincident nodes, the jitter for those differs between sequential and parallel calculation
+            for (GraphLayout layout : Arrays.asList(sequential, parallel, parallel2))
+            {
+                double[] data = layout.getInternalState().getData();
+                for (int i = 0; i < data.length; i += 2)
+                {
+                    data[i] = Math.cos(i);
+                    data[i + 1] = Math.sin(i);
+                }
+            }
+
+            for (int i = 0; i < 200; i++)
+            {
+                sequential.simulate();
+                parallel.simulate();
+                parallel2.simulate();
+            }
+
+            double[] a = sequential.getInternalState().getData();
+            double[] b = parallel.getInternalState().getData();
+            assertThat(Arrays.equals(b, parallel2.getInternalState().getData()), is(true));
+            for (int i = 0; i < a.length; i++)
+            {
+                assertThat(mode.name(), b[i], is(closeTo(a[i], 1e-6)));
+            }
+        }
+    }
+
+    @Test
+    public void thatFloatStatesMatchDoubleStates() throws Exception
+    {
+        for (RepulsionMode mode : RepulsionMode.values())
+        {
+            for (IntegrationMethod method : Arrays.asList(IntegrationMethod.EULER, IntegrationMethod.RUNGE_KUTTA))
+            {
+                for (int parallelism : new int[] { 1, 3 })
+                {
+                    String name = mode + ", " + method + ", " + parallelism;
+                    GraphLayout doubles = createLayout(new GraphLayoutBuilder().withRepulsionStart(0.1).withRepulsionMode(mode).withIntegrationMethod(method).withParallelism(parallelism));
+                    GraphLayout floats = createLayout(new GraphLayoutBuilder().withRepulsionStart(0.1).withRepulsionMode(mode).withIntegrationMethod(method).withParallelism(parallelism).withStatePrecision(StatePrecision.FLOAT));
+
+                    for (GraphLayout layout : Arrays.asList(doubles, floats))
+                    {
+                        double[] data = layout.getInternalState().getData();
+                        for (int i = 0; i < data.length; i += 2)
+                        {
+                            data[i] = Math.cos(i);
+                            data[i + 1] = Math.sin(i);
+                        }
+                    }
+
+                    for (int i = 0; i < 200; i++)
+                    {
+                        doubles.simulate();
+                        floats.simulate();
+                    }
+
+                    double[] a = doubles.getInternalState().getData();
+                    double[] b = floats.getInternalState().getData();
+                    assertThat(name, Arrays.equals(a, b), is(false));
+                    for (int i = 0; i < a.length; i++)
+                    {
+                        assertThat(name, b[i], is(closeTo(a[i], 1e-3)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatBarnesHutSeparatesCoincidentNodes() throws Exception
+    {
+        assertCoincidentNodesSeparate(RepulsionMode.BARNES_HUT);
+    }
+
+    @Test
+    public void thatCutoffRepulsionSeparatesCoincidentNodes() throws Exception
+    {
+        assertCoincidentNodesSeparate(RepulsionMode.CUTOFF);
+    }
+
+    /**
+     * Starts four nodes at the origin, only two of them connected, and checks that the repulsion pushes all of them
+     * apart.
+     */
+    private void assertCoincidentNodesSeparate(RepulsionMode mode)
+    {
+        DirectedGraph graph = new DirectedGraph();
+        for (String id : Arrays.asList("a", "b", "c", "d"))
+        {
+            graph.addNode(new GraphNode(id, 20, 20));
+        }
+        graph.addEdge(new Edge("a", "b"));
+
+        GraphLayout layout = uniformDistances(1).withRepulsionStart(0).withRepulsionMode(mode).buildFor(graph);
+        for (int i = 0; i < 500; i++)
+        {
+            layout.simulate();
+        }
+
+        double[] data = layout.getInternalState().getData();
+        for (int i = 0; i < 4; i++)
+        {
+            for (int j = i + 1; j < 4; j++)
+            {
+                double distance = Math.hypot(data[j * 2] - data[i * 2], data[j * 2 + 1] - data[i * 2 + 1]);
+                assertThat(mode + ": " + i + " and " + j, distance, is(greaterThan(0.5)));
+            }
+        }
+    }
+
+    @Test
+    public void thatBarnesHutMatchesExactRepulsionForThetaZero() throws Exception
+    {
+        GraphLayout exact = createLayout(new GraphLayoutBuilder().withRepulsionStart(0));
+        GraphLayout barnesHut = createLayout(new GraphLayoutBuilder().withRepulsionStart(0).withBarnesHut(0));
+
+        for (int i = 0; i < 100; i++)
+        {
+            exact.simulate();
+            barnesHut.simulate();
+        }
+
+        double[] a = exact.getInternalState().getData();
+        double[] b = barnesHut.getInternalState().getData();
+        for (int i = 0; i < a.length; i++)
+        {
+            assertThat(b[i], is(closeTo(a[i], 1e-6)));
+        }
+    }
+
+    @Test
+    public void thatCutoffRepulsionMatchesExactRepulsion() throws Exception
+    {
+        // parallel runs have their own jitter sequence, so compare with the same parallelism
+        for (int parallelism : new int[] { 1, 3 })
+        {
+            GraphLayout exact = createLayout(new GraphLayoutBuilder().withRepulsionStart(0).withParallelism(parallelism));
+            GraphLayout cutoff = createLayout(new GraphLayoutBuilder().withRepulsionStart(0).withParallelism(parallelism).withRepulsionMode(RepulsionMode.CUTOFF));
+
+            for (int i = 0; i < 100; i++)
+            {
+                exact.simulate();
+                cutoff.simulate();
+            }
+
+            double[] a = exact.getInternalState().getData();
+            double[] b = cutoff.getInternalState().getData();
+            for (int i = 0; i < a.length; i++)
+            {
+                assertThat(parallelism + ": " + i, b[i], is(closeTo(a[i], 1e-6)));
+            }
+        }
+    }
+
+    @Test(expected = EditorRuntimeException.class)
+    public void thatCutoffRepulsionNeedsZeroTail() throws Exception
+    {
+        DirectedGraph graphData = JSONParser.defaultJSONParser().parse(DirectedGraph.class, TEST_GRAPH_JSON);
+
+        uniformDistances(1)
+            .withRepulsionMode(RepulsionMode.CUTOFF)
+            .withRepulsionFallOff(0.5, 1, 0.75, 0.01, 0.1, 3)
+            .buildFor(graphData);
+    }
+
+    @Test
+    public void thatDistanceFunctionGetsNeighbors() throws Exception
+    {
+        final Map<String, Integer> degrees = new HashMap<String, Integer>();
+        DistanceFunction degreeDistance = new DistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                degrees.put(a.getId(), neighborsA.size());
+                degrees.put(b.getId(), neighborsB.size());
+                return neighborsA.size() + neighborsB.size();
+            }
+        };
+
+        DirectedGraph graphData = JSONParser.defaultJSONParser().parse(DirectedGraph.class, TEST_GRAPH_JSON);
+        GraphLayout layout = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(degreeDistance)
+            .buildFor(graphData);
+
+        assertThat(degrees.get("A"), is(3));
+        assertThat(degrees.get("D"), is(5));
+        assertThat(degrees.get("E"), is(1));
+
+        // A - D - G
+        assertThat(layout.distances.getDistance(layout.findNodeIndex("A"), layout.findNodeIndex("G")), is(8 + 8));
+    }
+
+    @Test
+    public void thatPureDistanceFunctionIsCalledOncePerEdge() throws Exception
+    {
+        final int[] calls = new int[1];
+        DistanceFunction impure = new DistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                calls[0]++;
+                return 2;
+            }
+        };
+        DistanceFunction pure = new PureDistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                calls[0]++;
+                return 2;
+            }
+        };
+
+        DirectedGraph graphData = JSONParser.defaultJSONParser().parse(DirectedGraph.class, TEST_GRAPH_JSON);
+        int edgeCount = graphData.getEdges().size();
+
+        DistanceStore impureDistances = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(impure)
+            .buildFor(graphData).distances;
+
+        assertThat(calls[0], is(greaterThan(edgeCount * 2)));
+
+        calls[0] = 0;
+        DistanceStore pureDistances = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(pure)
+            .withShortestPathAlgorithm(ShortestPathAlgorithm.DIJKSTRA)
+            .buildFor(graphData).distances;
+
+        assertThat(calls[0], is(edgeCount * 2));
+
+        for (int i = 0; i < pureDistances.size(); i++)
+        {
+            for (int j = 0; j < pureDistances.size(); j++)
+            {
+                assertThat(pureDistances.getDistance(i, j), is(impureDistances.getDistance(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void thatIncrementalChangesMatchNewLayout() throws Exception
+    {
+        // symmetric, depends on the neighbours
+        DistanceFunction degreeDistance = new PureDistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                return neighborsA.size() + neighborsB.size();
+            }
+        };
+
+        for (DistanceStorage storage : DistanceStorage.values())
+        {
+            GraphLayoutBuilder builder = new GraphLayoutBuilder()
+                .withSpringFallOffDistance(10)
+                .withRepulsionFallOffDistance(3)
+                .withDistanceFunction(degreeDistance)
+                .withDistanceStorage(storage);
+            if (storage.usesCutoff())
+            {
+                builder.withDistanceCutoff(1000);
+            }
+
+            GraphLayout layout = builder.buildFor(createRandomGraph(120, 110, 3));
+            assertThat(layout.getConfig().getDistanceStorage(), is(storage));
+
+            layout.addEdge("n1", "n2");
+            assertSameDistances(storage + " add edge", layout, builder);
+
+            layout.removeEdge("n2", "n1");
+            assertSameDistances(storage + " remove edge", layout, builder);
+
+            int index = layout.addNode(new GraphNode("n50a", 20, 20));
+            assertThat(layout.getIdForIndex(index), is("n50a"));
+            assertSameDistances(storage + " add node", layout, builder);
+
+            layout.addEdge("n50a", "n7");
+            layout.addEdge("n50a", "n99");
+            assertSameDistances(storage + " connect node", layout, builder);
+
+            layout.removeNode("n7");
+            assertSameDistances(storage + " remove node", layout, builder);
+            assertThat(layout.getGraph().getNodeCount(), is(120));
+        }
+    }
+
+    private void assertSameDistances(String message, GraphLayout layout, GraphLayoutBuilder builder)
+    {
+        DistanceStore expected = builder.buildFor(layout.getGraph()).distances;
+        DistanceStore actual = layout.getDistances();
+
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); i++)
+        {
+            for (int j = 0; j < expected.size(); j++)
+            {
+                assertThat(message + ": " + i + " to " + j, actual.getDistance(i, j), is(expected.getDistance(i, j)));
+            }
+        }
+    }
+
+    @Test(expected = EdgeNotFoundException.class)
+    public void thatRemovingMissingEdgeFails() throws Exception
+    {
+        createLayout(new GraphLayoutBuilder()).removeEdge("A", "K");
+    }
+
+    @Test
+    public void thatRelaxOnlyMovesNodesNearChanges() throws Exception
+    {
+        GraphLayout layout = createLayout(new GraphLayoutBuilder().withRelaxationRadius(1));
+        layout.run();
+
+        layout.addNode(new GraphNode("L", 20, 20));
+        layout.addEdge("L", "K");
+
+        double[] before = layout.getInternalState().getData().clone();
+        LayoutResult result = layout.relax();
+        double[] after = layout.getInternalState().getData();
+
+        assertThat(result.getIterations(), is(greaterThan(0)));
+
+        // K's neighbours are I and J
+        for (String id : Arrays.asList("L", "K", "I", "J"))
+        {
+            int index = layout.findNodeIndex(id);
+            assertThat(id, after[index * 2] != before[index * 2] || after[index * 2 + 1] != before[index * 2 + 1], is(true));
+        }
+        for (String id : Arrays.asList("A", "B", "C", "D", "E", "F", "G", "H"))
+        {
+            int index = layout.findNodeIndex(id);
+            assertThat(id, after[index * 2], is(before[index * 2]));
+            assertThat(id, after[index * 2 + 1], is(before[index * 2 + 1]));
+        }
+
+        // nothing changed since
+        assertThat(layout.relax().getIterations(), is(0));
+    }
+
+    @Test
+    public void thatMultilevelLayoutPlacesLargeGraphs() throws Exception
+    {
+        DirectedGraph graphData = new TreeGenerator(500, 2).createGraph();
+
+        MultilevelLayout multilevel = new MultilevelLayout(uniformDistances(30)
+            .withDistanceStorage(DistanceStorage.SPARSE)
+            .withDistanceCutoff(90));
+        GraphLayout layout = multilevel.layout(graphData);
+
+        assertThat(multilevel.getLevelCount(), is(greaterThan(2)));
+        assertThat(layout.getGraph().getNodeCount(), is(500));
+        assertThat(layout.config.isWarmStart(), is(true));
+
+        double averageLength = averageEdgeLength(layout);
+        assertThat(averageLength, is(greaterThan(15.0)));
+        assertThat(averageLength, is(lessThan(60.0)));
+    }
+
+    @Test
+    public void thatMultilevelLayoutKeepsDenseStorage() throws Exception
+    {
+        DirectedGraph graphData = new TreeGenerator(500, 2).createGraph();
+
+        // every node has a spring to all 499 others, which needs a smaller step than the default to stay stable
+        GraphLayoutBuilder builder = uniformDistances(30);
+        builder.withStepSize(1 / 240.0);
+
+        MultilevelLayout multilevel = new MultilevelLayout(builder);
+        GraphLayout layout = multilevel.layout(graphData);
+
+        assertThat(multilevel.getLevelCount(), is(greaterThan(2)));
+        assertThat(layout.getConfig().getDistanceStorage(), is(DistanceStorage.DENSE));
+
+        double averageLength = averageEdgeLength(layout);
+        assertThat(averageLength, is(greaterThan(15.0)));
+        assertThat(averageLength, is(lessThan(60.0)));
+    }
+
+    private static double averageEdgeLength(GraphLayout layout)
+    {
+        double[] positions = layout.getInternalState().getData();
+        double lengthSum = 0;
+        for (int e = 0; e < layout.getGraph().getEdgeCount(); e++)
+        {
+            int from = layout.getGraph().getEdgeFrom(e);
+            int to = layout.getGraph().getEdgeTo(e);
+            double x = positions[to * 2] - positions[from * 2];
+            double y = positions[to * 2 + 1] - positions[from * 2 + 1];
+            lengthSum += Math.sqrt(x * x + y * y);
+        }
+        return lengthSum / layout.getGraph().getEdgeCount();
+    }
+
+    @Test
+    public void thatMultilevelLayoutKeepsSmallGraphsOnOneLevel() throws Exception
+    {
+        DirectedGraph graphData = JSONParser.defaultJSONParser().parse(DirectedGraph.class, TEST_GRAPH_JSON);
+
+        MultilevelLayout multilevel = new MultilevelLayout(uniformDistances(1));
+        GraphLayout layout = multilevel.layout(graphData);
+
+        assertThat(multilevel.getLevelCount(), is(1));
+        assertThat(layout.config.isWarmStart(), is(false));
+    }
+
+    @Test
+    public void thatComponentsAreLaidOutApart() throws Exception
+    {
+        DirectedGraph graphData = JSONParser.defaultJSONParser().parse(DirectedGraph.class, TEST_GRAPH_JSON);
+        for (String id : Arrays.asList("X", "Y", "Z", "single"))
+        {
+            graphData.addNode(new GraphNode(id, 20, 20));
+        }
+        graphData.addEdge(new Edge("X", "Y"));
+        graphData.addEdge(new Edge("Y", "Z"));
+        graphData.addEdge(new Edge("Z", "X"));
+
+        assertThat(uniformDistances(30).buildFor(graphData).getSubgraphCount(), is(3));
+
+        for (int parallelism : new int[] { 1, 3 })
+        {
+            List<GraphLayout> layouts = new ComponentLayout(uniformDistances(30).withParallelism(parallelism)).layout(graphData);
+
+            assertThat(layouts.size(), is(3));
+            assertThat(layouts.get(0).getGraph().getNodeCount(), is(11));
+            assertThat(layouts.get(1).getGraph().getNodeCount(), is(3));
+            assertThat(layouts.get(2).getGraph().getNodeCount(), is(1));
+
+            AABB[] boxes = new AABB[layouts.size()];
+            for (int c = 0; c < boxes.length; c++)
+            {
+                assertThat(layouts.get(c).getSubgraphCount(), is(1));
+                boxes[c] = layouts.get(c).update();
+            }
+            for (int a = 0; a < boxes.length; a++)
+            {
+                for (int b = a + 1; b < boxes.length; b++)
+                {
+                    boolean apart = boxes[a].getX() + boxes[a].getWidth() < boxes[b].getX() ||
+                        boxes[b].getX() + boxes[b].getWidth() < boxes[a].getX() ||
+                        boxes[a].getY() + boxes[a].getHeight() < boxes[b].getY() ||
+                        boxes[b].getY() + boxes[b].getHeight() < boxes[a].getY();
+                    assertThat(parallelism + ": " + a + " and " + b, apart, is(true));
+                }
+            }
+
+            // positions end up in the original nodes
+            assertThat(graphData.getNodes().get("X").getX(), is(layouts.get(1).getGraph().getX(0)));
+        }
+    }
+
+    @Test
+    public void thatStressMajorizationPlacesPathAtTargetDistances() throws Exception
+    {
+        DirectedGraph path = createPath(6);
+
+        GraphLayout layout = uniformDistances(10)
+            .withLayoutSolver(LayoutSolver.STRESS_MAJORIZATION)
+            .withInitialPlacement(InitialPlacement.MDS)
+            .withConvergenceTolerance(1e-6)
+            .buildFor(path);
+        LayoutResult result = layout.run();
+
+        assertThat(result.isConverged(), is(true));
+        assertThat(result.getIterations(), is(lessThan(100)));
+
+        double[] positions = layout.getInternalState().getData();
+        for (int i = 0; i < 6; i++)
+        {
+            for (int j = i + 1; j < 6; j++)
+            {
+                double x = positions[j * 2] - positions[i * 2];
+                double y = positions[j * 2 + 1] - positions[i * 2 + 1];
+                assertThat(i + " to " + j, Math.sqrt(x * x + y * y), is(closeTo(layout.distances.getDistance(i, j), 1e-3)));
+            }
+        }
+    }
+
+    @Test
+    public void thatSparseStressMajorizationUsesPivots() throws Exception
+    {
+        DirectedGraph path = createPath(40);
+
+        for (int pivots : new int[] { 0, 5 })
+        {
+            GraphLayout layout = uniformDistances(10)
+                .withLayoutSolver(LayoutSolver.STRESS_MAJORIZATION)
+                .withDistanceStorage(DistanceStorage.SPARSE)
+                .withDistanceCutoff(20)
+                .withStressPivots(pivots)
+                .withInitialPlacement(InitialPlacement.CIRCLE)
+                .buildFor(path);
+            layout.run();
+
+            int first = layout.findNodeIndex("n00");
+            int last = layout.findNodeIndex("n39");
+            double[] positions = layout.getInternalState().getData();
+            double x = positions[last * 2] - positions[first * 2];
+            double y = positions[last * 2 + 1] - positions[first * 2 + 1];
+            double length = Math.sqrt(x * x + y * y);
+
+            // only the pivots pull the ends of the circle apart
+            if (pivots > 0)
+            {
+                assertThat(length, is(greaterThan(350.0)));
+            }
+            else
+            {
+                assertThat(length, is(lessThan(100.0)));
+            }
+        }
+    }
+
+    @Test
+    public void thatLandmarkDistancesBoundFarDistances() throws Exception
+    {
+        DistanceStore dense = uniformDistances(10).buildFor(createRandomGraph(300, 400, 7)).distances;
+        LandmarkDistanceStore landmarks = (LandmarkDistanceStore) uniformDistances(10)
+            .withLandmarks(8)
+            .withDistanceCutoff(30)
+            .buildFor(createRandomGraph(300, 400, 7)).distances;
+
+        assertThat(landmarks.getLandmarks().length, is(8));
+        for (int i = 0; i < dense.size(); i++)
+        {
+            for (int j = 0; j < dense.size(); j++)
+            {
+                int expected = dense.getDistance(i, j);
+                int actual = landmarks.getDistance(i, j);
+                if (expected <= 30 || expected == Integer.MAX_VALUE || landmarks.isLandmark(i) || landmarks.isLandmark(j))
+                {
+                    assertThat(i + " to " + j, actual, is(expected));
+                }
+                else
+                {
+                    // the detour over a landmark is never shorter than the shortest path
+                    assertThat(i + " to " + j, actual, is(greaterThanOrEqualTo(expected)));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void thatLandmarkSpringsUnfoldPath() throws Exception
+    {
+        DirectedGraph path = createPath(40);
+
+        for (int landmarks : new int[] { 0, 5 })
+        {
+            GraphLayout layout = uniformDistances(10)
+                .withRepulsionMode(RepulsionMode.BARNES_HUT)
+                .withLandmarks(landmarks)
+                .withDistanceCutoff(20)
+                .withInitialPlacement(InitialPlacement.CIRCLE)
+                .buildFor(path);
+            layout.run();
+
+            int first = layout.findNodeIndex("n00");
+            int last = layout.findNodeIndex("n39");
+            double[] positions = layout.getInternalState().getData();
+            double x = positions[last * 2] - positions[first * 2];
+            double y = positions[last * 2 + 1] - positions[first * 2 + 1];
+            double length = Math.sqrt(x * x + y * y);
+
+            // without repulsion between far nodes only the landmark springs pull the ends of the circle apart
+            if (landmarks > 0)
+            {
+                assertThat(length, is(greaterThan(350.0)));
+            }
+            else
+            {
+                assertThat(length, is(lessThan(100.0)));
+            }
+        }
+    }
+
+    @Test
+    public void thatParallelStressMajorizationMatchesSequential() throws Exception
+    {
+        GraphLayout sequential = createLayout(new GraphLayoutBuilder().withLayoutSolver(LayoutSolver.STRESS_MAJORIZATION));
+        GraphLayout parallel = createLayout(new GraphLayoutBuilder().withLayoutSolver(LayoutSolver.STRESS_MAJORIZATION).withParallelism(3));
+
+        sequential.run();
+        parallel.run();
+
+        assertThat(parallel.getInternalState().getData(), is(sequential.getInternalState().getData()));
+    }
+
+    private DirectedGraph createPath(int nodeCount)
+    {
+        DirectedGraph graph = new DirectedGraph();
+        for (int i = 0; i < nodeCount; i++)
+        {
+            graph.addNode(new GraphNode(String.format("n%02d", i), 20, 20));
+            if (i > 0)
+            {
+                graph.addEdge(new Edge(String.format("n%02d", i - 1), String.format("n%02d", i)));
+            }
+        }
+        return graph;
+    }
+
+    private GraphLayout createLayout(GraphLayoutBuilder builder)
+    {
+        DirectedGraph graphData = JSONParser.defaultJSONParser().parse(DirectedGraph.class, TEST_GRAPH_JSON);
+
+        return builder
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(new PureDistanceFunction()
+            {
+                @Override
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+                {
+                    return 1;
+                }
+            }).buildFor(graphData);
+    }
+
+    private static GraphLayoutBuilder uniformDistances(final int distance)
+    {
+        return new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(new PureDistanceFunction()
+            {
+                @Override
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+                {
+                    return distance;
+                }
+            });
+    }
 }
@@ -0,0 +1,136 @@
+package org.oseditor.graph;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class IntPriorityQueueTest
+{
+    @Test
+    public void thatQueueOperationsWork()
+    {
+        for (PriorityQueueType type : PriorityQueueType.values())
+        {
+            IntPriorityQueue pq = createTestQueue(type);
+
+            assertThat(pq.size(), is(5));
+
+            assertThat(pq.popMinimalValue(), is(0));
+            assertThat(pq.size(), is(4));
+
+            pq.lowerPriority(3, 40, 15);
+            pq.lowerPriority(4, 50, 16);
+
+            assertThat(type.name(), drain(pq), is("3412"));
+            assertThat(pq.isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void thatQueuesAgreeWithSortedArray()
+    {
+        Random random = new Random(1234);
+
+        IntPriorityQueue reference = PriorityQueueType.SORTED_ARRAY.create(100);
+        IntPriorityQueue heap = PriorityQueueType.HEAP.create(100);
+        IntPriorityQueue radix = PriorityQueueType.RADIX.create(100);
+
+        int[] priorities = new int[100];
+        for (int i = 0; i < 100; i++)
+        {
+            // unique priorities, so the popping order is well-defined
+            priorities[i] = i * 1000 + random.nextInt(1000);
+            reference.add(priorities[i], i);
+            heap.add(priorities[i], i);
+            radix.add(priorities[i], i);
+        }
+
+        int last = 0;
+        while (!reference.isEmpty())
+        {
+            int value = reference.popMinimalValue();
+            last = priorities[value];
+            assertThat(heap.popMinimalValue(), is(value));
+            assertThat(radix.popMinimalValue(), is(value));
+
+            for (int i = 0; i < 3; i++)
+            {
+                int v = random.nextInt(100);
+                int p = priorities[v];
+                if (p > last + 1)
+                {
+                    int lower = last + 1 + random.nextInt(p - last - 1);
+                    if (lower < p)
+                    {
+                        try
+                        {
+                            reference.lowerPriority(v, p, lower);
+                        }
+                        catch (QueueElementNotFound e)
+                        {
+                            // already popped
+                            continue;
+                        }
+                        heap.lowerPriority(v, p, lower);
+                        radix.lowerPriority(v, p, lower);
+                        priorities[v] = lower;
+                    }
+                }
+            }
+        }
+        assertThat(heap.isEmpty(), is(true));
+        assertThat(radix.isEmpty(), is(true));
+    }
+
+    @Test(expected = QueueEmptyException.class)
+    public void thatEmptyHeapsDoNotPop()
+    {
+        new HeapPriorityQueue(1).popMinimalValue();
+    }
+
+    @Test(expected = QueueElementNotFound.class)
+    public void thatHeapDoesNotLowerUnknownValues()
+    {
+        createTestQueue(PriorityQueueType.HEAP).lowerPriority(4, 2, 1);
+    }
+
+    @Test(expected = PriorityNotLowerException.class)
+    public void thatHeapDoesNotAcceptHigherPriorities()
+    {
+        createTestQueue(PriorityQueueType.HEAP).lowerPriority(4, 50, 51);
+    }
+
+    @Test(expected = PriorityNotMonotoneException.class)
+    public void thatRadixQueueIsMonotone()
+    {
+        IntPriorityQueue pq = createTestQueue(PriorityQueueType.RADIX);
+        pq.popMinimalValue();
+        pq.lowerPriority(4, 50, 5);
+    }
+
+    private IntPriorityQueue createTestQueue(PriorityQueueType type)
+    {
+        IntPriorityQueue pq = type.create(5);
+        assertThat(pq.isEmpty(), is(true));
+
+        pq.add(30, 2);
+        pq.add(10, 0);
+        pq.add(20, 1);
+        pq.add(50, 4);
+        pq.add(40, 3);
+        return pq;
+    }
+
+    private String drain(IntPriorityQueue pq)
+    {
+        StringBuilder sb = new StringBuilder();
+        while (!pq.isEmpty())
+        {
+            sb.append(pq.popMinimalValue());
+        }
+        return sb.toString();
+    }
+}
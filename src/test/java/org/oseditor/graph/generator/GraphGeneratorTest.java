@@ -0,0 +1,102 @@
+package org.oseditor.graph.generator;
+
+import org.junit.Test;
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.DistanceFunction;
+import org.oseditor.graph.GraphLayoutBuilder;
+import org.oseditor.graph.GraphNode;
+import org.oseditor.graph.Neighbors;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class GraphGeneratorTest
+{
+    @Test
+    public void thatGeneratorsAreReproducible()
+    {
+        GraphGenerator[] generators = new GraphGenerator[] {
+            new ErdosRenyiGenerator(500, 2000, 1),
+            new BarabasiAlbertGenerator(500, 3, 1),
+            new WattsStrogatzGenerator(500, 2, 0.1, 1),
+            new ClusterGenerator(5, 100, 50, 1)
+        };
+
+        for (GraphGenerator generator : generators)
+        {
+            EdgeList a = generator.createEdgeList();
+            EdgeList b = generator.createEdgeList();
+
+            assertThat(b.getEdgeCount(), is(a.getEdgeCount()));
+            for (int i = 0; i < a.getEdgeCount(); i++)
+            {
+                assertThat(b.getFrom(i), is(a.getFrom(i)));
+                assertThat(b.getTo(i), is(a.getTo(i)));
+            }
+        }
+    }
+
+    @Test
+    public void thatErdosRenyiHasNoDuplicatesAndExpectedEdgeCount()
+    {
+        EdgeList edges = new ErdosRenyiGenerator(2000, 20000, 42).createEdgeList();
+
+        assertThat(edges.getEdgeCount(), allOf(greaterThan(19000), lessThan(21000)));
+
+        Set<Long> pairs = new HashSet<Long>();
+        for (int i = 0; i < edges.getEdgeCount(); i++)
+        {
+            int from = edges.getFrom(i);
+            int to = edges.getTo(i);
+            assertThat(from, is(not(to)));
+            assertThat(pairs.add((long) Math.min(from, to) * 2000 + Math.max(from, to)), is(true));
+        }
+    }
+
+    @Test
+    public void thatStructuredGeneratorsHaveExactEdgeCounts()
+    {
+        assertThat(new GridGenerator(10, 20, false).createEdgeList().getEdgeCount(), is(9 * 20 + 10 * 19));
+        assertThat(new GridGenerator(10, 20, true).createEdgeList().getEdgeCount(), is(400));
+        assertThat(new TreeGenerator(100, 3).createEdgeList().getEdgeCount(), is(99));
+        assertThat(new BarabasiAlbertGenerator(100, 3, 7).createEdgeList().getEdgeCount(), is(1 + 2 + 97 * 3));
+        assertThat(new WattsStrogatzGenerator(100, 3, 0.5, 7).createEdgeList().getEdgeCount(), is(300));
+        assertThat(new ClusterGenerator(4, 25, 10, 7).createEdgeList().getEdgeCount(), is(4 * (24 + 10)));
+    }
+
+    @Test
+    public void thatGraphsUseZeroPaddedIds()
+    {
+        DirectedGraph graph = new TreeGenerator(1000, 2).createGraph();
+
+        assertThat(graph.getNodes().size(), is(1000));
+        assertThat(graph.getEdges().size(), is(999));
+        assertThat(graph.getNodes().containsKey("n007"), is(true));
+        assertThat(graph.getEdges().get(0).getFrom(), is("n000"));
+        assertThat(graph.getEdges().get(0).getTo(), is("n001"));
+    }
+
+    @Test
+    public void thatClustersAreDisconnected()
+    {
+        DistanceFunction unitDistance = new DistanceFunction()
+        {
+            @Override
+            public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+            {
+                return 1;
+            }
+        };
+
+        GraphLayoutBuilder builder = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(unitDistance);
+
+        assertThat(builder.buildFor(new ClusterGenerator(1, 50, 20, 3).createGraph()).areAllNodesConnected(), is(true));
+        assertThat(builder.buildFor(new ClusterGenerator(3, 50, 20, 3).createGraph()).areAllNodesConnected(), is(false));
+    }
+}
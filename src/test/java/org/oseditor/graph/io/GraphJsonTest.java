@@ -0,0 +1,120 @@
+package org.oseditor.graph.io;
+
+import org.junit.Test;
+import org.oseditor.graph.CompactGraph;
+import org.oseditor.graph.DirectedGraph;
+import org.oseditor.graph.DistanceFunction;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.GraphLayoutBuilder;
+import org.oseditor.graph.GraphNode;
+import org.oseditor.graph.Neighbors;
+import org.oseditor.graph.NodeNotFoundException;
+import org.oseditor.graph.generator.ErdosRenyiGenerator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class GraphJsonTest
+{
+    private final static String GRAPH_JSON = "{\"edges\":[{\"from\":\"b\",\"to\":\"a\",\"label\":null},{\"from\":\"c\",\"to\":\"b\"}]," +
+        "\"nodes\":{\"c\":{\"id\":\"c\",\"x\":1.5,\"y\":-2e1,\"width\":20,\"height\":10,\"props\":{\"tags\":[1,{\"x\":2}]}}," +
+        "\"a\":{\"id\":\"a\",\"width\":5,\"height\":5,\"color\":\"#f\\\"00\"},\"b\":{\"id\":\"b\",\"x\":3,\"y\":4,\"visible\":true}}}";
+
+    @Test
+    public void thatReaderFillsCompactGraph() throws Exception
+    {
+        CompactGraph graph = new GraphJsonReader().read(new StringReader(GRAPH_JSON));
+
+        assertThat(graph.getNodeCount(), is(3));
+        assertThat(graph.getId(0), is("a"));
+        assertThat(graph.getId(2), is("c"));
+        assertThat(graph.getX(2), is(1.5));
+        assertThat(graph.getY(2), is(-20.0));
+        assertThat(graph.getWidth(2), is(20.0));
+        assertThat(graph.getHeight(0), is(5.0));
+        assertThat(graph.getX(1), is(3.0));
+
+        assertThat(graph.getEdgeCount(), is(2));
+        assertThat(graph.getEdgeFrom(0), is(1));
+        assertThat(graph.getEdgeTo(0), is(0));
+        assertThat(graph.getEdgeFrom(1), is(2));
+        assertThat(graph.getEdgeTo(1), is(1));
+    }
+
+    @Test(expected = NodeNotFoundException.class)
+    public void thatEdgesToUnknownNodesFail() throws Exception
+    {
+        new GraphJsonReader().read(new StringReader("{\"nodes\":{\"a\":{}},\"edges\":[{\"from\":\"a\",\"to\":\"x\"}]}"));
+    }
+
+    @Test(expected = GraphFormatException.class)
+    public void thatTruncatedInputFails() throws Exception
+    {
+        new GraphJsonReader().read(new StringReader("{\"nodes\":{\"a\":{\"x\":1"));
+    }
+
+    @Test
+    public void thatWrittenGraphsCanBeReadBack() throws Exception
+    {
+        DirectedGraph data = new ErdosRenyiGenerator(300, 600, 5).createGraph();
+        data.addNode(new GraphNode("\u00fcml\u00e4ut \"quoted\" \\ \u20ac \ud83d\ude00\n", 3, 4));
+
+        CompactGraph graph = CompactGraph.from(data);
+        for (int i = 0; i < graph.getNodeCount(); i++)
+        {
+            graph.setPosition(i, i * 0.1, -i / 3.0);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GraphJsonWriter().write(graph, out);
+        CompactGraph read = new GraphJsonReader().read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertThat(read.getNodeCount(), is(graph.getNodeCount()));
+        assertThat(read.getEdgeCount(), is(graph.getEdgeCount()));
+        for (int i = 0; i < graph.getNodeCount(); i++)
+        {
+            assertThat(read.getId(i), is(graph.getId(i)));
+            assertThat(read.getX(i), is(graph.getX(i)));
+            assertThat(read.getY(i), is(graph.getY(i)));
+            assertThat(read.getWidth(i), is(graph.getWidth(i)));
+            assertThat(read.getHeight(i), is(graph.getHeight(i)));
+        }
+        for (int e = 0; e < graph.getEdgeCount(); e++)
+        {
+            assertThat(read.getEdgeFrom(e), is(graph.getEdgeFrom(e)));
+            assertThat(read.getEdgeTo(e), is(graph.getEdgeTo(e)));
+        }
+    }
+
+    @Test
+    public void thatLayoutPositionsAreWritten() throws Exception
+    {
+        GraphLayoutBuilder builder = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(new DistanceFunction()
+            {
+                @Override
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+                {
+                    return (int) (a.getWidth() + b.getWidth());
+                }
+            });
+        builder.withIterations(20);
+
+        GraphLayout layout = builder.buildFor(new GraphJsonReader().read(new StringReader(GRAPH_JSON)));
+        layout.run();
+        layout.update();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new GraphJsonWriter().writePositions(layout.getGraph(), out);
+
+        String json = new String(out.toByteArray(), "UTF-8");
+        assertThat(json, startsWith("{\"a\":{\"x\":" + layout.getGraph().getX(0) + ",\"y\":" + layout.getGraph().getY(0) + "}"));
+        assertThat(layout.getGraph().getNode(1).getX(), is(layout.getGraph().getX(1)));
+    }
+}
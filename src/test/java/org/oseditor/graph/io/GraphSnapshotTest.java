@@ -0,0 +1,187 @@
+package org.oseditor.graph.io;
+
+import org.junit.Test;
+import org.oseditor.graph.CompactGraph;
+import org.oseditor.graph.DistanceFunction;
+import org.oseditor.graph.DistanceStorage;
+import org.oseditor.graph.DistanceStore;
+import org.oseditor.graph.GraphLayout;
+import org.oseditor.graph.GraphLayoutBuilder;
+import org.oseditor.graph.GraphNode;
+import org.oseditor.graph.Neighbors;
+import org.oseditor.graph.RepulsionMode;
+import org.oseditor.graph.SparseDistanceStore;
+import org.oseditor.graph.generator.ClusterGenerator;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+
+public class GraphSnapshotTest
+{
+    private GraphLayoutBuilder createBuilder()
+    {
+        GraphLayoutBuilder builder = new GraphLayoutBuilder()
+            .withSpringFallOffDistance(10)
+            .withRepulsionFallOffDistance(3)
+            .withDistanceFunction(new DistanceFunction()
+            {
+                @Override
+                public int getDistance(GraphNode a, GraphNode b, Neighbors neighborsA, Neighbors neighborsB)
+                {
+                    return 1;
+                }
+            });
+        builder.withIterations(50);
+        return builder;
+    }
+
+    private Path createTempFile() throws Exception
+    {
+        File file = File.createTempFile("snapshot", ".bin");
+        file.deleteOnExit();
+        return file.toPath();
+    }
+
+    @Test
+    public void thatSnapshotRestoresLayout() throws Exception
+    {
+        // disconnected clusters to get unreachable distances
+        GraphLayout layout = createBuilder().buildFor(new ClusterGenerator(3, 40, 30, 11).createGraph());
+        layout.run();
+
+        Path file = createTempFile();
+        new GraphSnapshotWriter().write(file, layout, true);
+
+        GraphSnapshot snapshot = GraphSnapshot.open(file);
+        CompactGraph graph = layout.getGraph();
+
+        assertThat(snapshot.getVersion(), is(2));
+        assertThat(snapshot.getNodeCount(), is(graph.getNodeCount()));
+        assertThat(snapshot.getEdgeCount(), is(graph.getEdgeCount()));
+        assertThat(snapshot.hasSizes(), is(true));
+        assertThat(snapshot.findNodeIndex(graph.getId(17)), is(17));
+
+        double[] state = layout.getInternalState().getData();
+        DistanceStore distances = snapshot.getDistances();
+        for (int i = 0; i < graph.getNodeCount(); i++)
+        {
+            assertThat(snapshot.getId(i), is(graph.getId(i)));
+            assertThat(snapshot.getX(i), is(state[i * 2]));
+            assertThat(snapshot.getY(i), is(state[i * 2 + 1]));
+            assertThat(snapshot.getWidth(i), is(graph.getWidth(i)));
+
+            for (int j = 0; j < graph.getNodeCount(); j++)
+            {
+                assertThat(distances.getDistance(i, j), is(layout.getDistances().getDistance(i, j)));
+            }
+        }
+
+        GraphLayout restored = snapshot.createLayout(createBuilder());
+        assertThat(restored.getInternalState().getData(), is(state));
+        assertThat(restored.getDistances().getDistance(0, 1), is(layout.getDistances().getDistance(0, 1)));
+    }
+
+    @Test
+    public void thatSparseDistancesStaySparse() throws Exception
+    {
+        GraphLayoutBuilder builder = createBuilder().withDistanceStorage(DistanceStorage.SPARSE).withDistanceCutoff(3);
+        GraphLayout layout = builder.buildFor(new ClusterGenerator(3, 40, 30, 11).createGraph());
+
+        Path file = createTempFile();
+        new GraphSnapshotWriter().write(file, layout, true);
+
+        GraphSnapshot snapshot = GraphSnapshot.open(file);
+        assertThat(snapshot.getDistances(), is(instanceOf(SparseDistanceStore.class)));
+
+        // only the stored pairs are written, not the matrix
+        int nodeCount = layout.getGraph().getNodeCount();
+        assertThat(file.toFile().length(), is(lessThan((long) nodeCount * nodeCount * 2)));
+
+        SparseDistanceStore distances = (SparseDistanceStore) snapshot.getDistances();
+        assertThat(distances.getCutoff(), is(3));
+        for (int i = 0; i < nodeCount; i++)
+        {
+            for (int j = 0; j < nodeCount; j++)
+            {
+                assertThat(distances.getDistance(i, j), is(layout.getDistances().getDistance(i, j)));
+            }
+        }
+    }
+
+    @Test
+    public void thatEveryDistanceStorageRestoresTheSameLayout() throws Exception
+    {
+        for (DistanceStorage storage : DistanceStorage.values())
+        {
+            // Barnes-Hut repulsion, so the springs follow the stored pairs of sparse and landmark stores
+            GraphLayoutBuilder builder = createBuilder().withDistanceStorage(storage).withRepulsionMode(RepulsionMode.BARNES_HUT);
+            if (storage.usesCutoff())
+            {
+                builder.withDistanceCutoff(3);
+            }
+            GraphLayout layout = builder.buildFor(new ClusterGenerator(3, 40, 30, 11).createGraph());
+
+            Path file = createTempFile();
+            new GraphSnapshotWriter().write(file, layout, true);
+
+            GraphLayout restored = GraphSnapshot.open(file).createLayout(builder);
+            DistanceStore distances = restored.getDistances();
+            if (storage.usesCutoff())
+            {
+                assertThat(storage.name(), distances.getClass() == layout.getDistances().getClass(), is(true));
+            }
+
+            int nodeCount = layout.getGraph().getNodeCount();
+            for (int i = 0; i < nodeCount; i++)
+            {
+                for (int j = 0; j < nodeCount; j++)
+                {
+                    assertThat(storage + ": " + i + " to " + j, distances.getDistance(i, j), is(layout.getDistances().getDistance(i, j)));
+                }
+            }
+
+            layout.simulate();
+            restored.simulate();
+            assertThat(storage.name(), restored.getInternalState().getData(), is(layout.getInternalState().getData()));
+        }
+    }
+
+    @Test
+    public void thatSnapshotWithoutOptionalSectionsCanBeRead() throws Exception
+    {
+        CompactGraph graph = new CompactGraph(new String[] { "b", "a", "c" }, null, null, new int[] { 0, 1 }, new int[] { 1, 2 });
+
+        Path file = createTempFile();
+        new GraphSnapshotWriter().write(file, graph, null, null);
+
+        GraphSnapshot snapshot = GraphSnapshot.open(file);
+        assertThat(snapshot.hasSizes(), is(false));
+        assertThat(snapshot.hasPositions(), is(false));
+        assertThat(snapshot.hasDistances(), is(false));
+
+        CompactGraph read = snapshot.toCompactGraph();
+        assertThat(read.getNodeCount(), is(3));
+        assertThat(read.getEdgeCount(), is(2));
+
+        // edges come back ordered by start node
+        assertThat(read.getId(read.getEdgeFrom(0)), is("a"));
+        assertThat(read.getId(read.getEdgeTo(0)), is("c"));
+        assertThat(read.getId(read.getEdgeFrom(1)), is("b"));
+        assertThat(read.getId(read.getEdgeTo(1)), is("a"));
+    }
+
+    @Test(expected = GraphFormatException.class)
+    public void thatOtherFilesAreRejected() throws Exception
+    {
+        Path file = createTempFile();
+        FileOutputStream out = new FileOutputStream(file.toFile());
+        out.write("{\"nodes\":{},\"edges\":[]}\n......".getBytes("UTF-8"));
+        out.close();
+
+        GraphSnapshot.open(file);
+    }
+}